@@ -0,0 +1,62 @@
+package com.barry.payments.easypayapi;
+
+import com.barry.payments.easypayapi.dtos.OrderLineDTO;
+import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.barry.payments.easypayapi.models.OrderLine;
+import com.barry.payments.easypayapi.models.Transaction;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
+import static com.barry.payments.easypayapi.models.enums.Status.AUTHORIZED;
+
+/**
+ * Jeux de données des benchmarks JMH : une transaction et son DTO avec n lignes de commande.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    public static Transaction transaction(int orderLineCount) {
+        return Transaction.builder()
+                .id("TX-BENCH")
+                .status(AUTHORIZED)
+                .amount(new BigDecimal("1234.56"))
+                .paymentType(CREDIT_CARD)
+                .orderLines(orderLines(orderLineCount))
+                .version(3L)
+                .build();
+    }
+
+    public static TransactionDTO transactionDto(int orderLineCount) {
+        return TransactionDTO.builder()
+                .id("TX-BENCH")
+                .status(AUTHORIZED)
+                .amount(new BigDecimal("1234.56"))
+                .paymentType(CREDIT_CARD)
+                .orderLines(IntStream.range(0, orderLineCount)
+                        .mapToObj(i -> OrderLineDTO.builder()
+                                .id("OL-" + i)
+                                .productName("Product-" + i)
+                                .quantity(1 + i % 5)
+                                .price(BigDecimal.valueOf(1999 + i, 2))
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    // nouvelles instances à chaque appel : les comparaisons ne peuvent pas s'arrêter sur l'identité
+    public static List<OrderLine> orderLines(int orderLineCount) {
+        return IntStream.range(0, orderLineCount)
+                .mapToObj(i -> OrderLine.builder()
+                        .id("OL-" + i)
+                        .productName("Product-" + i)
+                        .quantity(1 + i % 5)
+                        .price(BigDecimal.valueOf(1999 + i, 2))
+                        .build())
+                .toList();
+    }
+}
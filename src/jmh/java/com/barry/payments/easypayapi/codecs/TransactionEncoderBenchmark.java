@@ -0,0 +1,79 @@
+package com.barry.payments.easypayapi.codecs;
+
+import com.barry.payments.easypayapi.BenchmarkFixtures;
+import com.barry.payments.easypayapi.mappers.TransactionMapperImpl;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Encodage d'une réponse GET /withoutPagination (tableau JSON de "transactions" documents) dans des buffers
+ * Netty, comme sur le serveur : encodeur direct contre chemin TransactionMapper + Jackson.
+ * Temps moyen par réponse ; avec -prof gc, gc.alloc.rate.norm donne les octets alloués par réponse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionEncoderBenchmark {
+
+    private static final ResolvableType TRANSACTION_TYPE = ResolvableType.forClass(Transaction.class);
+
+    @Param({"1", "10", "1000"})
+    private int orderLines;
+
+    @Param({"100"})
+    private int transactions;
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final TransactionJsonEncoder directEncoder = new TransactionJsonEncoder(objectMapper);
+    private final TransactionDtoEncoder dtoEncoder =
+            new TransactionDtoEncoder(new TransactionMapperImpl(), new Jackson2JsonEncoder(objectMapper));
+    private List<Transaction> response;
+
+    @Setup
+    public void setUp() {
+        response = IntStream.range(0, transactions)
+                .mapToObj(i -> BenchmarkFixtures.transaction(orderLines))
+                .toList();
+    }
+
+    @Benchmark
+    public long directEncoder() {
+        return encode(directEncoder);
+    }
+
+    @Benchmark
+    public long dtoThenJackson() {
+        return encode(dtoEncoder);
+    }
+
+    // octets écrits, buffers rendus au pool comme après l'écriture sur la socket
+    private long encode(Encoder<Transaction> encoder) {
+        return encoder.encode(Flux.fromIterable(response), bufferFactory, TRANSACTION_TYPE, MediaType.APPLICATION_JSON, Map.of())
+                .map(buffer -> {
+                    long size = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return size;
+                })
+                .reduce(0L, Long::sum)
+                .block();
+    }
+}
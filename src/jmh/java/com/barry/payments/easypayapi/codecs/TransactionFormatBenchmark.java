@@ -0,0 +1,68 @@
+package com.barry.payments.easypayapi.codecs;
+
+import com.barry.payments.easypayapi.BenchmarkFixtures;
+import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Page de "transactions" TransactionDTO écrite puis relue en JSON, CBOR et Smile, avec les ObjectMapper
+ * construits comme dans CodecConfig. La taille du corps de chaque format est affichée au démarrage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"1", "10", "1000"})
+    private int orderLines;
+
+    @Param({"100"})
+    private int transactions;
+
+    private ObjectMapper objectMapper;
+    private JavaType pageType;
+    private List<TransactionDTO> page;
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        objectMapper = switch (format) {
+            case "cbor" -> jsonMapper.copyWith(new CBORFactory());
+            case "smile" -> jsonMapper.copyWith(new SmileFactory());
+            default -> jsonMapper;
+        };
+        pageType = objectMapper.getTypeFactory().constructCollectionType(List.class, TransactionDTO.class);
+        page = IntStream.range(0, transactions)
+                .mapToObj(i -> BenchmarkFixtures.transactionDto(orderLines))
+                .toList();
+        body = objectMapper.writeValueAsBytes(page);
+        System.out.printf("%n%s, %d transactions x %d order lines: %d bytes%n", format, transactions, orderLines, body.length);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<TransactionDTO> read() throws IOException {
+        return objectMapper.readValue(body, pageType);
+    }
+}
@@ -0,0 +1,37 @@
+package com.barry.payments.easypayapi.dtos;
+
+import com.barry.payments.easypayapi.BenchmarkFixtures;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sérialisation Jackson d'un TransactionDTO, avec un ObjectMapper configuré comme celui de Spring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionJsonBenchmark {
+
+    @Param({"1", "10", "1000"})
+    private int orderLines;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private TransactionDTO transactionDto;
+
+    @Setup
+    public void setUp() {
+        transactionDto = BenchmarkFixtures.transactionDto(orderLines);
+    }
+
+    @Benchmark
+    public byte[] writeTransactionDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transactionDto);
+    }
+}
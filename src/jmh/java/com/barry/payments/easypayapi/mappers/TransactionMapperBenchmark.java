@@ -0,0 +1,43 @@
+package com.barry.payments.easypayapi.mappers;
+
+import com.barry.payments.easypayapi.BenchmarkFixtures;
+import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.barry.payments.easypayapi.models.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût du mapping MapStruct entité <-> DTO selon le nombre de lignes de commande.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionMapperBenchmark {
+
+    @Param({"1", "10", "1000"})
+    private int orderLines;
+
+    private final TransactionMapper transactionMapper = new TransactionMapperImpl();
+    private Transaction transaction;
+    private TransactionDTO transactionDto;
+
+    @Setup
+    public void setUp() {
+        transaction = BenchmarkFixtures.transaction(orderLines);
+        transactionDto = BenchmarkFixtures.transactionDto(orderLines);
+    }
+
+    @Benchmark
+    public TransactionDTO transactionToTransactionDto() {
+        return transactionMapper.transactionToTransactionDto(transaction);
+    }
+
+    @Benchmark
+    public Transaction transactionDtoToTransaction() {
+        return transactionMapper.transactionDtoToTransaction(transactionDto);
+    }
+}
@@ -0,0 +1,68 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.BenchmarkFixtures;
+import com.barry.payments.easypayapi.models.OrderFingerprint;
+import com.barry.payments.easypayapi.models.OrderLine;
+import com.barry.payments.easypayapi.models.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.barry.payments.easypayapi.models.enums.Status.CAPTURED;
+
+/**
+ * Coût des règles de mise à jour, dominé par l'empreinte des lignes de commande reçues : la transaction
+ * stockée porte déjà la sienne (orderFingerprint), seule la commande de la requête est hachée.
+ * sameOrderLines : même commande, instances distinctes ;
+ * lastOrderLineChanged : seule la dernière ligne diffère (pire cas du refus).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionUpdateRulesBenchmark {
+
+    @Param({"1", "10", "1000"})
+    private int orderLines;
+
+    private Transaction existingTransaction;
+    private Transaction sameOrderUpdate;
+    private Transaction changedOrderUpdate;
+
+    @Setup
+    public void setUp() {
+        existingTransaction = BenchmarkFixtures.transaction(orderLines);
+        existingTransaction.setOrderFingerprint(OrderFingerprint.of(existingTransaction.getOrderLines()));
+        sameOrderUpdate = existingTransaction.toBuilder()
+                .status(CAPTURED)
+                .orderLines(BenchmarkFixtures.orderLines(orderLines))
+                .orderFingerprint(null)
+                .version(null)
+                .build();
+
+        List<OrderLine> changed = new ArrayList<>(BenchmarkFixtures.orderLines(orderLines));
+        OrderLine last = changed.get(changed.size() - 1);
+        changed.set(changed.size() - 1, OrderLine.builder()
+                .id(last.getId())
+                .productName(last.getProductName())
+                .quantity(last.getQuantity())
+                .price(last.getPrice().add(BigDecimal.ONE))
+                .build());
+        changedOrderUpdate = sameOrderUpdate.toBuilder().orderLines(changed).build();
+    }
+
+    @Benchmark
+    public RuntimeException sameOrderLines() {
+        return TransactionUpdateRules.violation("TX-BENCH", existingTransaction, sameOrderUpdate);
+    }
+
+    @Benchmark
+    public RuntimeException lastOrderLineChanged() {
+        return TransactionUpdateRules.violation("TX-BENCH", existingTransaction, changedOrderUpdate);
+    }
+}
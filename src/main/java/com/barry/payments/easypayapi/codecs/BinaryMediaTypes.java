@@ -0,0 +1,24 @@
+package com.barry.payments.easypayapi.codecs;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Formats binaires proposés aux services internes à côté du JSON : CBOR et Smile, chacun avec sa variante
+ * de flux (un document par transaction, émis dès sa lecture).
+ */
+public final class BinaryMediaTypes {
+
+    public static final String APPLICATION_CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+    // RFC 8742 : suite de documents CBOR concaténés, sans tableau englobant
+    public static final String APPLICATION_CBOR_SEQ_VALUE = "application/cbor-seq";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String APPLICATION_STREAM_SMILE_VALUE = "application/stream+x-jackson-smile";
+
+    public static final MediaType APPLICATION_CBOR = MediaType.APPLICATION_CBOR;
+    public static final MediaType APPLICATION_CBOR_SEQ = MediaType.parseMediaType(APPLICATION_CBOR_SEQ_VALUE);
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+    public static final MediaType APPLICATION_STREAM_SMILE = MediaType.parseMediaType(APPLICATION_STREAM_SMILE_VALUE);
+
+    private BinaryMediaTypes() {
+    }
+}
@@ -0,0 +1,98 @@
+package com.barry.payments.easypayapi.codecs;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Jackson2SmileEncoder entoure un Flux des séparateurs du tableau JSON ('[', ','), illisibles en Smile : pour
+ * application/x-jackson-smile un seul générateur Smile écrit le début du tableau, chaque élément dès qu'il arrive,
+ * puis la fin du tableau. La variante application/stream+x-jackson-smile reste diffusée document par document.
+ */
+public class SmileArrayEncoder extends Jackson2SmileEncoder {
+
+    public SmileArrayEncoder(ObjectMapper smileMapper) {
+        super(smileMapper, BinaryMediaTypes.APPLICATION_SMILE, BinaryMediaTypes.APPLICATION_STREAM_SMILE);
+        setStreamingMediaTypes(List.of(BinaryMediaTypes.APPLICATION_STREAM_SMILE));
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono
+                || (mimeType != null && BinaryMediaTypes.APPLICATION_STREAM_SMILE.isCompatibleWith(mimeType))) {
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+        // ⬅️ Mémoire constante : seul l'élément en cours est sérialisé, le flux n'est jamais collecté
+        ObjectWriter writer = getObjectMapper().writerFor(getJavaType(elementType.getType(), null));
+        return Flux.using(() -> new SmileArrayWriter(writer),
+                        arrayWriter -> Flux.concat(
+                                Mono.fromCallable(arrayWriter::start).map(bufferFactory::wrap),
+                                Flux.from(inputStream).map(value -> bufferFactory.wrap(arrayWriter.write(value))),
+                                Mono.fromCallable(arrayWriter::end).map(bufferFactory::wrap)),
+                        SmileArrayWriter::close)
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    // Un générateur par réponse : en-tête Smile et références de noms partagées par tous les éléments du tableau
+    private static final class SmileArrayWriter {
+
+        private final ObjectWriter writer;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final JsonGenerator generator;
+
+        private SmileArrayWriter(ObjectWriter writer) throws IOException {
+            this.writer = writer;
+            this.generator = writer.createGenerator(output);
+        }
+
+        private byte[] start() throws IOException {
+            generator.writeStartArray();
+            return drain();
+        }
+
+        private byte[] write(Object value) {
+            try {
+                writer.writeValue(generator, value);
+                return drain();
+            } catch (IOException ex) {
+                throw new EncodingException("Smile encoding error: " + ex.getMessage(), ex);
+            }
+        }
+
+        private byte[] end() throws IOException {
+            generator.writeEndArray();
+            return drain();
+        }
+
+        private byte[] drain() throws IOException {
+            generator.flush();
+            byte[] bytes = output.toByteArray();
+            output.reset();
+            return bytes;
+        }
+
+        private void close() {
+            try {
+                generator.close();
+            } catch (IOException ignored) {
+                // réponse déjà terminée ou annulée : rien à écrire
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.barry.payments.easypayapi.codecs;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.json.AbstractJackson2Decoder;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Décodeur CBOR qui accepte aussi les corps de type Flux (tableau CBOR ou application/cbor-seq).
+ * Jackson n'a pas de parseur CBOR non bloquant : le corps est lu en entier, dans la limite de
+ * spring.codec.max-in-memory-size, puis découpé en éléments.
+ */
+public class StreamingCborDecoder extends AbstractJackson2Decoder {
+
+    public StreamingCborDecoder(ObjectMapper cborMapper) {
+        super(cborMapper, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_CBOR_SEQ);
+        Assert.isAssignable(CBORFactory.class, cborMapper.getFactory().getClass());
+    }
+
+    @Override
+    public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType,
+                               MimeType mimeType, Map<String, Object> hints) {
+        return DataBufferUtils.join(input, getMaxInMemorySize())
+                .flatMapIterable(buffer -> {
+                    // readValues parcourt les documents concaténés, ou les éléments d'un tableau racine
+                    try (InputStream body = buffer.asInputStream(true);
+                         MappingIterator<Object> values = getObjectMapper()
+                                 .readerFor(getObjectMapper().constructType(elementType.getType()))
+                                 .readValues(body)) {
+                        return values.readAll();
+                    } catch (IOException e) {
+                        throw new DecodingException("Invalid CBOR body: " + e.getMessage(), e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,55 @@
+package com.barry.payments.easypayapi.codecs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodeur CBOR qui accepte aussi les flux (Jackson2CborEncoder n'encode qu'une valeur) : tableau CBOR de
+ * longueur indéfinie pour application/cbor, documents concaténés pour application/cbor-seq. Chaque élément
+ * est écrit dès qu'il arrive, sans attendre la fin du flux.
+ */
+public class StreamingCborEncoder extends AbstractJackson2Encoder {
+
+    // RFC 8949 §3.2.2 : début de tableau de longueur indéfinie, et marqueur "break" qui le ferme
+    private static final byte[] INDEFINITE_ARRAY_START = {(byte) 0x9F};
+    private static final byte[] BREAK = {(byte) 0xFF};
+
+    public StreamingCborEncoder(ObjectMapper cborMapper) {
+        super(cborMapper, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_CBOR_SEQ);
+        Assert.isAssignable(CBORFactory.class, cborMapper.getFactory().getClass());
+        setStreamingMediaTypes(List.of(BinaryMediaTypes.APPLICATION_CBOR_SEQ));
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono) {
+            return Mono.from(inputStream)
+                    .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                    .flux();
+        }
+        Flux<DataBuffer> values = Flux.from(inputStream)
+                .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+        if (mimeType != null && BinaryMediaTypes.APPLICATION_CBOR_SEQ.isCompatibleWith(mimeType)) {
+            return values.doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        }
+        return Flux.concat(
+                        Mono.fromSupplier(() -> bufferFactory.wrap(INDEFINITE_ARRAY_START)),
+                        values,
+                        Mono.fromSupplier(() -> bufferFactory.wrap(BREAK)))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+}
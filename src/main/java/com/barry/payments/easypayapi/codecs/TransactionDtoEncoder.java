@@ -0,0 +1,67 @@
+package com.barry.payments.easypayapi.codecs;
+
+import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.barry.payments.easypayapi.mappers.TransactionMapper;
+import com.barry.payments.easypayapi.models.Transaction;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chaque Transaction est copiée en TransactionDTO par TransactionMapper puis sérialisée par l'encodeur Jackson
+ * donné. En JSON, chemin historique utilisé quand easypay.json.direct-encoder=false (même JSON que
+ * TransactionJsonEncoder) ; toujours utilisé pour CBOR et Smile.
+ */
+public class TransactionDtoEncoder implements HttpMessageEncoder<Transaction> {
+
+    private static final ResolvableType DTO_TYPE = ResolvableType.forClass(TransactionDTO.class);
+
+    private final TransactionMapper transactionMapper;
+    private final AbstractJackson2Encoder jacksonEncoder;
+
+    public TransactionDtoEncoder(TransactionMapper transactionMapper, AbstractJackson2Encoder jacksonEncoder) {
+        this.transactionMapper = transactionMapper;
+        this.jacksonEncoder = jacksonEncoder;
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return Transaction.class.isAssignableFrom(elementType.toClass()) && jacksonEncoder.canEncode(DTO_TYPE, mimeType);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return jacksonEncoder.getEncodableMimeTypes();
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return jacksonEncoder.getStreamingMediaTypes();
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends Transaction> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        Publisher<TransactionDTO> dtos = inputStream instanceof Mono
+                ? Mono.from(inputStream).map(transactionMapper::transactionToTransactionDto)
+                : Flux.from(inputStream).map(transactionMapper::transactionToTransactionDto);
+        return jacksonEncoder.encode(dtos, bufferFactory, DTO_TYPE, mimeType, hints);
+    }
+
+    @Override
+    public DataBuffer encodeValue(Transaction transaction, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        return jacksonEncoder.encodeValue(transactionMapper.transactionToTransactionDto(transaction),
+                bufferFactory, DTO_TYPE, mimeType, hints);
+    }
+}
@@ -0,0 +1,182 @@
+package com.barry.payments.easypayapi.codecs;
+
+import com.barry.payments.easypayapi.models.OrderLine;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Écrit une Transaction en JSON directement dans le DataBuffer de la réponse, sans copie en TransactionDTO
+ * ni introspection Jackson : un seul graphe d'objets par document sur les endpoints de liste.
+ * <p>
+ * Le JSON produit est celui de TransactionDTO (mêmes noms et ordre de champs, champs null de la transaction
+ * omis, champs null des lignes écrits) ; le générateur vient de l'ObjectMapper de l'application, les réglages
+ * numériques (BigDecimal) sont donc les mêmes. Tableau JSON pour application/json, une ligne par transaction
+ * pour NDJSON.
+ */
+public class TransactionJsonEncoder implements HttpMessageEncoder<Transaction> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON);
+
+    private static final byte[] ARRAY_START = "[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ARRAY_END = "]".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EMPTY_ARRAY = "[]".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEW_LINE = "\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString AMOUNT = new SerializedString("amount");
+    private static final SerializableString PAYMENT_TYPE = new SerializedString("paymentType");
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString ORDER_LINES = new SerializedString("orderLines");
+    private static final SerializableString PRODUCT_NAME = new SerializedString("productName");
+    private static final SerializableString QUANTITY = new SerializedString("quantity");
+    private static final SerializableString PRICE = new SerializedString("price");
+
+    // taille initiale d'un buffer : évite la plupart des agrandissements sans surallouer les petites transactions
+    private static final int BASE_CAPACITY = 160;
+    private static final int ORDER_LINE_CAPACITY = 96;
+
+    private final ObjectMapper objectMapper;
+
+    public TransactionJsonEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return Transaction.class.isAssignableFrom(elementType.toClass())
+                && (mimeType == null || MIME_TYPES.stream().anyMatch(supported -> supported.isCompatibleWith(mimeType)));
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return List.of(MediaType.APPLICATION_NDJSON);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends Transaction> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono) {
+            return Mono.from(inputStream).map(transaction -> write(transaction, bufferFactory, null, null)).flux();
+        }
+        if (mimeType != null && MediaType.APPLICATION_NDJSON.isCompatibleWith(mimeType)) {
+            return Flux.from(inputStream)
+                    .map(transaction -> write(transaction, bufferFactory, null, NEW_LINE))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        }
+        // tableau JSON émis au fil de l'eau : '[' avec le premier élément, ',' devant les suivants
+        return Flux.defer(() -> {
+            AtomicBoolean empty = new AtomicBoolean(true);
+            return Flux.from(inputStream)
+                    .map(transaction -> write(transaction, bufferFactory,
+                            empty.getAndSet(false) ? ARRAY_START : SEPARATOR, null))
+                    .concatWith(Mono.fromSupplier(() -> bufferFactory.wrap(empty.get() ? EMPTY_ARRAY : ARRAY_END)))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    @Override
+    public DataBuffer encodeValue(Transaction transaction, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        return write(transaction, bufferFactory, null, null);
+    }
+
+    private DataBuffer write(Transaction transaction, DataBufferFactory bufferFactory, byte[] prefix, byte[] suffix) {
+        int orderLineCount = transaction.getOrderLines() != null ? transaction.getOrderLines().size() : 0;
+        DataBuffer buffer = bufferFactory.allocateBuffer(BASE_CAPACITY + ORDER_LINE_CAPACITY * orderLineCount);
+        try {
+            if (prefix != null) {
+                buffer.write(prefix);
+            }
+            try (OutputStream outputStream = buffer.asOutputStream();
+                 JsonGenerator generator = objectMapper.createGenerator(outputStream, JsonEncoding.UTF8)) {
+                writeTransaction(generator, transaction);
+            }
+            if (suffix != null) {
+                buffer.write(suffix);
+            }
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw new EncodingException("Failed to encode transaction " + transaction.getId(), e);
+        }
+    }
+
+    private static void writeTransaction(JsonGenerator generator, Transaction transaction) throws IOException {
+        generator.writeStartObject();
+        if (transaction.getId() != null) {
+            generator.writeFieldName(ID);
+            generator.writeString(transaction.getId());
+        }
+        if (transaction.getAmount() != null) {
+            generator.writeFieldName(AMOUNT);
+            generator.writeNumber(transaction.getAmount());
+        }
+        if (transaction.getPaymentType() != null) {
+            generator.writeFieldName(PAYMENT_TYPE);
+            generator.writeString(transaction.getPaymentType().name());
+        }
+        if (transaction.getStatus() != null) {
+            generator.writeFieldName(STATUS);
+            generator.writeString(transaction.getStatus().name());
+        }
+        if (transaction.getOrderLines() != null) {
+            generator.writeFieldName(ORDER_LINES);
+            generator.writeStartArray();
+            for (OrderLine orderLine : transaction.getOrderLines()) {
+                writeOrderLine(generator, orderLine);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    // OrderLineDTO n'omet pas ses champs null : ils sont écrits à null ici aussi
+    private static void writeOrderLine(JsonGenerator generator, OrderLine orderLine) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        generator.writeString(orderLine.getId());
+        generator.writeFieldName(PRODUCT_NAME);
+        generator.writeString(orderLine.getProductName());
+        generator.writeFieldName(QUANTITY);
+        if (orderLine.getQuantity() != null) {
+            generator.writeNumber(orderLine.getQuantity());
+        } else {
+            generator.writeNull();
+        }
+        generator.writeFieldName(PRICE);
+        if (orderLine.getPrice() != null) {
+            generator.writeNumber(orderLine.getPrice());
+        } else {
+            generator.writeNull();
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,127 @@
+package com.barry.payments.easypayapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Convertit en Decimal128 les montants (amount, orderLines.price) écrits en chaîne avant MongoConversionsConfig.
+ * Les documents à migrer sont lus par curseur et réécrits par lots, sans charger la collection en mémoire.
+ * Idempotente : seuls les documents contenant encore une chaîne sont sélectionnés.
+ */
+@Component
+@Log4j2
+public class AmountDecimal128Migration {
+
+    private static final String COLLECTION = "transaction";
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final AmountMigrationProperties amountMigrationProperties;
+    private final Counter skippedTransactions;
+
+    public AmountDecimal128Migration(ReactiveMongoTemplate reactiveMongoTemplate,
+                                     AmountMigrationProperties amountMigrationProperties,
+                                     MeterRegistry meterRegistry) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.amountMigrationProperties = amountMigrationProperties;
+        this.skippedTransactions = Counter.builder("transactions.migration.decimal128.skipped")
+                .description("Transactions left with a string amount the migration could not convert")
+                .register(meterRegistry);
+    }
+
+    // ne bloque pas le démarrage : les montants en chaîne restent lisibles pendant la migration
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!amountMigrationProperties.isEnabled()) {
+            return;
+        }
+        migrate().subscribe(
+                migrated -> log.info("Decimal128 migration completed: {} transaction(s) migrated", migrated),
+                error -> log.error("Decimal128 migration failed: {}", error.getMessage()));
+    }
+
+    // renvoie le nombre de documents réécrits
+    public Mono<Long> migrate() {
+        int batchSize = amountMigrationProperties.getBatchSize();
+        Query query = Query.query(new Criteria().orOperator(
+                        Criteria.where("amount").type(JsonSchemaObject.Type.STRING),
+                        Criteria.where("orderLines.price").type(JsonSchemaObject.Type.STRING)))
+                .cursorBatchSize(batchSize);
+        query.fields().include("amount", "orderLines");
+
+        AtomicLong skipped = new AtomicLong();
+        return reactiveMongoTemplate.find(query, Document.class, COLLECTION)
+                .buffer(batchSize)
+                .concatMap(batch -> migrateBatch(batch, skipped))
+                .reduce(0L, Long::sum)
+                .doOnNext(migrated -> {
+                    // ⬅️ ces documents gardent un montant en chaîne : /stats et la reconstruction des totaux les ignorent
+                    if (skipped.get() > 0) {
+                        log.warn("Decimal128 migration: {} transaction(s) skipped, amount left as string", skipped.get());
+                    }
+                });
+    }
+
+    private Mono<Long> migrateBatch(List<Document> documents, AtomicLong skipped) {
+        ReactiveBulkOperations bulk = reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        List<Document> convertible = documents.stream().filter(this::isConvertible).toList();
+        skipped.addAndGet(documents.size() - convertible.size());
+        if (convertible.isEmpty()) {
+            return Mono.just(0L);
+        }
+        convertible.forEach(document -> bulk.updateOne(
+                // le montant lu sert de garde : une écriture concurrente entre-temps n'est pas écrasée
+                Query.query(Criteria.where("_id").is(document.get("_id")).and("amount").is(document.get("amount"))),
+                new Update()
+                        .set("amount", toDecimal128(document.get("amount")))
+                        .set("orderLines", orderLinesOf(document))));
+        return bulk.execute()
+                .map(result -> (long) result.getModifiedCount())
+                .doOnNext(migrated -> log.info("Decimal128 migration: {} transaction(s) migrated in batch", migrated));
+    }
+
+    private static List<Document> orderLinesOf(Document document) {
+        List<Document> orderLines = document.getList("orderLines", Document.class);
+        if (orderLines == null) {
+            return null;
+        }
+        return orderLines.stream()
+                .map(orderLine -> new Document(orderLine).append("price", toDecimal128(orderLine.get("price"))))
+                .toList();
+    }
+
+    private static Object toDecimal128(Object value) {
+        return value instanceof String amount ? new Decimal128(new BigDecimal(amount)) : value;
+    }
+
+    // une valeur qui n'est pas un nombre est laissée telle quelle plutôt que de faire échouer tout le lot
+    private boolean isConvertible(Document document) {
+        try {
+            toDecimal128(document.get("amount"));
+            orderLinesOf(document);
+            return true;
+        } catch (NumberFormatException | ClassCastException e) {
+            skippedTransactions.increment();
+            log.warn("Decimal128 migration: transaction {} skipped, invalid amount: {}", document.get("_id"), e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Réglages de la migration des montants stockés en chaîne vers Decimal128.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.migration.decimal128")
+public class AmountMigrationProperties {
+
+    // lancée au démarrage ; sans effet une fois tous les documents migrés
+    private boolean enabled = true;
+    // nombre de documents lus par getMore et réécrits par bulk write
+    private int batchSize = 500;
+}
@@ -0,0 +1,17 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Réglages de l'ingestion par lots (POST /batch).
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.batch")
+public class BatchIngestionProperties {
+
+    // nombre de transactions envoyées dans un même bulk write non ordonné
+    private int chunkSize = 1000;
+    // nombre de bulk writes exécutés en parallèle
+    private int concurrency = 4;
+}
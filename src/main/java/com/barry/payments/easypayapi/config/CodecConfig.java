@@ -0,0 +1,63 @@
+package com.barry.payments.easypayapi.config;
+
+import com.barry.payments.easypayapi.codecs.BinaryMediaTypes;
+import com.barry.payments.easypayapi.codecs.SmileArrayEncoder;
+import com.barry.payments.easypayapi.codecs.StreamingCborDecoder;
+import com.barry.payments.easypayapi.codecs.StreamingCborEncoder;
+import com.barry.payments.easypayapi.codecs.TransactionDtoEncoder;
+import com.barry.payments.easypayapi.codecs.TransactionJsonEncoder;
+import com.barry.payments.easypayapi.mappers.TransactionMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Encodeurs WebFlux propres à l'application, placés avant les encodeurs par défaut.
+ * <p>
+ * CBOR et Smile utilisent une copie de l'ObjectMapper de l'application (mêmes modules et réglages que le
+ * JSON) ; les transactions de GET /withoutPagination y passent par TransactionDTO.
+ */
+@Configuration
+public class CodecConfig implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+    private final TransactionMapper transactionMapper;
+    private final JsonEncodingProperties jsonEncodingProperties;
+
+    public CodecConfig(ObjectMapper objectMapper,
+                       TransactionMapper transactionMapper,
+                       JsonEncodingProperties jsonEncodingProperties) {
+        this.objectMapper = objectMapper;
+        this.transactionMapper = transactionMapper;
+        this.jsonEncodingProperties = jsonEncodingProperties;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(jsonEncodingProperties.isDirectEncoder()
+                ? new TransactionJsonEncoder(objectMapper)
+                : new TransactionDtoEncoder(transactionMapper, new Jackson2JsonEncoder(objectMapper)));
+
+        ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+        SmileArrayEncoder smileEncoder = new SmileArrayEncoder(smileMapper);
+        configurer.defaultCodecs().jackson2SmileEncoder(smileEncoder);
+        configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper,
+                BinaryMediaTypes.APPLICATION_SMILE, BinaryMediaTypes.APPLICATION_STREAM_SMILE));
+        configurer.customCodecs().register(new TransactionDtoEncoder(transactionMapper, smileEncoder));
+
+        // les encodeurs personnalisés passent avant ceux par défaut : le JSON est réinscrit devant CBOR pour
+        // rester la réponse d'un Accept absent, */* ou de navigateur
+        configurer.customCodecs().registerWithDefaultConfig(new Jackson2JsonEncoder(objectMapper));
+        ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+        StreamingCborEncoder cborEncoder = new StreamingCborEncoder(cborMapper);
+        configurer.customCodecs().register(new TransactionDtoEncoder(transactionMapper, cborEncoder));
+        configurer.customCodecs().register(cborEncoder);
+        // maxInMemorySize de spring.codec, comme les décodeurs par défaut
+        configurer.customCodecs().registerWithDefaultConfig(new StreamingCborDecoder(cborMapper));
+    }
+}
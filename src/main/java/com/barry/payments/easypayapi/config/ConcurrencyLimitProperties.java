@@ -0,0 +1,42 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Limites adaptatives (AIMD) de requêtes simultanées sur l'API, une pour les lectures et une pour les écritures.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+    // valeur de l'en-tête Retry-After des réponses 503
+    private Duration retryAfter = Duration.ofSeconds(1);
+    private Limit read = new Limit(200, 10, 1000, Duration.ofMillis(250));
+    private Limit write = new Limit(100, 5, 500, Duration.ofMillis(500));
+
+    @Data
+    public static class Limit {
+
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+        // au-delà, une réponse compte comme un signal de saturation, au même titre qu'un timeout ou une 503/504
+        private Duration latencyThreshold;
+        // facteur appliqué à la limite sur un signal de saturation, au plus une fois par vague de requêtes
+        private double backoffRatio = 0.9;
+
+        public Limit() {
+        }
+
+        Limit(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.latencyThreshold = latencyThreshold;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.barry.payments.easypayapi.config;
+
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
+import static com.barry.payments.easypayapi.models.enums.PaymentType.GIFT_CARD;
+import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
+import static com.barry.payments.easypayapi.models.enums.Status.AUTHORIZED;
+import static com.barry.payments.easypayapi.models.enums.Status.CAPTURED;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+
+/**
+ * Réglages du générateur de jeux de données (profil "generator").
+ * Les distributions sont des poids relatifs : {NEW: 1, CAPTURED: 3} donne 25 % de NEW et 75 % de CAPTURED.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.generator")
+public class DataGeneratorProperties {
+
+    // même graine et mêmes réglages : même jeu de données, ids compris
+    private long seed = 42;
+    private long count = 1_000_000;
+    // ids "<prefix><index>" : un second lancement sans clean rapporte des doublons au lieu de dupliquer
+    private String idPrefix = "GEN-";
+    // supprime transactions et totaux pré-agrégés avant de générer
+    private boolean clean = false;
+    // arrête l'application une fois les données écrites (lancement en ligne de commande)
+    private boolean exitOnCompletion = false;
+    // une ligne de log tous les progressInterval documents écrits
+    private long progressInterval = 100_000;
+    // nombre de lignes de commande -> poids
+    private Map<Integer, Integer> orderLineWeights = new TreeMap<>(Map.of(1, 50, 2, 30, 3, 15, 20, 4, 1000, 1));
+    private Map<Status, Integer> statusWeights = new EnumMap<>(Map.of(NEW, 20, AUTHORIZED, 30, CAPTURED, 50));
+    private Map<PaymentType, Integer> paymentTypeWeights =
+            new EnumMap<>(Map.of(CREDIT_CARD, 60, PAYPAL, 30, GIFT_CARD, 10));
+}
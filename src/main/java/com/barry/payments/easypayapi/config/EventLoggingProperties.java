@@ -0,0 +1,28 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.slf4j.event.Level;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Réglages des logs de succès des contrôleurs et du service (les erreurs et avertissements ne sont ni
+ * rétrogradés ni échantillonnés).
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.logging")
+public class EventLoggingProperties {
+
+    // DEBUG ou TRACE pour faire disparaître les logs de succès en production sans toucher aux erreurs
+    private Level successLevel = Level.INFO;
+    // part des événements de succès conservés, entre 0 et 1
+    private double defaultSampleRate = 1.0;
+    // taux par opération (nom de la méthode du service, ex. getTransactionById)
+    private Map<String, Double> sampleRates = new HashMap<>();
+
+    public double sampleRateOf(String operation) {
+        return sampleRates.getOrDefault(operation, defaultSampleRate);
+    }
+}
@@ -0,0 +1,27 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Réglages de l'en-tête Idempotency-Key sur POST /api/v1/transactions.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.idempotency")
+public class IdempotencyProperties {
+
+    // durée de conservation des réponses dans MongoDB (index TTL)
+    private Duration ttl = Duration.ofHours(24);
+    // cache en mémoire devant la collection
+    private long cacheMaximumSize = 10_000;
+    private Duration cacheTtl = Duration.ofMinutes(5);
+    // attente d'une requête en cours sur une autre instance avant de répondre 409
+    private Duration pendingTimeout = Duration.ofSeconds(10);
+    private Duration pollInterval = Duration.ofMillis(50);
+    // réservation d'une clé, prolongée tant que la création tourne : une instance arrêtée la libère au bout de ce délai
+    private Duration lease = Duration.ofSeconds(5);
+    // relances de l'écriture de la réponse, espacées de poll-interval
+    private int completionRetries = 3;
+}
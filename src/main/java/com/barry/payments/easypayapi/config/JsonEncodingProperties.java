@@ -0,0 +1,15 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Choix de l'encodeur JSON des transactions renvoyées par GET /withoutPagination.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.json")
+public class JsonEncodingProperties {
+
+    // true : TransactionJsonEncoder écrit la transaction sans DTO ; false : TransactionMapper puis Jackson
+    private boolean directEncoder = true;
+}
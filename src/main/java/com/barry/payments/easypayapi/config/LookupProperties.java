@@ -0,0 +1,15 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Réglages de la lecture groupée POST /api/v1/transactions/lookup.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.lookup")
+public class LookupProperties {
+
+    // borne la taille du $in envoyé à MongoDB et de la réponse
+    private int maxIds = 1000;
+}
@@ -0,0 +1,20 @@
+package com.barry.payments.easypayapi.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions.BigDecimalRepresentation;
+
+/**
+ * Conversions MongoDB de l'application.
+ * Les BigDecimal (Transaction.amount, OrderLine.price) sont stockés en Decimal128 et non en chaîne :
+ * MongoDB peut alors les comparer, les indexer et les agréger numériquement.
+ */
+@Configuration
+public class MongoConversionsConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return MongoCustomConversions.create(adapter -> adapter.bigDecimal(BigDecimalRepresentation.DECIMAL128));
+    }
+}
@@ -0,0 +1,101 @@
+package com.barry.payments.easypayapi.config;
+
+import com.barry.payments.easypayapi.models.IdempotencyRecord;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.mongodb.MongoException;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Crée au démarrage les index déclarés sur les documents (@CompoundIndex, @Indexed...).
+ * createIndex est idempotent : un index déjà présent avec les mêmes options n'est pas recréé.
+ */
+@Component
+@Log4j2
+public class MongoIndexInitializer {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+    private static final String TTL_INDEX_NAME = "createdAt_ttl";
+    private static final String SUMMARY_WRITERS = "summaryTracking.writers";
+    private static final String SUMMARY_WRITERS_INDEX_NAME = "summaryTracking_writers";
+    // IndexOptionsConflict : même clé, options différentes (ici expireAfterSeconds)
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final MongoMappingContext mongoMappingContext;
+    private final IdempotencyProperties idempotencyProperties;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate,
+                                 MongoMappingContext mongoMappingContext,
+                                 IdempotencyProperties idempotencyProperties) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.mongoMappingContext = mongoMappingContext;
+        this.idempotencyProperties = idempotencyProperties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        Flux.fromIterable(indexResolver.resolveIndexFor(Transaction.class))
+                .concatMap(index -> reactiveMongoTemplate.indexOps(Transaction.class).createIndex(index))
+                .doOnNext(name -> log.info("Index ensured on transaction collection: {}", name))
+                .then(ensureSummaryTrackingIndex())
+                .then(ensureIdempotencyTtlIndex())
+                .block(TIMEOUT);
+    }
+
+    // écritures dont les totaux sont en cours (summaryTracking.writers > 0), lues par TransactionSummaryRebuilder :
+    // index partiel, seules ces quelques transactions y entrent
+    private Mono<String> ensureSummaryTrackingIndex() {
+        return reactiveMongoTemplate.indexOps(Transaction.class)
+                .createIndex(new Index().on(SUMMARY_WRITERS, Sort.Direction.ASC)
+                        .named(SUMMARY_WRITERS_INDEX_NAME)
+                        .partial(PartialIndexFilter.of(Criteria.where(SUMMARY_WRITERS).gt(0))))
+                .doOnNext(name -> log.info("Index ensured on transaction collection: {}", name));
+    }
+
+    // ⬅️ durée lue dans la configuration : si elle a changé, collMod met à jour le TTL sans supprimer l'index
+    private Mono<String> ensureIdempotencyTtlIndex() {
+        Duration ttl = idempotencyProperties.getTtl();
+        return reactiveMongoTemplate.indexOps(IdempotencyRecord.class)
+                .createIndex(new Index().on("createdAt", Sort.Direction.ASC)
+                        .named(TTL_INDEX_NAME)
+                        .expire(ttl))
+                .onErrorResume(MongoIndexInitializer::isIndexOptionsConflict, e -> updateTtl(ttl))
+                .doOnNext(name -> log.info("TTL index ensured on idempotency collection: {}", name));
+    }
+
+    private Mono<String> updateTtl(Duration ttl) {
+        Document collMod = new Document("collMod", reactiveMongoTemplate.getCollectionName(IdempotencyRecord.class))
+                .append("index", new Document("name", TTL_INDEX_NAME)
+                        .append("expireAfterSeconds", ttl.toSeconds()));
+        return reactiveMongoTemplate.executeCommand(collMod)
+                .doOnNext(result -> log.info("TTL index {} updated to {}s", TTL_INDEX_NAME, ttl.toSeconds()))
+                .thenReturn(TTL_INDEX_NAME);
+    }
+
+    // l'exception du driver arrive traduite par Spring : on remonte les causes jusqu'au code serveur
+    private static boolean isIndexOptionsConflict(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && mongoException.getCode() == INDEX_OPTIONS_CONFLICT) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package com.barry.payments.easypayapi.config;
+
+import com.barry.payments.easypayapi.models.OrderFingerprint;
+import com.barry.payments.easypayapi.models.Transaction;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Pose l'empreinte des lignes de commande sur toute transaction écrite par save, insert ou bulk insert :
+ * la mise à jour conditionnelle compare alors une empreinte au lieu de la liste complète.
+ */
+@Component
+public class OrderFingerprintCallback implements ReactiveBeforeConvertCallback<Transaction> {
+
+    @Override
+    public Publisher<Transaction> onBeforeConvert(Transaction transaction, String collection) {
+        transaction.setOrderFingerprint(OrderFingerprint.of(transaction.getOrderLines()));
+        return Mono.just(transaction);
+    }
+}
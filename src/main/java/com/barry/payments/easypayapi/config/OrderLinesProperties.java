@@ -0,0 +1,15 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Réglages de la lecture paginée GET /api/v1/transactions/{id}/orderLines.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.order-lines")
+public class OrderLinesProperties {
+
+    // borne la fenêtre $slice lue dans MongoDB et la taille de la réponse
+    private int maxLimit = 1000;
+}
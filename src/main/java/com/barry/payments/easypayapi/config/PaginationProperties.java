@@ -0,0 +1,15 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Réglages des lectures paginées GET /api/v1/transactions et /api/v1/transactions/cursor.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.pagination")
+public class PaginationProperties {
+
+    // borne le limit envoyé à MongoDB et la page bufferisée en mémoire
+    private int maxSize = 1000;
+}
@@ -0,0 +1,17 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Réglages de l'export en flux (NDJSON / SSE) de la collection complète.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.streaming")
+public class StreamingProperties {
+
+    // nombre de documents renvoyés par MongoDB à chaque getMore du curseur
+    private int cursorBatchSize = 500;
+    // nombre maximal d'éléments demandés en avance au curseur (backpressure)
+    private int prefetch = 256;
+}
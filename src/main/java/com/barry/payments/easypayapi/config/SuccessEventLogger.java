@@ -0,0 +1,39 @@
+package com.barry.payments.easypayapi.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.slf4j.spi.NOPLoggingEventBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Événements de succès en paires clé/valeur, au niveau et au taux d'échantillonnage de EventLoggingProperties.
+ * Un événement écarté ne coûte ni formatage ni allocation de message : le builder renvoyé ne fait rien.
+ */
+public class SuccessEventLogger {
+
+    private final Logger logger;
+    private final EventLoggingProperties properties;
+
+    public SuccessEventLogger(Class<?> owner, EventLoggingProperties properties) {
+        this.logger = LoggerFactory.getLogger(owner);
+        this.properties = properties;
+    }
+
+    public LoggingEventBuilder event(String operation, String message) {
+        Level level = properties.getSuccessLevel();
+        if (!logger.isEnabledForLevel(level) || !sampled(operation)) {
+            return NOPLoggingEventBuilder.singleton();
+        }
+        return logger.atLevel(level)
+                .setMessage(message)
+                .addKeyValue("operation", operation);
+    }
+
+    private boolean sampled(String operation) {
+        double rate = properties.sampleRateOf(operation);
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+}
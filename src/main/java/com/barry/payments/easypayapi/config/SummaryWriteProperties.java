@@ -0,0 +1,15 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Mise à jour des totaux pré-agrégés après chaque écriture, hors du chemin de la requête.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.summary.write")
+public class SummaryWriteProperties {
+
+    // mises à jour des totaux en cours en arrière-plan ; au-delà, la requête attend la sienne
+    private int maxPending = 1000;
+}
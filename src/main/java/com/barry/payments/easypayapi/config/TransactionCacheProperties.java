@@ -0,0 +1,19 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Réglages du cache en mémoire de getTransactionById.
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.cache")
+public class TransactionCacheProperties {
+
+    private boolean enabled = true;
+    private long maximumSize = 10_000;
+    // durée de vie des transactions non CAPTURED (les CAPTURED sont immuables et n'expirent pas)
+    private Duration ttl = Duration.ofSeconds(5);
+}
@@ -0,0 +1,178 @@
+package com.barry.payments.easypayapi.config;
+
+import com.barry.payments.easypayapi.models.OrderLine;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
+import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import com.barry.payments.easypayapi.reporitories.TransactionSummaryRepository;
+import com.barry.payments.easypayapi.services.TransactionService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Génère un jeu de données de volume réaliste pour les tirs de performance.
+ * <p>
+ * Les transactions sont tirées d'un SplittableRandom initialisé par la graine, dans l'ordre des index :
+ * le jeu est reproductible quelle que soit la concurrence d'écriture. L'écriture passe par createTransactions
+ * (bulk writes non ordonnés, taille et concurrence réglées par easypay.batch), les totaux de /stats restent justes.
+ * <p>
+ * Lancement : java -jar easy-pay-api.jar --spring.profiles.active=generator --easypay.generator.count=5000000
+ * [--easypay.generator.seed=7 --easypay.generator.clean=true ...], réglages dans DataGeneratorProperties.
+ */
+@Component
+@Profile("generator")
+@Log4j2
+public class TransactionDataGenerator implements ApplicationRunner {
+
+    private final TransactionService transactionService;
+    private final TransactionRepository transactionRepository;
+    private final TransactionSummaryRepository transactionSummaryRepository;
+    private final DataGeneratorProperties properties;
+    private final ConfigurableApplicationContext applicationContext;
+
+    public TransactionDataGenerator(TransactionService transactionService,
+                                    TransactionRepository transactionRepository,
+                                    TransactionSummaryRepository transactionSummaryRepository,
+                                    DataGeneratorProperties properties,
+                                    ConfigurableApplicationContext applicationContext) {
+        this.transactionService = transactionService;
+        this.transactionRepository = transactionRepository;
+        this.transactionSummaryRepository = transactionSummaryRepository;
+        this.properties = properties;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Long inserted = generate().block();
+        if (properties.isExitOnCompletion()) {
+            int exitCode = inserted != null && inserted == properties.getCount() ? 0 : 1;
+            System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+        }
+    }
+
+    // renvoie le nombre de transactions insérées ; les doublons d'id sont comptés en échec, pas en erreur
+    public Mono<Long> generate() {
+        Mono<Void> cleanup = properties.isClean()
+                ? transactionRepository.deleteAll().then(transactionSummaryRepository.deleteAll())
+                : Mono.empty();
+        AtomicLong inserted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            log.info("Generating {} transaction(s) with seed={}", properties.getCount(), properties.getSeed());
+            return cleanup
+                    .thenMany(transactionService.createTransactions(transactions()))
+                    .doOnNext(result -> {
+                        (result.isSuccess() ? inserted : failed).incrementAndGet();
+                        long written = inserted.get() + failed.get();
+                        if (written % properties.getProgressInterval() == 0) {
+                            log.info("Generated {}/{} transaction(s), {}/s", written, properties.getCount(),
+                                    rate(written, start));
+                        }
+                    })
+                    .then(Mono.fromSupplier(inserted::get))
+                    .doOnSuccess(count -> log.info("Generation completed in {}: {} inserted, {} failed, {}/s",
+                            Duration.ofNanos(System.nanoTime() - start), count, failed.get(), rate(count, start)));
+        });
+    }
+
+    // un seul tirage séquentiel par index : l'ordre des documents ne dépend pas de l'écriture
+    Flux<Transaction> transactions() {
+        return Flux.defer(() -> {
+            SplittableRandom random = new SplittableRandom(properties.getSeed());
+            WeightedChoice<Integer> orderLineCounts = new WeightedChoice<>(properties.getOrderLineWeights());
+            WeightedChoice<Status> statuses = new WeightedChoice<>(properties.getStatusWeights());
+            WeightedChoice<PaymentType> paymentTypes = new WeightedChoice<>(properties.getPaymentTypeWeights());
+
+            return Flux.<Transaction, Long>generate(() -> 0L, (index, sink) -> {
+                if (index >= properties.getCount()) {
+                    sink.complete();
+                    return index;
+                }
+                List<OrderLine> orderLines = orderLines(random, orderLineCounts.next(random));
+                sink.next(Transaction.builder()
+                        .id(properties.getIdPrefix() + index)
+                        .status(statuses.next(random))
+                        .paymentType(paymentTypes.next(random))
+                        .amount(orderLines.stream()
+                                .map(line -> line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())))
+                                .reduce(BigDecimal.ZERO, BigDecimal::add))
+                        .orderLines(orderLines)
+                        .build());
+                return index + 1;
+            });
+        });
+    }
+
+    private static List<OrderLine> orderLines(SplittableRandom random, int count) {
+        List<OrderLine> orderLines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int product = random.nextInt(10_000);
+            orderLines.add(OrderLine.builder()
+                    .id("OL-" + i)
+                    .productName("Product-" + product)
+                    .quantity(1 + random.nextInt(5))
+                    // 1.00 à 999.99, deux décimales comme un prix saisi
+                    .price(BigDecimal.valueOf(random.nextLong(100, 100_000), 2))
+                    .build());
+        }
+        return orderLines;
+    }
+
+    private static long rate(long count, long startNanos) {
+        long elapsedMillis = Math.max(1, Duration.ofNanos(System.nanoTime() - startNanos).toMillis());
+        return count * 1000 / elapsedMillis;
+    }
+
+    // tirage pondéré ; clés triées pour que le résultat ne dépende pas de l'ordre de la configuration
+    static final class WeightedChoice<T extends Comparable<T>> {
+
+        private final List<T> values = new ArrayList<>();
+        private final long[] cumulativeWeights;
+
+        WeightedChoice(Map<T, Integer> weights) {
+            List<Map.Entry<T, Integer>> entries = weights.entrySet().stream()
+                    .filter(entry -> entry.getValue() != null && entry.getValue() > 0)
+                    .sorted(Map.Entry.comparingByKey())
+                    .toList();
+            if (entries.isEmpty()) {
+                throw new IllegalArgumentException("At least one positive weight is required: " + weights);
+            }
+            cumulativeWeights = new long[entries.size()];
+            long total = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                total += entries.get(i).getValue();
+                cumulativeWeights[i] = total;
+                values.add(entries.get(i).getKey());
+            }
+        }
+
+        T next(SplittableRandom random) {
+            long draw = random.nextLong(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (draw < cumulativeWeights[i]) {
+                    return values.get(i);
+                }
+            }
+            return values.get(values.size() - 1);
+        }
+    }
+}
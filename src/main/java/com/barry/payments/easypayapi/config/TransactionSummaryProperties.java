@@ -0,0 +1,24 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Réglages de la reconstruction périodique des totaux pré-agrégés (collection transactionSummary).
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.summary.rebuild")
+public class TransactionSummaryProperties {
+
+    private boolean enabled = true;
+    // délai entre la fin d'une vérification et le début de la suivante
+    private Duration interval = Duration.ofMinutes(10);
+    // première vérification après le démarrage (crée les totaux s'ils n'existent pas encore)
+    private Duration initialDelay = Duration.ofSeconds(10);
+    // durée maximale d'une vérification
+    private Duration timeout = Duration.ofMinutes(5);
+    // au-delà, une écriture encore marquée en cours (summaryTracking) est considérée comme abandonnée
+    private Duration inFlightTimeout = Duration.ofMinutes(1);
+}
@@ -0,0 +1,21 @@
+package com.barry.payments.easypayapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Politique de relance des mises à jour en conflit de version (OptimisticLockingFailureException).
+ */
+@Data
+@ConfigurationProperties(prefix = "easypay.update.retry")
+public class UpdateRetryProperties {
+
+    // nombre de relances après la première tentative
+    private int maxAttempts = 3;
+    private Duration minBackoff = Duration.ofMillis(20);
+    private Duration maxBackoff = Duration.ofMillis(200);
+    // part aléatoire du délai (0 à 1) pour désynchroniser les clients concurrents
+    private double jitter = 0.5;
+}
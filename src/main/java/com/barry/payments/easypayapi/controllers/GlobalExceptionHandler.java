@@ -3,8 +3,18 @@ package com.barry.payments.easypayapi.controllers;
 
 import com.barry.payments.easypayapi.exceptions.CannotModifyCapturedTransactionException;
 import com.barry.payments.easypayapi.exceptions.CapturedNotAllowException;
+import com.barry.payments.easypayapi.exceptions.IdempotencyKeyReusedException;
+import com.barry.payments.easypayapi.exceptions.IdempotentRequestInProgressException;
+import com.barry.payments.easypayapi.exceptions.InvalidCursorException;
+import com.barry.payments.easypayapi.exceptions.InvalidFieldsException;
+import com.barry.payments.easypayapi.exceptions.InvalidIdsException;
+import com.barry.payments.easypayapi.exceptions.InvalidPaginationBoundsException;
 import com.barry.payments.easypayapi.exceptions.InvalidPaginationParameterException;
+import com.barry.payments.easypayapi.exceptions.TooManyIdsException;
 import com.barry.payments.easypayapi.exceptions.TransactionNotFoundException;
+import com.barry.payments.easypayapi.exceptions.TransactionVersionMismatchException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -20,7 +30,9 @@ public class GlobalExceptionHandler {
     }
 
 
-    @ExceptionHandler({CannotModifyCapturedTransactionException.class, CapturedNotAllowException.class})
+    @ExceptionHandler({CannotModifyCapturedTransactionException.class, CapturedNotAllowException.class,
+            OptimisticLockingFailureException.class, DuplicateKeyException.class,
+            IdempotentRequestInProgressException.class})
     public ResponseEntity<String> handlerBusinessConflict(RuntimeException ex) {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
     }
@@ -32,4 +44,40 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> invalidPaginationParameterHandler(InvalidPaginationParameterException ex) {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED.value()).body(ex.getMessage());
     }
+
+    // plus spécifique que InvalidPaginationParameterException : c'est ce handler qui répond
+    @ExceptionHandler(InvalidPaginationBoundsException.class)
+    public ResponseEntity<String> invalidPaginationBoundsHandler(InvalidPaginationBoundsException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(TransactionVersionMismatchException.class)
+    public ResponseEntity<String> versionMismatchHandler(TransactionVersionMismatchException ex) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> invalidCursorHandler(InvalidCursorException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<String> idempotencyKeyReusedHandler(IdempotencyKeyReusedException ex) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ResponseEntity<String> invalidFieldsHandler(InvalidFieldsException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(TooManyIdsException.class)
+    public ResponseEntity<String> tooManyIdsHandler(TooManyIdsException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidIdsException.class)
+    public ResponseEntity<String> invalidIdsHandler(InvalidIdsException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
 }
@@ -1,32 +1,124 @@
 package com.barry.payments.easypayapi.controllers;
 
 
+import com.barry.payments.easypayapi.codecs.BinaryMediaTypes;
+import com.barry.payments.easypayapi.dtos.BatchItemResultDTO;
+import com.barry.payments.easypayapi.dtos.OrderLineDTO;
 import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.barry.payments.easypayapi.dtos.TransactionLookupResultDTO;
+import com.barry.payments.easypayapi.dtos.TransactionPageDTO;
+import com.barry.payments.easypayapi.dtos.TransactionStatsDTO;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
+// fields= (optionnel, ex. fields=id,status,amount) : seuls ces champs sont lus dans MongoDB et renvoyés
+// corps en JSON, ou en CBOR / Smile pour les services internes (Accept et Content-Type), listes comprises
 @RequestMapping("api/v1/transactions")
 public interface TransactionController {
 
+    String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+
+    // application/json renvoie un tableau, NDJSON diffuse chaque transaction dès sa lecture ;
+    // les transactions sont écrites par TransactionJsonEncoder, sans copie en TransactionDTO
+    // (cbor-seq et stream+x-jackson-smile : équivalents binaires de NDJSON)
+    @GetMapping(value = "/withoutPagination", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            BinaryMediaTypes.APPLICATION_CBOR_VALUE, BinaryMediaTypes.APPLICATION_CBOR_SEQ_VALUE,
+            BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_STREAM_SMILE_VALUE})
+    Flux<Transaction> getAllTransactions(
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) PaymentType paymentType,
+            @RequestParam(required = false) String fields
+    );
 
-    @GetMapping("/withoutPagination")
-    Flux<TransactionDTO> getAllTransactions();
+    // SSE : mêmes transactions, un événement par transaction (sérialisation Jackson du DTO)
+    @GetMapping(value = "/withoutPagination", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Flux<TransactionDTO> streamAllTransactions(
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) PaymentType paymentType,
+            @RequestParam(required = false) String fields
+    );
 
     @GetMapping
     Flux<TransactionDTO> getPaginatedTransactions(
             @RequestParam(defaultValue = "O") int page,
-            @RequestParam(defaultValue = "5") int size
+            @RequestParam(defaultValue = "5") int size,
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) PaymentType paymentType,
+            @RequestParam(required = false) String fields
+    );
+
+    @GetMapping("/cursor")
+    Mono<TransactionPageDTO> getTransactionsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) PaymentType paymentType,
+            @RequestParam(required = false) String fields
+    );
+
+    // nombre, total, min, max et moyenne des montants par status et paymentType
+    // lus dans les totaux pré-agrégés, ou recalculés sur la collection avec exact=true
+    @GetMapping("/stats")
+    Flux<TransactionStatsDTO> getTransactionStats(
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) PaymentType paymentType,
+            @RequestParam(defaultValue = "false") boolean exact
     );
 
 
+    // la version de la transaction est renvoyée dans l'en-tête ETag
     @GetMapping("/{id}")
-    Mono<TransactionDTO> getTransactionById(@PathVariable String id);
+    Mono<ResponseEntity<TransactionDTO>> getTransactionById(
+            @PathVariable String id,
+            @RequestParam(required = false) String fields);
 
+    // fenêtre [offset, offset + limit) des lignes de commande, lue par $slice sans le reste de la transaction ;
+    // GET /{id}?fields=id,amount,paymentType,status lit la transaction sans ses lignes
+    @GetMapping(value = "/{id}/orderLines", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            BinaryMediaTypes.APPLICATION_CBOR_VALUE, BinaryMediaTypes.APPLICATION_CBOR_SEQ_VALUE,
+            BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_STREAM_SMILE_VALUE})
+    Flux<OrderLineDTO> getOrderLines(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "100") int limit);
+
+    // corps : tableau JSON d'ids ; un résultat par id dans le même ordre, found=false pour les ids inconnus
+    @PostMapping(value = "/lookup", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            BinaryMediaTypes.APPLICATION_CBOR_VALUE, BinaryMediaTypes.APPLICATION_CBOR_SEQ_VALUE,
+            BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_STREAM_SMILE_VALUE})
+    Flux<TransactionLookupResultDTO> lookupTransactions(@RequestBody List<String> ids);
+
+    // Idempotency-Key (optionnel) : une requête rejouée avec la même clé renvoie la réponse de la première
     @PostMapping
-    Mono<TransactionDTO> createTransaction(@RequestBody TransactionDTO transactionDto);
+    Mono<ResponseEntity<TransactionDTO>> createTransaction(
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestBody TransactionDTO transactionDto);
+
+    // accepte un tableau JSON ou un flux NDJSON (ou leurs équivalents CBOR / Smile), renvoie un résultat par transaction
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    BinaryMediaTypes.APPLICATION_CBOR_VALUE, BinaryMediaTypes.APPLICATION_CBOR_SEQ_VALUE,
+                    BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_STREAM_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    BinaryMediaTypes.APPLICATION_CBOR_VALUE, BinaryMediaTypes.APPLICATION_CBOR_SEQ_VALUE,
+                    BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_STREAM_SMILE_VALUE})
+    Flux<BatchItemResultDTO> createTransactions(@RequestBody Flux<TransactionDTO> transactionDtos);
 
 
+    // If-Match (optionnel) : la mise à jour n'est appliquée que si la version courante correspond à l'ETag
     @PutMapping("/{id}")
-    Mono<TransactionDTO> updateTransaction(@PathVariable String id, @RequestBody TransactionDTO transactionDto);
+    Mono<ResponseEntity<TransactionDTO>> updateTransaction(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody TransactionDTO transactionDto);
 }
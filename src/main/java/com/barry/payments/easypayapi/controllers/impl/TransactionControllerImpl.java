@@ -1,65 +1,233 @@
 package com.barry.payments.easypayapi.controllers.impl;
 
+import com.barry.payments.easypayapi.config.EventLoggingProperties;
+import com.barry.payments.easypayapi.config.SuccessEventLogger;
 import com.barry.payments.easypayapi.controllers.TransactionController;
+import com.barry.payments.easypayapi.dtos.BatchItemResultDTO;
+import com.barry.payments.easypayapi.dtos.OrderLineDTO;
 import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.barry.payments.easypayapi.dtos.TransactionLookupResultDTO;
+import com.barry.payments.easypayapi.dtos.TransactionPageDTO;
+import com.barry.payments.easypayapi.dtos.TransactionStatsDTO;
+import com.barry.payments.easypayapi.exceptions.TransactionVersionMismatchException;
+import com.barry.payments.easypayapi.mappers.OrderLineMapper;
 import com.barry.payments.easypayapi.mappers.TransactionMapper;
 import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFields;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
 import com.barry.payments.easypayapi.services.TransactionService;
-import lombok.extern.log4j.Log4j2;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
-@Log4j2
 public class TransactionControllerImpl implements TransactionController {
 
     private final TransactionService transactionService;
     private final TransactionMapper transactionMapper;
+    private final OrderLineMapper orderLineMapper;
+    private final SuccessEventLogger requestLog;
 
     public TransactionControllerImpl(TransactionService transactionService,
-                                     TransactionMapper transactionMapper) {
+                                     TransactionMapper transactionMapper,
+                                     OrderLineMapper orderLineMapper,
+                                     EventLoggingProperties eventLoggingProperties) {
         this.transactionService = transactionService;
         this.transactionMapper = transactionMapper;
+        this.orderLineMapper = orderLineMapper;
+        this.requestLog = new SuccessEventLogger(TransactionControllerImpl.class, eventLoggingProperties);
+    }
+
+    @Override
+    public Flux<Transaction> getAllTransactions(Status status, PaymentType paymentType, String fields) {
+        requestLog.event("getAllTransactions", "GET /api/v1/transactions/withoutPagination")
+                .addKeyValue("status", status)
+                .addKeyValue("paymentType", paymentType)
+                .addKeyValue("fields", fields)
+                .log();
+        TransactionFields projection = TransactionFields.parse(fields);
+        return transactionService.getAllTransactions(filterOf(status, paymentType, projection))
+                .map(projection::retain);
     }
 
     @Override
-    public Flux<TransactionDTO> getAllTransactions() {
-        log.info("GET /api/v1/transactions/withoutPagination");
-        return transactionService.getAllTransactions()
-                .map(transactionMapper::transactionToTransactionDto);
+    public Flux<TransactionDTO> streamAllTransactions(Status status, PaymentType paymentType, String fields) {
+        requestLog.event("getAllTransactions", "GET /api/v1/transactions/withoutPagination (SSE)")
+                .addKeyValue("status", status)
+                .addKeyValue("paymentType", paymentType)
+                .addKeyValue("fields", fields)
+                .log();
+        TransactionFields projection = TransactionFields.parse(fields);
+        return transactionService.getAllTransactions(filterOf(status, paymentType, projection))
+                .map(transaction -> toDto(transaction, projection));
     }
 
     @Override
     public Flux<TransactionDTO> getPaginatedTransactions(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        log.info("GET /api/v1/transactions?page={}&size={}", page, size);
-        return transactionService.getAllTransactionsPagination(page,size)
-                .map(transactionMapper::transactionToTransactionDto);
+            @RequestParam(defaultValue = "10") int size,
+            Status status,
+            PaymentType paymentType,
+            String fields) {
+        requestLog.event("getAllTransactionsPagination", "GET /api/v1/transactions")
+                .addKeyValue("page", page)
+                .addKeyValue("size", size)
+                .addKeyValue("status", status)
+                .addKeyValue("paymentType", paymentType)
+                .addKeyValue("fields", fields)
+                .log();
+        TransactionFields projection = TransactionFields.parse(fields);
+        return transactionService.getAllTransactionsPagination(filterOf(status, paymentType, projection), page, size)
+                .map(transaction -> toDto(transaction, projection));
     }
 
     @Override
-    public Mono<TransactionDTO> getTransactionById(String id) {
-        log.info("GET /api/v1/transactions/{}", id);
-        return transactionService.getTransactionById(id)
-                .map(transactionMapper::transactionToTransactionDto);
+    public Mono<TransactionPageDTO> getTransactionsByCursor(String cursor, int size,
+                                                            Status status, PaymentType paymentType,
+                                                            String fields) {
+        requestLog.event("getTransactionsByCursor", "GET /api/v1/transactions/cursor")
+                .addKeyValue("size", size)
+                .addKeyValue("status", status)
+                .addKeyValue("paymentType", paymentType)
+                .addKeyValue("fields", fields)
+                .log();
+        TransactionFields projection = TransactionFields.parse(fields);
+        return transactionService.getTransactionsByCursor(filterOf(status, paymentType, projection), cursor, size)
+                .map(page -> projection.isAll()
+                        ? transactionMapper.transactionPageToTransactionPageDto(page)
+                        : transactionMapper.transactionPageToTransactionPageDto(page, projection));
     }
 
     @Override
-    public Mono<TransactionDTO> createTransaction(TransactionDTO transactionDto) {
-        log.info("POST /api/v1/transactions");
+    public Flux<TransactionStatsDTO> getTransactionStats(Status status, PaymentType paymentType, boolean exact) {
+        requestLog.event(exact ? "computeTransactionStats" : "getTransactionStats", "GET /api/v1/transactions/stats")
+                .addKeyValue("status", status)
+                .addKeyValue("paymentType", paymentType)
+                .addKeyValue("exact", exact)
+                .log();
+        TransactionFilter filter = new TransactionFilter(status, paymentType);
+        Flux<TransactionStats> stats = exact
+                ? transactionService.computeTransactionStats(filter)
+                : transactionService.getTransactionStats(filter);
+        return stats.map(transactionMapper::transactionStatsToTransactionStatsDto);
+    }
+
+    @Override
+    public Mono<ResponseEntity<TransactionDTO>> getTransactionById(String id, String fields) {
+        requestLog.event("getTransactionById", "GET /api/v1/transactions/{id}")
+                .addKeyValue("id", id)
+                .addKeyValue("fields", fields)
+                .log();
+        TransactionFields projection = TransactionFields.parse(fields);
+        if (projection.isAll()) {
+            return transactionService.getTransactionById(id)
+                    .map(this::withETag);
+        }
+        return transactionService.getTransactionById(id, projection)
+                .map(transaction -> withETag(transaction, projection));
+    }
+
+    @Override
+    public Flux<OrderLineDTO> getOrderLines(String id, int offset, int limit) {
+        requestLog.event("getOrderLines", "GET /api/v1/transactions/{id}/orderLines")
+                .addKeyValue("id", id)
+                .addKeyValue("offset", offset)
+                .addKeyValue("limit", limit)
+                .log();
+        return transactionService.getOrderLines(id, offset, limit)
+                .map(orderLineMapper::orderLineToOrderLineDto);
+    }
+
+    @Override
+    public Flux<TransactionLookupResultDTO> lookupTransactions(List<String> ids) {
+        requestLog.event("getTransactionsByIds", "POST /api/v1/transactions/lookup")
+                .addKeyValue("ids", ids.size())
+                .log();
+        return transactionService.getTransactionsByIds(ids)
+                .map(transactionMapper::transactionLookupResultToTransactionLookupResultDto);
+    }
+
+    @Override
+    public Mono<ResponseEntity<TransactionDTO>> createTransaction(String idempotencyKey, TransactionDTO transactionDto) {
+        requestLog.event("createTransaction", "POST /api/v1/transactions")
+                .addKeyValue("idempotencyKey", idempotencyKey)
+                .log();
         Transaction transaction = transactionMapper.transactionDtoToTransaction(transactionDto);
-        return transactionService.createTransaction(transaction)
-                .map(transactionMapper::transactionToTransactionDto);
+        Mono<Transaction> created = idempotencyKey == null
+                ? transactionService.createTransaction(transaction)
+                : transactionService.createTransaction(transaction, idempotencyKey);
+        return created.map(this::withETag);
+    }
+
+    @Override
+    public Flux<BatchItemResultDTO> createTransactions(Flux<TransactionDTO> transactionDtos) {
+        requestLog.event("createTransactions", "POST /api/v1/transactions/batch").log();
+        return transactionService.createTransactions(transactionDtos.map(transactionMapper::transactionDtoToTransaction))
+                .map(transactionMapper::batchItemResultToBatchItemResultDto);
     }
 
     @Override
-    public Mono<TransactionDTO> updateTransaction(String id, TransactionDTO transactionDto) {
-        log.info("PUT /api/v1/transactions/{}", id);
+    public Mono<ResponseEntity<TransactionDTO>> updateTransaction(String id, String ifMatch, TransactionDTO transactionDto) {
+        requestLog.event("updateTransaction", "PUT /api/v1/transactions/{id}")
+                .addKeyValue("id", id)
+                .log();
         Transaction transaction = transactionMapper.transactionDtoToTransaction(transactionDto);
+        if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+            Long expectedVersion = parseVersion(ifMatch);
+            if (expectedVersion == null) {
+                return Mono.error(new TransactionVersionMismatchException("Invalid If-Match header: " + ifMatch));
+            }
+            transaction.setVersion(expectedVersion);
+        }
         return transactionService.updateTransaction(id,transaction)
-                .map(transactionMapper::transactionToTransactionDto);
+                .map(this::withETag);
+    }
+
+    private ResponseEntity<TransactionDTO> withETag(Transaction transaction) {
+        return withETag(transaction, TransactionFields.ALL);
+    }
+
+    private ResponseEntity<TransactionDTO> withETag(Transaction transaction, TransactionFields fields) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (transaction.getVersion() != null) {
+            response.eTag(String.valueOf(transaction.getVersion()));
+        }
+        return response.body(toDto(transaction, fields));
+    }
+
+    // sans fields= : mapping complet ; avec fields= : seuls les champs demandés sont copiés
+    private TransactionDTO toDto(Transaction transaction, TransactionFields fields) {
+        return fields.isAll()
+                ? transactionMapper.transactionToTransactionDto(transaction)
+                : transactionMapper.transactionToTransactionDto(transaction, fields);
+    }
+
+    private static TransactionFilter filterOf(Status status, PaymentType paymentType, TransactionFields fields) {
+        return TransactionFilter.builder()
+                .status(status)
+                .paymentType(paymentType)
+                .fields(fields)
+                .build();
+    }
+
+    // accepte "3", "\"3\"" ou "W/\"3\""
+    private static Long parseVersion(String eTag) {
+        String value = eTag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        value = value.replace("\"", "");
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 }
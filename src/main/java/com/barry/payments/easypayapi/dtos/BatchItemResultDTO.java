@@ -0,0 +1,14 @@
+package com.barry.payments.easypayapi.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BatchItemResultDTO {
+
+    private long index;
+    private String id;
+    private boolean success;
+    private String error;
+}
@@ -2,12 +2,15 @@ package com.barry.payments.easypayapi.dtos;
 
 import com.barry.payments.easypayapi.models.enums.PaymentType;
 import com.barry.payments.easypayapi.models.enums.Status;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 
 import java.math.BigDecimal;
 import java.util.List;
 
+// champs null omis : une réponse fields=id,status ne contient que id et status
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
 @Builder
 public class TransactionDTO {
@@ -0,0 +1,13 @@
+package com.barry.payments.easypayapi.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TransactionLookupResultDTO {
+
+    private String id;
+    private boolean found;
+    private TransactionDTO transaction;
+}
@@ -0,0 +1,14 @@
+package com.barry.payments.easypayapi.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class TransactionPageDTO {
+
+    private List<TransactionDTO> transactions;
+    private String nextCursor;
+}
@@ -0,0 +1,21 @@
+package com.barry.payments.easypayapi.dtos;
+
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+public class TransactionStatsDTO {
+
+    private Status status;
+    private PaymentType paymentType;
+    private long count;
+    private BigDecimal totalAmount;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private BigDecimal averageAmount;
+}
@@ -0,0 +1,8 @@
+package com.barry.payments.easypayapi.exceptions;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Idempotency-Key " + idempotencyKey + " was already used with a different request");
+    }
+}
@@ -0,0 +1,8 @@
+package com.barry.payments.easypayapi.exceptions;
+
+public class IdempotentRequestInProgressException extends RuntimeException {
+
+    public IdempotentRequestInProgressException(String idempotencyKey) {
+        super("A request with Idempotency-Key " + idempotencyKey + " is still in progress, please retry");
+    }
+}
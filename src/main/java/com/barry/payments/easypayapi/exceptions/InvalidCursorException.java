@@ -0,0 +1,8 @@
+package com.barry.payments.easypayapi.exceptions;
+
+public class InvalidCursorException extends RuntimeException{
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid pagination cursor: "+cursor);
+    }
+}
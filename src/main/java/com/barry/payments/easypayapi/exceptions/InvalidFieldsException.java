@@ -0,0 +1,8 @@
+package com.barry.payments.easypayapi.exceptions;
+
+public class InvalidFieldsException extends RuntimeException {
+
+    public InvalidFieldsException(String fields) {
+        super("Invalid fields parameter: " + fields + " (allowed: id, amount, paymentType, status, orderLines)");
+    }
+}
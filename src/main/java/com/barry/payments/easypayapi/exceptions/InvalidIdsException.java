@@ -0,0 +1,8 @@
+package com.barry.payments.easypayapi.exceptions;
+
+public class InvalidIdsException extends RuntimeException {
+
+    public InvalidIdsException() {
+        super("Invalid ids: null or blank ids are not allowed");
+    }
+}
@@ -0,0 +1,23 @@
+package com.barry.payments.easypayapi.exceptions;
+
+/**
+ * Fenêtre de pagination hors bornes (taille au-delà du maximum, offset / limit des lignes de commande) : 400,
+ * contrairement au 401 historique de InvalidPaginationParameterException.
+ */
+public class InvalidPaginationBoundsException extends InvalidPaginationParameterException {
+
+    public InvalidPaginationBoundsException(int offset, int limit, int maxLimit) {
+        super("Invalid pagination parameters: offset= "+offset+", limit= "+limit+
+                " : { Offset must be >= 0 and limit must be between 1 and "+maxLimit+" }");
+    }
+
+    private InvalidPaginationBoundsException(String message) {
+        super(message);
+    }
+
+    // taille de page au-delà de easypay.pagination.max-size
+    public static InvalidPaginationBoundsException sizeTooLarge(int page, int size, int maxSize) {
+        return new InvalidPaginationBoundsException("Invalid pagination parameters: page= "+page+", size= "+size+
+                " : { Size must be between 1 and "+maxSize+" }");
+    }
+}
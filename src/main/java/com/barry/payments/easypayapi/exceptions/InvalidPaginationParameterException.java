@@ -10,4 +10,9 @@ public class InvalidPaginationParameterException extends RuntimeException{
                 " : { Page must be >= 0 and/Or size must be > 0 }");
         log.error("Invalid pagination parameters: page= {}, size= {}", page, size);
     }
+
+    protected InvalidPaginationParameterException(String message) {
+        super(message);
+        log.error(message);
+    }
 }
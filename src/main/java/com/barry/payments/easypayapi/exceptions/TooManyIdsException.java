@@ -0,0 +1,8 @@
+package com.barry.payments.easypayapi.exceptions;
+
+public class TooManyIdsException extends RuntimeException {
+
+    public TooManyIdsException(int requested, int maxIds) {
+        super("Too many ids: " + requested + " requested, at most " + maxIds + " allowed");
+    }
+}
@@ -0,0 +1,12 @@
+package com.barry.payments.easypayapi.exceptions;
+
+public class TransactionVersionMismatchException extends RuntimeException{
+
+    public TransactionVersionMismatchException(String id, Long expectedVersion, Long currentVersion) {
+        super("Transaction "+id+" has version "+currentVersion+", expected "+expectedVersion);
+    }
+
+    public TransactionVersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,97 @@
+package com.barry.payments.easypayapi.filters;
+
+import com.barry.payments.easypayapi.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Nombre de requêtes simultanées admises, ajusté en AIMD sur les réponses observées :
+ * <ul>
+ *     <li>réponse sous le seuil de latence alors que la moitié de la limite au moins est occupée : limite + 1 ;</li>
+ *     <li>réponse au-delà du seuil, ou signe de saturation (timeout, MongoDB injoignable) : limite × backoffRatio,
+ *     une seule fois par vague : une requête partie avant la dernière baisse a été admise sous l'ancienne limite
+ *     et ne la baisse pas à nouveau.</li>
+ * </ul>
+ * Quand MongoDB ralentit, la limite baisse et l'excédent est refusé tout de suite au lieu d'attendre dans la
+ * file du pool de connexions.
+ */
+class AimdConcurrencyLimit {
+
+    static final String LIMIT_GAUGE = "transactions.concurrency.limit";
+    static final String IN_FLIGHT_GAUGE = "transactions.concurrency.in.flight";
+    static final String REJECTED_COUNTER = "transactions.concurrency.rejected";
+
+    private final ConcurrencyLimitProperties.Limit settings;
+    private final long latencyThresholdNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+    private double limit;
+    // System.nanoTime() de la dernière baisse
+    private long lastDecreaseNanos;
+
+    AimdConcurrencyLimit(String type, ConcurrencyLimitProperties.Limit settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.latencyThresholdNanos = settings.getLatencyThreshold().toNanos();
+        this.limit = Math.max(settings.getMinLimit(), Math.min(settings.getMaxLimit(), settings.getInitialLimit()));
+        this.lastDecreaseNanos = System.nanoTime();
+        Gauge.builder(LIMIT_GAUGE, this, AimdConcurrencyLimit::getLimit)
+                .description("Current adaptive limit of concurrent API requests")
+                .tag("type", type)
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_GAUGE, inFlight, AtomicInteger::get)
+                .description("API requests currently admitted by the concurrency limiter")
+                .tag("type", type)
+                .register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED_COUNTER)
+                .description("API requests rejected with 503 because the concurrency limit was reached")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    boolean tryAcquire() {
+        int limitNow = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limitNow) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // requête annulée par le client : la place est rendue sans ajuster la limite
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    // startNanos : System.nanoTime() à l'admission de la requête
+    void release(long startNanos, long latencyNanos, boolean overloaded) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (overloaded || latencyNanos > latencyThresholdNanos) {
+                // ⬅️ toutes les requêtes d'une vague lente se terminent ensemble : une seule baisse pour la vague
+                if (startNanos - lastDecreaseNanos >= 0) {
+                    limit = Math.max(settings.getMinLimit(), limit * settings.getBackoffRatio());
+                    lastDecreaseNanos = System.nanoTime();
+                }
+            } else if (inFlightBefore * 2 >= limit) {
+                // une limite peu utilisée ne grandit pas : elle ne dit rien de la capacité réelle
+                limit = Math.min(settings.getMaxLimit(), limit + 1);
+            }
+        }
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
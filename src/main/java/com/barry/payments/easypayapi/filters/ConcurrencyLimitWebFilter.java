@@ -0,0 +1,117 @@
+package com.barry.payments.easypayapi.filters;
+
+import com.barry.payments.easypayapi.config.ConcurrencyLimitProperties;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Limite de concurrence adaptative devant l'API, avant tout appel à MongoDB : une limite pour les lectures
+ * (GET, HEAD, POST /lookup), une pour les écritures. Au-delà, réponse 503 immédiate avec Retry-After.
+ * <p>
+ * La latence prise en compte s'arrête à l'envoi des en-têtes de la réponse : sur une liste diffusée, c'est
+ * l'attente du premier document, pas la durée de lecture du flux par le client. Une erreur ne baisse la limite que
+ * si elle signale une saturation (timeout, MongoDB injoignable, 503/504) : un bug applicatif en 500 ne dit rien de
+ * la capacité.
+ */
+@Component
+@Log4j2
+public class ConcurrencyLimitWebFilter implements WebFilter {
+
+    static final String API_PATH = "/api/";
+    private static final String LOOKUP_PATH_SUFFIX = "/lookup";
+
+    private final ConcurrencyLimitProperties properties;
+    private final AimdConcurrencyLimit readLimit;
+    private final AimdConcurrencyLimit writeLimit;
+
+    public ConcurrencyLimitWebFilter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.readLimit = new AimdConcurrencyLimit("read", properties.getRead(), meterRegistry);
+        this.writeLimit = new AimdConcurrencyLimit("write", properties.getWrite(), meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || !request.getPath().value().startsWith(API_PATH)) {
+            return chain.filter(exchange);
+        }
+        boolean read = isRead(request);
+        AimdConcurrencyLimit limit = read ? readLimit : writeLimit;
+        if (!limit.tryAcquire()) {
+            log.debug("{} {} rejected: {} limit of {} concurrent requests reached",
+                    request.getMethod(), request.getPath(), read ? "read" : "write", limit.getLimit());
+            return reject(exchange.getResponse(), read);
+        }
+
+        long start = System.nanoTime();
+        AtomicLong latency = new AtomicLong(-1);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        exchange.getResponse().beforeCommit(() -> {
+            latency.compareAndSet(-1, System.nanoTime() - start);
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .doOnError(error::set)
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL) {
+                        limit.release();
+                        return;
+                    }
+                    latency.compareAndSet(-1, System.nanoTime() - start);
+                    limit.release(start, latency.get(), isOverload(error.get(), exchange.getResponse()));
+                });
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, boolean read) {
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, properties.getRetryAfter().toSeconds())));
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        DataBuffer body = response.bufferFactory().wrap(("Too many concurrent " + (read ? "read" : "write")
+                + " requests, retry later").getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(body));
+    }
+
+    static boolean isRead(ServerHttpRequest request) {
+        HttpMethod method = request.getMethod();
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)
+                || (HttpMethod.POST.equals(method) && request.getPath().value().endsWith(LOOKUP_PATH_SUFFIX));
+    }
+
+    static boolean isOverload(Throwable error, ServerHttpResponse response) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessResourceFailureException || cause instanceof QueryTimeoutException
+                    || cause instanceof MongoTimeoutException || cause instanceof MongoExecutionTimeoutException
+                    || cause instanceof MongoSocketException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        HttpStatusCode status = response.getStatusCode();
+        return status != null && (status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status.value() == HttpStatus.GATEWAY_TIMEOUT.value());
+    }
+}
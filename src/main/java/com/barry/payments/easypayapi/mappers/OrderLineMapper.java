@@ -1,9 +1,12 @@
 package com.barry.payments.easypayapi.mappers;
 
 
+import com.barry.payments.easypayapi.dtos.OrderLineDTO;
+import com.barry.payments.easypayapi.models.OrderLine;
 import org.mapstruct.Mapper;
 
 @Mapper(componentModel = "spring")
 public interface OrderLineMapper {
 
+    OrderLineDTO orderLineToOrderLineDto(OrderLine orderLine);
 }
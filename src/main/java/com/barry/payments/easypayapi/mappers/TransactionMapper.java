@@ -1,16 +1,72 @@
 package com.barry.payments.easypayapi.mappers;
 
 
+import com.barry.payments.easypayapi.dtos.BatchItemResultDTO;
 import com.barry.payments.easypayapi.dtos.OrderLineDTO;
 import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.barry.payments.easypayapi.dtos.TransactionLookupResultDTO;
+import com.barry.payments.easypayapi.dtos.TransactionPageDTO;
+import com.barry.payments.easypayapi.dtos.TransactionStatsDTO;
+import com.barry.payments.easypayapi.models.BatchItemResult;
+import com.barry.payments.easypayapi.models.OrderLine;
 import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFields;
+import com.barry.payments.easypayapi.models.TransactionLookupResult;
+import com.barry.payments.easypayapi.models.TransactionPage;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.models.enums.TransactionField;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
 
 @Mapper(componentModel = "spring", uses = {OrderLineDTO.class})
 public interface TransactionMapper {
 
+    // la version n'est pas portée par le corps mais par les en-têtes ETag / If-Match
+    @Mapping(target = "version", ignore = true)
+    // calculée à l'écriture, jamais fournie par le client
+    @Mapping(target = "orderFingerprint", ignore = true)
+    @Mapping(target = "summaryTracking", ignore = true)
     Transaction transactionDtoToTransaction(TransactionDTO transactionDto);
 
     TransactionDTO transactionToTransactionDto(Transaction transaction);
 
+    List<OrderLineDTO> orderLinesToOrderLineDtos(List<OrderLine> orderLines);
+
+    // chemin léger de fields= : les champs non demandés restent null (absents du JSON), sans copie des lignes
+    default TransactionDTO transactionToTransactionDto(Transaction transaction, TransactionFields fields) {
+        if (transaction == null) {
+            return null;
+        }
+        return TransactionDTO.builder()
+                .id(fields.includes(TransactionField.ID) ? transaction.getId() : null)
+                .amount(fields.includes(TransactionField.AMOUNT) ? transaction.getAmount() : null)
+                .paymentType(fields.includes(TransactionField.PAYMENT_TYPE) ? transaction.getPaymentType() : null)
+                .status(fields.includes(TransactionField.STATUS) ? transaction.getStatus() : null)
+                .orderLines(fields.includes(TransactionField.ORDER_LINES)
+                        ? orderLinesToOrderLineDtos(transaction.getOrderLines()) : null)
+                .build();
+    }
+
+    default TransactionPageDTO transactionPageToTransactionPageDto(TransactionPage transactionPage, TransactionFields fields) {
+        if (transactionPage == null) {
+            return null;
+        }
+        return TransactionPageDTO.builder()
+                .transactions(transactionPage.getTransactions().stream()
+                        .map(transaction -> transactionToTransactionDto(transaction, fields))
+                        .toList())
+                .nextCursor(transactionPage.getNextCursor())
+                .build();
+    }
+
+    TransactionPageDTO transactionPageToTransactionPageDto(TransactionPage transactionPage);
+
+    BatchItemResultDTO batchItemResultToBatchItemResultDto(BatchItemResult batchItemResult);
+
+    TransactionStatsDTO transactionStatsToTransactionStatsDto(TransactionStats transactionStats);
+
+    TransactionLookupResultDTO transactionLookupResultToTransactionLookupResultDto(TransactionLookupResult transactionLookupResult);
+
 }
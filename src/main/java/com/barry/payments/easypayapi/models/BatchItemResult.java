@@ -0,0 +1,17 @@
+package com.barry.payments.easypayapi.models;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@ToString
+public class BatchItemResult {
+
+    // position de la transaction dans le lot reçu
+    private long index;
+    private String id;
+    private boolean success;
+    private String error;
+}
@@ -0,0 +1,34 @@
+package com.barry.payments.easypayapi.models;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// réponse d'un POST rejouable par son en-tête Idempotency-Key, supprimée par l'index TTL sur createdAt
+@Document(collection = "idempotencyKeys")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@ToString
+public class IdempotencyRecord {
+
+    // valeur de l'en-tête Idempotency-Key
+    @Id
+    private String id;
+    // empreinte de la requête : une même clé envoyée avec un autre contenu est refusée
+    private String requestHash;
+    // null tant que la première requête est en cours
+    private Transaction transaction;
+    private Instant createdAt;
+    // instance qui exécute la création, et fin de sa réservation (prolongée tant qu'elle tourne) :
+    // passé ce délai, une requête en attente reprend la clé
+    private String reservedBy;
+    private Instant reservedUntil;
+
+    public boolean isCompleted() {
+        return transaction != null;
+    }
+}
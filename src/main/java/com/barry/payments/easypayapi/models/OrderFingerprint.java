@@ -0,0 +1,61 @@
+package com.barry.payments.easypayapi.models;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Empreinte canonique (SHA-256) des lignes de commande, stockée dans Transaction.orderFingerprint.
+ * Deux commandes identiques ont la même empreinte quelle que soit l'échelle des prix (50.0 et 50.00) :
+ * une mise à jour compare une chaîne au lieu de deux listes complètes.
+ */
+public final class OrderFingerprint {
+
+    // transaction sans lignes de commande (orderLines null) : toute commande est acceptée à la mise à jour
+    public static final String NO_ORDER_LINES = "none";
+
+    private OrderFingerprint() {
+    }
+
+    // empreinte stockée si elle est connue, calculée sinon
+    public static String of(Transaction transaction) {
+        return transaction.getOrderFingerprint() != null
+                ? transaction.getOrderFingerprint()
+                : of(transaction.getOrderLines());
+    }
+
+    public static String of(List<OrderLine> orderLines) {
+        if (orderLines == null) {
+            return NO_ORDER_LINES;
+        }
+        // chaque valeur est préfixée par sa longueur : aucune concaténation ambiguë entre champs ou lignes
+        StringBuilder canonical = new StringBuilder();
+        for (OrderLine orderLine : orderLines) {
+            append(canonical, orderLine.getId());
+            append(canonical, orderLine.getProductName());
+            append(canonical, orderLine.getQuantity() != null ? orderLine.getQuantity().toString() : null);
+            append(canonical, canonicalPrice(orderLine.getPrice()));
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String canonicalPrice(BigDecimal price) {
+        return price != null ? price.stripTrailingZeros().toPlainString() : null;
+    }
+
+    private static void append(StringBuilder canonical, String value) {
+        if (value == null) {
+            canonical.append("-1:");
+            return;
+        }
+        canonical.append(value.length()).append(':').append(value);
+    }
+}
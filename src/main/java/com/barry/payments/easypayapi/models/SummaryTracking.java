@@ -0,0 +1,37 @@
+package com.barry.payments.easypayapi.models;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// marqueur posé dans la même écriture que la transaction : ses variations de totaux (transactionSummary)
+// sont en cours d'application, TransactionSummaryRebuilder ne doit pas corriger ces groupes entre-temps
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@ToString
+public class SummaryTracking {
+
+    // groupes "STATUS:PAYMENT_TYPE" où les totaux ont pu compter la transaction : l'ancien groupe y est déjà
+    // quand une mise à jour ajoute le nouveau ($addToSet)
+    @Builder.Default
+    private List<String> groups = new ArrayList<>();
+    // écritures dont les variations ne sont pas encore appliquées aux totaux
+    private int writers;
+    // début de la dernière écriture, pour ignorer le marqueur d'une instance arrêtée en cours de route
+    private Instant since;
+    // false pour un document écrit sans ce marqueur : son ancien groupe est inconnu
+    private boolean tracked;
+
+    public static SummaryTracking created(Transaction transaction, Instant now) {
+        return SummaryTracking.builder()
+                .groups(new ArrayList<>(List.of(TransactionSummary.idOf(transaction.getStatus(), transaction.getPaymentType()))))
+                .writers(1)
+                .since(now)
+                .tracked(true)
+                .build();
+    }
+}
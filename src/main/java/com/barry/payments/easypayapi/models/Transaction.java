@@ -5,6 +5,9 @@ import com.barry.payments.easypayapi.models.enums.PaymentType;
 import com.barry.payments.easypayapi.models.enums.Status;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -15,6 +18,12 @@ import static com.barry.payments.easypayapi.models.enums.Status.NEW;
 
 
 @Document
+// filtres des endpoints de liste, _id en dernière clé pour servir aussi le tri et la pagination par curseur
+@CompoundIndexes({
+        @CompoundIndex(name = "status_id", def = "{'status': 1, '_id': 1}"),
+        @CompoundIndex(name = "paymentType_id", def = "{'paymentType': 1, '_id': 1}"),
+        @CompoundIndex(name = "status_paymentType_id", def = "{'status': 1, 'paymentType': 1, '_id': 1}")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -30,4 +39,11 @@ public class Transaction {
     private Status status = NEW;
     @Builder.Default
     private List<OrderLine> orderLines = new ArrayList<>();
+    // empreinte des lignes de commande (OrderFingerprint), recalculée à chaque écriture par OrderFingerprintCallback
+    private String orderFingerprint;
+    // variations de totaux en cours d'application, lues par TransactionSummaryRebuilder
+    private SummaryTracking summaryTracking;
+    // incrémentée à chaque mise à jour, exposée en ETag
+    @Version
+    private Long version;
 }
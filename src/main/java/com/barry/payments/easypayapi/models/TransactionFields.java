@@ -0,0 +1,70 @@
+package com.barry.payments.easypayapi.models;
+
+import com.barry.payments.easypayapi.exceptions.InvalidFieldsException;
+import com.barry.payments.easypayapi.models.enums.TransactionField;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+// champs demandés par fields=id,status,amount ; ALL quand le paramètre est absent
+@EqualsAndHashCode
+@ToString
+public final class TransactionFields {
+
+    public static final TransactionFields ALL = new TransactionFields(EnumSet.allOf(TransactionField.class));
+
+    private final Set<TransactionField> fields;
+
+    private TransactionFields(Set<TransactionField> fields) {
+        this.fields = Collections.unmodifiableSet(fields);
+    }
+
+    public static TransactionFields of(TransactionField first, TransactionField... others) {
+        return new TransactionFields(EnumSet.of(first, others));
+    }
+
+    public static TransactionFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        EnumSet<TransactionField> selected = EnumSet.noneOf(TransactionField.class);
+        for (String name : fields.split(",")) {
+            String property = name.trim();
+            selected.add(Arrays.stream(TransactionField.values())
+                    .filter(field -> field.getProperty().equals(property))
+                    .findFirst()
+                    .orElseThrow(() -> new InvalidFieldsException(fields)));
+        }
+        return new TransactionFields(selected);
+    }
+
+    public boolean includes(TransactionField field) {
+        return fields.contains(field);
+    }
+
+    public boolean isAll() {
+        return fields.size() == TransactionField.values().length;
+    }
+
+    // les champs non demandés passent à null (omis à l'écriture JSON) ; la version est conservée
+    public Transaction retain(Transaction transaction) {
+        if (isAll()) {
+            return transaction;
+        }
+        return transaction.toBuilder()
+                .id(includes(TransactionField.ID) ? transaction.getId() : null)
+                .amount(includes(TransactionField.AMOUNT) ? transaction.getAmount() : null)
+                .paymentType(includes(TransactionField.PAYMENT_TYPE) ? transaction.getPaymentType() : null)
+                .status(includes(TransactionField.STATUS) ? transaction.getStatus() : null)
+                .orderLines(includes(TransactionField.ORDER_LINES) ? transaction.getOrderLines() : null)
+                .build();
+    }
+
+    public Set<TransactionField> values() {
+        return fields;
+    }
+}
@@ -0,0 +1,24 @@
+package com.barry.payments.easypayapi.models;
+
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
+import lombok.*;
+
+// critères optionnels des endpoints de liste, combinables entre eux (null = pas de filtre),
+// et champs à lire dans MongoDB (projection)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class TransactionFilter {
+
+    private Status status;
+    private PaymentType paymentType;
+    @Builder.Default
+    private TransactionFields fields = TransactionFields.ALL;
+
+    public TransactionFilter(Status status, PaymentType paymentType) {
+        this(status, paymentType, TransactionFields.ALL);
+    }
+}
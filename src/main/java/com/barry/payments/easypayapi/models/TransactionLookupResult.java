@@ -0,0 +1,17 @@
+package com.barry.payments.easypayapi.models;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@ToString
+public class TransactionLookupResult {
+
+    // id demandé, dans l'ordre de la requête
+    private String id;
+    private boolean found;
+    // null si la transaction n'existe pas
+    private Transaction transaction;
+}
@@ -0,0 +1,19 @@
+package com.barry.payments.easypayapi.models;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class TransactionPage {
+
+    @Builder.Default
+    private List<Transaction> transactions = new ArrayList<>();
+    // null lorsque la dernière page est atteinte
+    private String nextCursor;
+}
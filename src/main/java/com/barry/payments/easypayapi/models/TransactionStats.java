@@ -0,0 +1,24 @@
+package com.barry.payments.easypayapi.models;
+
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+// résultat d'un $group sur (status, paymentType)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class TransactionStats {
+
+    private Status status;
+    private PaymentType paymentType;
+    private long count;
+    private BigDecimal totalAmount;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private BigDecimal averageAmount;
+}
@@ -0,0 +1,37 @@
+package com.barry.payments.easypayapi.models;
+
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+
+// totaux pré-agrégés d'un couple (status, paymentType), maintenus par $inc à chaque écriture
+@Document(collection = "transactionSummary")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@ToString
+public class TransactionSummary {
+
+    // "STATUS:PAYMENT_TYPE"
+    @Id
+    private String id;
+    private Status status;
+    private PaymentType paymentType;
+    private long count;
+    private BigDecimal totalAmount;
+    // $min / $max ne peuvent pas être décrémentés : bornes exactes après reconstruction,
+    // éventuellement plus larges entre deux reconstructions
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    // incrémentée à chaque écriture, sert de garde à la reconstruction
+    private long revision;
+
+    public static String idOf(Status status, PaymentType paymentType) {
+        return status + ":" + paymentType;
+    }
+}
@@ -0,0 +1,24 @@
+package com.barry.payments.easypayapi.models;
+
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+// variation à appliquer à un TransactionSummary ($inc sur count / totalAmount, $min / $max sur les bornes)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@ToString
+public class TransactionSummaryDelta {
+
+    private Status status;
+    private PaymentType paymentType;
+    private long count;
+    private BigDecimal amount;
+    // null si la variation ne fait entrer aucun montant dans le groupe
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+}
@@ -1,5 +1,7 @@
 package com.barry.payments.easypayapi.models.enums;
 
+import java.util.List;
+
 public enum Status {
 
     NEW("New"),
@@ -12,4 +14,10 @@ public enum Status {
     Status(String label) {
         this.label = label;
     }
+
+    // Statuts depuis lesquels une transaction peut passer à ce statut :
+    // une transaction CAPTURED n'est plus modifiable et seule une transaction AUTHORIZED peut être capturée
+    public List<Status> allowedPreviousStatuses() {
+        return this == CAPTURED ? List.of(AUTHORIZED) : List.of(NEW, AUTHORIZED);
+    }
 }
@@ -0,0 +1,21 @@
+package com.barry.payments.easypayapi.models.enums;
+
+// champs sélectionnables par le paramètre fields=, nommés comme les propriétés de TransactionDTO
+public enum TransactionField {
+
+    ID("id"),
+    AMOUNT("amount"),
+    PAYMENT_TYPE("paymentType"),
+    STATUS("status"),
+    ORDER_LINES("orderLines");
+
+    public String getProperty() {
+        return property;
+    }
+
+    private final String property;
+
+    TransactionField(String property) {
+        this.property = property;
+    }
+}
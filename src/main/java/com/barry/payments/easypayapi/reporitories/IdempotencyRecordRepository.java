@@ -0,0 +1,10 @@
+package com.barry.payments.easypayapi.reporitories;
+
+import com.barry.payments.easypayapi.models.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdempotencyRecordRepository extends ReactiveMongoRepository<IdempotencyRecord, String>,
+        IdempotencyRecordRepositoryCustom {
+}
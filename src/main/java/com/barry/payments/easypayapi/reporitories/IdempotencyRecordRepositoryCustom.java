@@ -0,0 +1,22 @@
+package com.barry.payments.easypayapi.reporitories;
+
+import com.barry.payments.easypayapi.models.IdempotencyRecord;
+import com.barry.payments.easypayapi.models.Transaction;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface IdempotencyRecordRepositoryCustom {
+
+    // prolonge la réservation tant que la création tourne sur l'instance qui la détient
+    Mono<Boolean> renewReservation(String id, String reservedBy, Instant reservedUntil);
+
+    // reprend une réservation expirée, telle qu'elle a été lue ; vide si elle a été reprise ou complétée entre-temps
+    Mono<IdempotencyRecord> takeOverReservation(IdempotencyRecord expired, String reservedBy, Instant reservedUntil);
+
+    // libère la clé après une création en échec, si la réservation appartient toujours à cette exécution
+    Mono<Void> releaseReservation(String id, String reservedBy);
+
+    // écrit la réponse si la réservation appartient toujours à cette exécution
+    Mono<Boolean> complete(String id, String reservedBy, Transaction transaction);
+}
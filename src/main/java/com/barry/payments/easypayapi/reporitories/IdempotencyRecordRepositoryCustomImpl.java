@@ -0,0 +1,60 @@
+package com.barry.payments.easypayapi.reporitories;
+
+import com.barry.payments.easypayapi.models.IdempotencyRecord;
+import com.barry.payments.easypayapi.models.Transaction;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public class IdempotencyRecordRepositoryCustomImpl implements IdempotencyRecordRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public IdempotencyRecordRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<Boolean> renewReservation(String id, String reservedBy, Instant reservedUntil) {
+        return reactiveMongoTemplate.updateFirst(pendingOwnedBy(id, reservedBy),
+                        new Update().set("reservedUntil", reservedUntil), IdempotencyRecord.class)
+                .map(result -> result.getModifiedCount() == 1);
+    }
+
+    @Override
+    public Mono<IdempotencyRecord> takeOverReservation(IdempotencyRecord expired, String reservedBy, Instant reservedUntil) {
+        // la réservation lue sert de garde : deux requêtes en attente ne la reprennent pas toutes les deux
+        Query query = Query.query(Criteria.where("id").is(expired.getId())
+                .and("transaction").is(null)
+                .and("reservedBy").is(expired.getReservedBy())
+                .and("reservedUntil").is(expired.getReservedUntil()));
+        Update update = new Update()
+                .set("reservedBy", reservedBy)
+                .set("reservedUntil", reservedUntil);
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                IdempotencyRecord.class);
+    }
+
+    @Override
+    public Mono<Void> releaseReservation(String id, String reservedBy) {
+        return reactiveMongoTemplate.remove(pendingOwnedBy(id, reservedBy), IdempotencyRecord.class).then();
+    }
+
+    @Override
+    public Mono<Boolean> complete(String id, String reservedBy, Transaction transaction) {
+        return reactiveMongoTemplate.updateFirst(pendingOwnedBy(id, reservedBy),
+                        new Update().set("transaction", transaction), IdempotencyRecord.class)
+                .map(result -> result.getModifiedCount() == 1);
+    }
+
+    private static Query pendingOwnedBy(String id, String reservedBy) {
+        return Query.query(Criteria.where("id").is(id)
+                .and("reservedBy").is(reservedBy)
+                .and("transaction").is(null));
+    }
+}
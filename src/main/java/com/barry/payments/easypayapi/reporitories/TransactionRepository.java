@@ -3,5 +3,6 @@ package com.barry.payments.easypayapi.reporitories;
 import com.barry.payments.easypayapi.models.Transaction;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
-public interface TransactionRepository extends ReactiveMongoRepository<Transaction, String> {
+public interface TransactionRepository extends ReactiveMongoRepository<Transaction, String>,
+        TransactionRepositoryCustom {
 }
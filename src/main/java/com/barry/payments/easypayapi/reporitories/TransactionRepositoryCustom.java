@@ -0,0 +1,56 @@
+package com.barry.payments.easypayapi.reporitories;
+
+import com.barry.payments.easypayapi.models.BatchItemResult;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFields;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface TransactionRepositoryCustom {
+
+    Flux<Transaction> streamAll(TransactionFilter filter, int cursorBatchSize);
+
+    // skip/limit/sort sont envoyés à MongoDB : seule la page demandée transite sur le réseau
+    Flux<Transaction> findByFilter(TransactionFilter filter, Pageable pageable);
+
+    // pagination par curseur : range query "_id > lastId" sur l'index, coût constant quelle que soit la page
+    // (lastId : String ou ObjectId, le type BSON du dernier _id lu)
+    Flux<Transaction> findByFilterAfterId(TransactionFilter filter, Object lastId, Pageable pageable);
+
+    // lecture projetée : seuls les champs demandés (et la version, pour l'ETag) sont lus
+    Mono<Transaction> findProjectionById(String id, TransactionFields fields);
+
+    // $slice : seule la fenêtre [offset, offset + limit) des lignes de commande est lue, avec l'_id
+    Mono<Transaction> findOrderLinesWindow(String id, int offset, int limit);
+
+    // un seul bulk write non ordonné ; un résultat par transaction, dans l'ordre de la liste
+    Flux<BatchItemResult> insertUnordered(List<Transaction> transactions);
+
+    // findAndModify conditionnel : vide si la transaction n'existe pas, si les règles de transition sont violées
+    // ou si la version attendue (transaction.version) n'est plus la version courante
+    // renvoie l'état AVANT modification, pour que l'appelant connaisse l'ancien et le nouveau statut / montant
+    // (sans les lignes de commande : la commande est comparée par son empreinte, jamais relue)
+    // pose aussi summaryTracking (nouveau groupe, une écriture en cours) dans le même findAndModify,
+    // et l'empreinte d'un document écrit avant elle (renvoyée avec l'état précédent)
+    Mono<Transaction> updateIfTransitionAllowed(String id, Transaction transaction);
+
+    // variations appliquées aux totaux : une écriture en cours de moins sur summaryTracking
+    // (la dernière ne laisse que le groupe courant), sans toucher à la version exposée en ETag
+    Mono<Void> completeSummaryTracking(String id);
+
+    Mono<Void> completeSummaryTracking(List<String> ids);
+
+    // transactions dont une écriture n'a pas fini d'appliquer ses variations de totaux
+    Flux<Transaction> findSummaryInFlight();
+
+    // marqueur laissé par une instance arrêtée : remis à zéro s'il n'a pas changé depuis la lecture
+    Mono<Boolean> resetSummaryTracking(Transaction transaction);
+
+    // agrégation $group côté MongoDB : une ligne par couple (status, paymentType)
+    Flux<TransactionStats> aggregateStats(TransactionFilter filter);
+}
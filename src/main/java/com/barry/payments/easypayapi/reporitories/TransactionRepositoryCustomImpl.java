@@ -0,0 +1,323 @@
+package com.barry.payments.easypayapi.reporitories;
+
+import com.barry.payments.easypayapi.models.BatchItemResult;
+import com.barry.payments.easypayapi.models.OrderFingerprint;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFields;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.models.TransactionSummary;
+import com.barry.payments.easypayapi.models.enums.Status;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+public class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public TransactionRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Transaction> streamAll(TransactionFilter filter, int cursorBatchSize) {
+        Query query = queryFor(filter).cursorBatchSize(cursorBatchSize);
+        return reactiveMongoTemplate.find(query, Transaction.class);
+    }
+
+    @Override
+    public Flux<Transaction> findByFilter(TransactionFilter filter, Pageable pageable) {
+        return reactiveMongoTemplate.find(queryFor(filter).with(pageable), Transaction.class);
+    }
+
+    @Override
+    public Flux<Transaction> findByFilterAfterId(TransactionFilter filter, Object lastId, Pageable pageable) {
+        // ⬅️ $gt ne compare que des valeurs du même type BSON : après le dernier _id chaîne viennent les ObjectId,
+        // qui les suivent dans l'ordre de tri de MongoDB
+        Criteria criteria = criteriaFor(filter);
+        if (lastId instanceof ObjectId) {
+            criteria.and("id").gt(lastId);
+        } else {
+            criteria.orOperator(Criteria.where("id").gt(lastId),
+                    Criteria.where("id").type(JsonSchemaObject.Type.objectIdType()));
+        }
+        Query query = Query.query(criteria).with(pageable);
+        project(query, filter.getFields());
+        return reactiveMongoTemplate.find(query, Transaction.class);
+    }
+
+    @Override
+    public Mono<Transaction> findProjectionById(String id, TransactionFields fields) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        project(query, fields);
+        return reactiveMongoTemplate.findOne(query, Transaction.class);
+    }
+
+    @Override
+    public Mono<Transaction> findOrderLinesWindow(String id, int offset, int limit) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().include("id").slice("orderLines", offset, limit);
+        return reactiveMongoTemplate.findOne(query, Transaction.class);
+    }
+
+    @Override
+    public Flux<BatchItemResult> insertUnordered(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return Flux.empty();
+        }
+        return reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Transaction.class)
+                .insert(transactions)
+                .execute()
+                .map(result -> toResults(transactions, Map.of()))
+                .onErrorResume(ex -> {
+                    Map<Integer, String> errors = writeErrorsOf(ex);
+                    return errors == null ? Mono.error(ex) : Mono.just(toResults(transactions, errors));
+                })
+                .flatMapIterable(results -> results);
+    }
+
+    @Override
+    public Mono<Transaction> updateIfTransitionAllowed(String id, Transaction transaction) {
+        String fingerprint = OrderFingerprint.of(transaction.getOrderLines());
+        // la commande ne peut pas changer : on ne modifie que si son empreinte est identique (ou la commande absente)
+        Mono<Transaction> updated = updateIfTransitionAllowed(id, transaction,
+                Criteria.where("orderFingerprint").in(OrderFingerprint.NO_ORDER_LINES, fingerprint), null);
+        // ⬅️ document écrit avant l'empreinte : comparaison des listes complètes, l'empreinte des lignes stockées
+        // est posée dans le même findAndModify (un cas par empreinte possible)
+        Mono<Transaction> legacySameLines = updateIfTransitionAllowed(id, transaction,
+                Criteria.where("orderFingerprint").exists(false).and("orderLines").is(transaction.getOrderLines()),
+                fingerprint);
+        Mono<Transaction> legacyNoLines = updateIfTransitionAllowed(id, transaction,
+                Criteria.where("orderFingerprint").exists(false).and("orderLines").is(null),
+                OrderFingerprint.NO_ORDER_LINES);
+        // ⬅️ prix encore en chaîne (document non migré ou ignoré par AmountDecimal128Migration) : l'égalité des listes
+        // échoue, on compare l'empreinte des lignes stockées relues avec des prix normalisés, puis on écrit à condition
+        // que ces lignes n'aient pas changé entre-temps
+        Mono<Transaction> legacyStoredLines = Mono.defer(() -> findLegacyOrderLines(id))
+                .filter(storedLines -> fingerprint.equals(OrderFingerprint.of(
+                        reactiveMongoTemplate.getConverter().read(Transaction.class, storedLines).getOrderLines())))
+                .flatMap(storedLines -> updateIfTransitionAllowed(id, transaction,
+                        Criteria.where("orderFingerprint").exists(false).and("orderLines").is(storedLines.get("orderLines")),
+                        fingerprint));
+        return transaction.getOrderLines() == null
+                ? updated.switchIfEmpty(legacySameLines)
+                : updated.switchIfEmpty(legacySameLines).switchIfEmpty(legacyNoLines).switchIfEmpty(legacyStoredLines);
+    }
+
+    // lignes de commande telles qu'écrites en base, seulement si le document n'a pas encore d'empreinte
+    private Mono<Document> findLegacyOrderLines(String id) {
+        Query query = Query.query(Criteria.where("_id").is(id)
+                .and("orderFingerprint").exists(false)
+                .and("orderLines").ne(null));
+        query.fields().include("orderLines");
+        return reactiveMongoTemplate.findOne(query, Document.class, reactiveMongoTemplate.getCollectionName(Transaction.class));
+    }
+
+    private Mono<Transaction> updateIfTransitionAllowed(String id, Transaction transaction, Criteria orderLinesCriteria,
+                                                        String backfilledFingerprint) {
+        Status newStatus = transaction.getStatus();
+        List<Status> allowedStatuses = newStatus != null
+                ? newStatus.allowedPreviousStatuses()
+                : List.of(Status.NEW, Status.AUTHORIZED);
+
+        Criteria criteria = Criteria.where("id").is(id)
+                .and("status").in(allowedStatuses)
+                .andOperator(orderLinesCriteria);
+        // version attendue par le client (If-Match)
+        if (transaction.getVersion() != null) {
+            criteria.and("version").is(transaction.getVersion());
+        }
+
+        Update update = new Update()
+                .set("amount", transaction.getAmount())
+                .set("paymentType", transaction.getPaymentType())
+                .inc("version", 1)
+                // ⬅️ l'ancien groupe est déjà dans summaryTracking.groups : on ajoute le nouveau, sans statut
+                // demandé c'est l'un des statuts autorisés
+                .addToSet("summaryTracking.groups").each((newStatus != null ? List.of(newStatus) : allowedStatuses).stream()
+                        .map(status -> TransactionSummary.idOf(status, transaction.getPaymentType()))
+                        .toArray())
+                .inc("summaryTracking.writers", 1)
+                .set("summaryTracking.since", Instant.now());
+        if (newStatus != null) {
+            update.set("status", newStatus);
+        }
+        if (backfilledFingerprint != null) {
+            update.set("orderFingerprint", backfilledFingerprint);
+        }
+
+        // les lignes de commande ne sont pas renvoyées : l'empreinte suffit à l'appelant
+        Query query = Query.query(criteria);
+        query.fields().exclude("orderLines");
+        Mono<Transaction> previous = reactiveMongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(false), Transaction.class);
+        return backfilledFingerprint == null
+                ? previous
+                : previous.doOnNext(previousTransaction -> previousTransaction.setOrderFingerprint(backfilledFingerprint));
+    }
+
+    @Override
+    public Mono<Void> completeSummaryTracking(String id) {
+        // par nom de collection : une opération sur l'entité incrémenterait la version (@Version)
+        String collection = reactiveMongoTemplate.getCollectionName(Transaction.class);
+        Query query = Query.query(Criteria.where("_id").is(id));
+        query.fields().include("status", "paymentType", "version", "summaryTracking");
+        return reactiveMongoTemplate.findAndModify(query, new Update().inc("summaryTracking.writers", -1),
+                        FindAndModifyOptions.options().returnNew(true), Document.class, collection)
+                .flatMap(completed -> compactSummaryTracking(completed, collection))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> completeSummaryTracking(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+        // transactions créées : un seul groupe, rien à compacter
+        return reactiveMongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                        new Update().inc("summaryTracking.writers", -1),
+                        reactiveMongoTemplate.getCollectionName(Transaction.class))
+                .then();
+    }
+
+    @Override
+    public Flux<Transaction> findSummaryInFlight() {
+        Query query = Query.query(Criteria.where("summaryTracking.writers").gt(0));
+        query.fields().include("status", "paymentType", "version", "summaryTracking");
+        return reactiveMongoTemplate.find(query, Transaction.class);
+    }
+
+    @Override
+    public Mono<Boolean> resetSummaryTracking(Transaction transaction) {
+        Query query = Query.query(Criteria.where("_id").is(transaction.getId())
+                .and("version").is(transaction.getVersion())
+                .and("summaryTracking.since").is(transaction.getSummaryTracking().getSince()));
+        Update update = new Update()
+                .set("summaryTracking.groups", List.of(TransactionSummary.idOf(transaction.getStatus(), transaction.getPaymentType())))
+                .set("summaryTracking.writers", 0)
+                .set("summaryTracking.tracked", true);
+        return reactiveMongoTemplate.updateFirst(query, update, reactiveMongoTemplate.getCollectionName(Transaction.class))
+                .map(result -> result.getModifiedCount() == 1);
+    }
+
+    // plus aucune écriture en cours : les totaux ne comptent la transaction que dans son groupe courant
+    private Mono<Boolean> compactSummaryTracking(Document completed, String collection) {
+        Document tracking = completed.get("summaryTracking", Document.class);
+        String group = completed.getString("status") + ":" + completed.getString("paymentType");
+        boolean compacted = tracking.getBoolean("tracked", false)
+                && List.of(group).equals(tracking.getList("groups", String.class));
+        if (tracking.getInteger("writers", 0) != 0 || compacted) {
+            return Mono.just(false);
+        }
+        // une écriture intercalée change la version ou writers : elle compactera à son tour
+        Query query = Query.query(Criteria.where("_id").is(completed.get("_id"))
+                .and("version").is(completed.get("version"))
+                .and("summaryTracking.writers").is(0));
+        Update update = new Update()
+                .set("summaryTracking.groups", List.of(group))
+                .set("summaryTracking.tracked", true);
+        return reactiveMongoTemplate.updateFirst(query, update, collection)
+                .map(result -> result.getModifiedCount() == 1);
+    }
+
+    @Override
+    public Flux<TransactionStats> aggregateStats(TransactionFilter filter) {
+        // ⬅️ amount est en Decimal128, sauf documents pas encore migrés (ou ignorés) par AmountDecimal128Migration :
+        // $convert les garde dans les totaux, une chaîne non numérique donne null et sort des accumulateurs
+        AggregationExpression amount = ConvertOperators.valueOf("amount").convertTo("decimal").onErrorReturn(null);
+        TypedAggregation<Transaction> aggregation = Aggregation.newAggregation(Transaction.class,
+                Aggregation.match(criteriaFor(filter)),
+                Aggregation.group("status", "paymentType")
+                        .count().as("count")
+                        .sum(amount).as("totalAmount")
+                        .min(amount).as("minAmount")
+                        .max(amount).as("maxAmount")
+                        .avg(amount).as("averageAmount"),
+                Aggregation.project("count", "totalAmount", "minAmount", "maxAmount", "averageAmount")
+                        .and("_id.status").as("status")
+                        .and("_id.paymentType").as("paymentType")
+                        .andExclude("_id"),
+                Aggregation.sort(Sort.by("status", "paymentType")));
+        return reactiveMongoTemplate.aggregate(aggregation, TransactionStats.class);
+    }
+
+    // égalités sur status / paymentType, servies par les index composés déclarés sur Transaction
+    private static Query queryFor(TransactionFilter filter) {
+        Query query = Query.query(criteriaFor(filter));
+        project(query, filter.getFields());
+        return query;
+    }
+
+    // les champs non demandés ne quittent pas MongoDB ; _id est toujours renvoyé (curseur, ETag)
+    private static void project(Query query, TransactionFields fields) {
+        if (fields == null || fields.isAll()) {
+            return;
+        }
+        query.fields().include("version");
+        fields.values().forEach(field -> query.fields().include(field.getProperty()));
+    }
+
+    private static Criteria criteriaFor(TransactionFilter filter) {
+        Criteria criteria = new Criteria();
+        if (filter.getStatus() != null) {
+            criteria.and("status").is(filter.getStatus());
+        }
+        if (filter.getPaymentType() != null) {
+            criteria.and("paymentType").is(filter.getPaymentType());
+        }
+        return criteria;
+    }
+
+    // En mode non ordonné, MongoDB insère tous les documents valides et ne rapporte que les échecs par index
+    private static List<BatchItemResult> toResults(List<Transaction> transactions, Map<Integer, String> errors) {
+        return IntStream.range(0, transactions.size())
+                .mapToObj(i -> BatchItemResult.builder()
+                        .index(i)
+                        .id(transactions.get(i).getId())
+                        .success(!errors.containsKey(i))
+                        .error(errors.get(i))
+                        .build())
+                .toList();
+    }
+
+    private static Map<Integer, String> writeErrorsOf(Throwable ex) {
+        List<BulkWriteError> writeErrors = null;
+        for (Throwable cause = ex; cause != null && writeErrors == null; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException bulkOperationException) {
+                writeErrors = bulkOperationException.getErrors();
+            } else if (cause instanceof MongoBulkWriteException mongoBulkWriteException) {
+                writeErrors = mongoBulkWriteException.getWriteErrors();
+            }
+        }
+        if (writeErrors == null) {
+            return null;
+        }
+        Map<Integer, String> errors = new HashMap<>();
+        writeErrors.forEach(error -> errors.put(error.getIndex(), error.getMessage()));
+        return errors;
+    }
+}
@@ -0,0 +1,8 @@
+package com.barry.payments.easypayapi.reporitories;
+
+import com.barry.payments.easypayapi.models.TransactionSummary;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface TransactionSummaryRepository extends ReactiveMongoRepository<TransactionSummary, String>,
+        TransactionSummaryRepositoryCustom {
+}
@@ -0,0 +1,22 @@
+package com.barry.payments.easypayapi.reporitories;
+
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionSummary;
+import com.barry.payments.easypayapi.models.TransactionSummaryDelta;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface TransactionSummaryRepositoryCustom {
+
+    Flux<TransactionSummary> findByFilter(TransactionFilter filter);
+
+    // un upsert $inc par couple (status, paymentType), envoyés dans un seul bulk write
+    Mono<Void> applyDeltas(List<TransactionSummaryDelta> deltas);
+
+    // remplace les totaux uniquement si aucune écriture n'a eu lieu depuis la lecture (même revision)
+    Mono<Boolean> replaceIfUnchanged(TransactionSummary summary, long expectedRevision);
+
+    Mono<Boolean> deleteIfUnchanged(String id, long expectedRevision);
+}
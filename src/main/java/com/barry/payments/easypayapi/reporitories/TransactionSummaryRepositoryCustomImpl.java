@@ -0,0 +1,83 @@
+package com.barry.payments.easypayapi.reporitories;
+
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionSummary;
+import com.barry.payments.easypayapi.models.TransactionSummaryDelta;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class TransactionSummaryRepositoryCustomImpl implements TransactionSummaryRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public TransactionSummaryRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<TransactionSummary> findByFilter(TransactionFilter filter) {
+        Query query = new Query();
+        if (filter.getStatus() != null) {
+            query.addCriteria(Criteria.where("status").is(filter.getStatus()));
+        }
+        if (filter.getPaymentType() != null) {
+            query.addCriteria(Criteria.where("paymentType").is(filter.getPaymentType()));
+        }
+        return reactiveMongoTemplate.find(query, TransactionSummary.class);
+    }
+
+    @Override
+    public Mono<Void> applyDeltas(List<TransactionSummaryDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulk = reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                TransactionSummary.class);
+        deltas.forEach(delta -> {
+            Update update = new Update()
+                    .setOnInsert("status", delta.getStatus())
+                    .setOnInsert("paymentType", delta.getPaymentType())
+                    .inc("count", delta.getCount())
+                    .inc("totalAmount", delta.getAmount() != null ? delta.getAmount() : BigDecimal.ZERO)
+                    .inc("revision", 1);
+            if (delta.getMinAmount() != null) {
+                update.min("minAmount", delta.getMinAmount());
+            }
+            if (delta.getMaxAmount() != null) {
+                update.max("maxAmount", delta.getMaxAmount());
+            }
+            bulk.upsert(Query.query(Criteria.where("id")
+                    .is(TransactionSummary.idOf(delta.getStatus(), delta.getPaymentType()))), update);
+        });
+        return bulk.execute().then();
+    }
+
+    @Override
+    public Mono<Boolean> replaceIfUnchanged(TransactionSummary summary, long expectedRevision) {
+        Query query = Query.query(Criteria.where("id").is(summary.getId()).and("revision").is(expectedRevision));
+        Update update = new Update()
+                .set("count", summary.getCount())
+                .set("totalAmount", summary.getTotalAmount())
+                .set("minAmount", summary.getMinAmount())
+                .set("maxAmount", summary.getMaxAmount())
+                .inc("revision", 1);
+        return reactiveMongoTemplate.updateFirst(query, update, TransactionSummary.class)
+                .map(result -> result.getModifiedCount() == 1);
+    }
+
+    @Override
+    public Mono<Boolean> deleteIfUnchanged(String id, long expectedRevision) {
+        Query query = Query.query(Criteria.where("id").is(id).and("revision").is(expectedRevision));
+        return reactiveMongoTemplate.remove(query, TransactionSummary.class)
+                .map(result -> result.getDeletedCount() == 1);
+    }
+}
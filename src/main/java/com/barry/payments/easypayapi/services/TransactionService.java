@@ -1,19 +1,48 @@
 package com.barry.payments.easypayapi.services;
 
+import com.barry.payments.easypayapi.models.BatchItemResult;
+import com.barry.payments.easypayapi.models.OrderLine;
 import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFields;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionLookupResult;
+import com.barry.payments.easypayapi.models.TransactionPage;
+import com.barry.payments.easypayapi.models.TransactionStats;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface TransactionService {
 
 
-    Flux<Transaction> getAllTransactions();
+    Flux<Transaction> getAllTransactions(TransactionFilter filter);
+
+    Flux<Transaction> getAllTransactionsPagination(TransactionFilter filter, int page, int size);
+
+    Mono<TransactionPage> getTransactionsByCursor(TransactionFilter filter, String cursor, int size);
 
-    Flux<Transaction> getAllTransactionsPagination(int page, int size);
+    Flux<TransactionStats> getTransactionStats(TransactionFilter filter);
+
+    Flux<TransactionStats> computeTransactionStats(TransactionFilter filter);
 
     Mono<Transaction> getTransactionById(String id);
 
+    // seuls les champs demandés sont lus dans MongoDB ; la version est toujours renseignée (ETag)
+    Mono<Transaction> getTransactionById(String id, TransactionFields fields);
+
+    // fenêtre [offset, offset + limit) des lignes de commande, sans charger le reste de la transaction
+    Flux<OrderLine> getOrderLines(String id, int offset, int limit);
+
+    // un résultat par id demandé, dans l'ordre de la liste, found=false pour les ids inconnus
+    Flux<TransactionLookupResult> getTransactionsByIds(List<String> ids);
+
     Mono<Transaction> createTransaction(Transaction transaction);
 
+    // au plus une écriture par clé : les rejeux reçoivent la transaction créée par la première requête
+    Mono<Transaction> createTransaction(Transaction transaction, String idempotencyKey);
+
+    Flux<BatchItemResult> createTransactions(Flux<Transaction> transactions);
+
     Mono<Transaction> updateTransaction(String id, Transaction transaction);
 }
@@ -0,0 +1,209 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.config.IdempotencyProperties;
+import com.barry.payments.easypayapi.exceptions.IdempotencyKeyReusedException;
+import com.barry.payments.easypayapi.exceptions.IdempotentRequestInProgressException;
+import com.barry.payments.easypayapi.models.IdempotencyRecord;
+import com.barry.payments.easypayapi.models.OrderFingerprint;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.reporitories.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Exécute une création au plus une fois par Idempotency-Key.
+ * <p>
+ * Sur une instance, les requêtes simultanées d'une même clé partagent la même exécution (cache asynchrone) ;
+ * entre instances, la clé est réservée par un insert dans "idempotencyKeys" et les doublons attendent que
+ * la réponse y soit écrite. Une création en échec libère la clé : la requête peut être rejouée.
+ * La réservation est un bail prolongé pendant la création : si l'instance s'arrête, un doublon la reprend à expiration.
+ */
+@Component
+@Log4j2
+public class IdempotencyStore {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final IdempotencyProperties properties;
+    private final AsyncCache<String, IdempotencyRecord> records;
+    private final Counter replays;
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            IdempotencyProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.properties = properties;
+        // une réponse ne doit pas survivre en mémoire à son document MongoDB
+        this.records = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaximumSize())
+                .expireAfterWrite(properties.getCacheTtl().compareTo(properties.getTtl()) < 0
+                        ? properties.getCacheTtl() : properties.getTtl())
+                .buildAsync();
+        this.replays = Counter.builder("transactions.idempotency.replays")
+                .description("Requests answered with the stored response of an earlier request with the same key")
+                .register(meterRegistry);
+    }
+
+    public Mono<Transaction> execute(String idempotencyKey, Transaction request, Supplier<Mono<Transaction>> creation) {
+        return Mono.defer(() -> {
+            String requestHash = hash(request);
+            AtomicBoolean executed = new AtomicBoolean();
+            // suppressCancel : un client qui abandonne n'annule pas l'exécution attendue par les doublons
+            return Mono.fromFuture(() -> records.get(idempotencyKey, (key, executor) ->
+                            reserveOrAwait(key, requestHash, () -> {
+                                executed.set(true);
+                                return creation.get();
+                            }).toFuture()), true)
+                    .flatMap(record -> {
+                        if (!requestHash.equals(record.getRequestHash())) {
+                            return Mono.error(new IdempotencyKeyReusedException(idempotencyKey));
+                        }
+                        if (!executed.get()) {
+                            replays.increment();
+                        }
+                        return Mono.just(record.getTransaction());
+                    });
+        });
+    }
+
+    private Mono<IdempotencyRecord> reserveOrAwait(String key, String requestHash, Supplier<Mono<Transaction>> creation) {
+        Instant now = Instant.now();
+        IdempotencyRecord pending = IdempotencyRecord.builder()
+                .id(key)
+                .requestHash(requestHash)
+                .createdAt(now)
+                .reservedBy(UUID.randomUUID().toString())
+                .reservedUntil(now.plus(properties.getLease()))
+                .build();
+        return idempotencyRecordRepository.insert(pending)
+                .map(Optional::of)
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.just(Optional.empty()))
+                .flatMap(reserved -> reserved.isPresent()
+                        ? executeAndStore(reserved.get(), creation)
+                        : awaitCompleted(key, requestHash, creation));
+    }
+
+    private Mono<IdempotencyRecord> executeAndStore(IdempotencyRecord pending, Supplier<Mono<Transaction>> creation) {
+        // la réservation est prolongée tant que la création tourne ⬅️
+        return Mono.using(() -> renewReservation(pending), heartbeat -> creation.get(), Disposable::dispose)
+                // seulement si la réservation est toujours la nôtre : elle a pu être reprise par une autre instance
+                .onErrorResume(e -> idempotencyRecordRepository.releaseReservation(pending.getId(), pending.getReservedBy())
+                        .then(Mono.error(e)))
+                .flatMap(transaction -> {
+                    IdempotencyRecord completed = pending.toBuilder().transaction(transaction).build();
+                    return idempotencyRecordRepository.complete(pending.getId(), pending.getReservedBy(), transaction)
+                            .retryWhen(Retry.backoff(properties.getCompletionRetries(), properties.getPollInterval()))
+                            .doOnNext(stored -> {
+                                if (!stored) {
+                                    log.warn("Reservation of Idempotency-Key {} was taken over before its response was stored",
+                                            pending.getId());
+                                }
+                            })
+                            // la transaction est écrite : on répond quand même, la réservation expirera et la clé sera reprise
+                            .onErrorResume(e -> {
+                                log.error("Failed to store response for Idempotency-Key {}: {}", pending.getId(), e.getMessage());
+                                return Mono.just(false);
+                            })
+                            .thenReturn(completed);
+                });
+    }
+
+    private Disposable renewReservation(IdempotencyRecord pending) {
+        Duration lease = properties.getLease();
+        return Flux.interval(lease.dividedBy(3))
+                .concatMap(tick -> idempotencyRecordRepository
+                        .renewReservation(pending.getId(), pending.getReservedBy(), Instant.now().plus(lease))
+                        .onErrorResume(e -> {
+                            log.warn("Failed to renew reservation of Idempotency-Key {}: {}", pending.getId(), e.getMessage());
+                            return Mono.just(false);
+                        }))
+                .subscribe();
+    }
+
+    // la clé est réservée ailleurs : on relit jusqu'à la réponse, ou on reprend la main si la réservation a été libérée
+    // ou a expiré (instance arrêtée en cours de création).
+    // ⬅️ seul un enregistrement complété sort d'ici : il est gardé dans le cache "records"
+    private Mono<IdempotencyRecord> awaitCompleted(String key, String requestHash, Supplier<Mono<Transaction>> creation) {
+        return Mono.defer(() -> idempotencyRecordRepository.findById(key))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                // une autre requête est en cours sur la clé : 422 tout de suite, sans attendre sa réponse
+                .flatMap(found -> found.isPresent() && !found.get().isCompleted()
+                        && !requestHash.equals(found.get().getRequestHash())
+                        ? Mono.<Optional<IdempotencyRecord>>error(new IdempotencyKeyReusedException(key))
+                        : Mono.just(found))
+                .filter(found -> found.isEmpty() || found.get().isCompleted() || isExpired(found.get()))
+                .repeatWhenEmpty(attempts -> attempts.delayElements(properties.getPollInterval()))
+                .timeout(properties.getPendingTimeout(), Mono.error(() -> new IdempotentRequestInProgressException(key)))
+                .flatMap(found -> {
+                    if (found.isEmpty()) {
+                        return reserveOrAwait(key, requestHash, creation);
+                    }
+                    IdempotencyRecord record = found.get();
+                    // réponse d'une autre requête sur la même clé : execute() répond 422
+                    return record.isCompleted() ? Mono.just(record) : takeOver(record, requestHash, creation);
+                });
+    }
+
+    private Mono<IdempotencyRecord> takeOver(IdempotencyRecord expired, String requestHash, Supplier<Mono<Transaction>> creation) {
+        String reservedBy = UUID.randomUUID().toString();
+        return idempotencyRecordRepository.takeOverReservation(expired, reservedBy, Instant.now().plus(properties.getLease()))
+                .flatMap(reserved -> {
+                    log.warn("Took over expired reservation of Idempotency-Key {}", expired.getId());
+                    return executeAndStore(reserved, creation);
+                })
+                // une autre requête l'a reprise (ou complétée) entre la lecture et la mise à jour : on attend à nouveau
+                .switchIfEmpty(Mono.defer(() -> awaitCompleted(expired.getId(), requestHash, creation)));
+    }
+
+    private boolean isExpired(IdempotencyRecord pending) {
+        // réservations antérieures au bail : on se fie à la date de création
+        Instant reservedUntil = pending.getReservedUntil() != null
+                ? pending.getReservedUntil()
+                : Optional.ofNullable(pending.getCreatedAt()).map(createdAt -> createdAt.plus(properties.getLease())).orElse(null);
+        return reservedUntil != null && reservedUntil.isBefore(Instant.now());
+    }
+
+    // forme canonique de la requête : 50.0 et 50.00 sont la même requête, les lignes passent par OrderFingerprint
+    static String hash(Transaction request) {
+        StringBuilder canonical = new StringBuilder();
+        append(canonical, request.getId());
+        append(canonical, request.getAmount() != null ? request.getAmount().stripTrailingZeros().toPlainString() : null);
+        append(canonical, request.getPaymentType() != null ? request.getPaymentType().name() : null);
+        append(canonical, request.getStatus() != null ? request.getStatus().name() : null);
+        append(canonical, OrderFingerprint.of(request.getOrderLines()));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void append(StringBuilder canonical, String value) {
+        if (value == null) {
+            canonical.append("-1:");
+            return;
+        }
+        canonical.append(value.length()).append(':').append(value);
+    }
+}
@@ -0,0 +1,111 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.config.TransactionCacheProperties;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static com.barry.payments.easypayapi.models.enums.Status.CAPTURED;
+
+/**
+ * Cache asynchrone borné (taille + durée de vie) devant la lecture d'une transaction par id.
+ * Les statistiques hit / miss / eviction sont publiées sous le nom de cache "transactions".
+ */
+@Component
+public class TransactionCache {
+
+    private final boolean enabled;
+    private final AsyncCache<String, Transaction> cache;
+
+    @Autowired
+    public TransactionCache(TransactionCacheProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Ticker.systemTicker());
+    }
+
+    TransactionCache(TransactionCacheProperties properties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.enabled = properties.isEnabled();
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new StatusAwareExpiry(properties.getTtl()))
+                .ticker(ticker)
+                .recordStats()
+                .<String, Transaction>buildAsync(), "transactions");
+    }
+
+    // une transaction absente n'est pas mise en cache, une erreur de chargement non plus
+    public Mono<Transaction> get(String id, Function<String, Mono<Transaction>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return Mono.fromFuture(() -> cache.get(id, (key, executor) -> loader.apply(key).toFuture()), true);
+    }
+
+    // transactions déjà chargées uniquement : une lecture en cours n'est pas attendue
+    public Map<String, Transaction> getAllPresent(Collection<String> ids) {
+        Map<String, Transaction> present = new HashMap<>();
+        if (!enabled) {
+            return present;
+        }
+        for (String id : ids) {
+            CompletableFuture<Transaction> future = cache.getIfPresent(id);
+            if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+                Transaction transaction = future.getNow(null);
+                if (transaction != null) {
+                    present.put(id, transaction);
+                }
+            }
+        }
+        return present;
+    }
+
+    public void put(Transaction transaction) {
+        if (enabled && transaction.getId() != null) {
+            cache.put(transaction.getId(), CompletableFuture.completedFuture(transaction));
+        }
+    }
+
+    public void invalidate(String id) {
+        if (enabled && id != null) {
+            cache.synchronous().invalidate(id);
+        }
+    }
+
+    private static final class StatusAwareExpiry implements Expiry<String, Transaction> {
+
+        private final long ttlNanos;
+
+        private StatusAwareExpiry(Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String id, Transaction transaction, long currentTime) {
+            // une transaction CAPTURED ne peut plus être modifiée : elle reste en cache jusqu'à éviction par la taille
+            return CAPTURED.equals(transaction.getStatus()) ? Long.MAX_VALUE : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, Transaction transaction, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, transaction, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, Transaction transaction, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
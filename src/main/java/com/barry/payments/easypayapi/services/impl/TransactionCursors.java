@@ -0,0 +1,53 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.exceptions.InvalidCursorException;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encode / décode le jeton de continuation opaque de la pagination par curseur.
+ * Le jeton contient la clé de tri (_id), le type BSON et la valeur du dernier élément de la page :
+ * la collection mélange des _id chaînes (TX-n, GEN-n) et des ObjectId créés par l'API, que MongoDB ne compare
+ * qu'à l'intérieur d'un même type.
+ */
+final class TransactionCursors {
+
+    private static final String SORT_KEY = "_id";
+    private static final String SEPARATOR = ":";
+    private static final String STRING_TYPE = "string";
+    private static final String OBJECT_ID_TYPE = "objectId";
+
+    private TransactionCursors() {
+    }
+
+    // même règle que le mapping Spring Data : un id au format ObjectId est stocké en ObjectId
+    static String encode(String lastId) {
+        String type = ObjectId.isValid(lastId) ? OBJECT_ID_TYPE : STRING_TYPE;
+        String raw = SORT_KEY + SEPARATOR + type + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // valeur du dernier _id avec son type BSON : String ou ObjectId
+    static Object decode(String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+        String[] parts = raw.split(SEPARATOR, 3);
+        if (parts.length != 3 || !SORT_KEY.equals(parts[0]) || parts[2].isEmpty()) {
+            throw new InvalidCursorException(cursor);
+        }
+        if (STRING_TYPE.equals(parts[1])) {
+            return parts[2];
+        }
+        if (OBJECT_ID_TYPE.equals(parts[1]) && ObjectId.isValid(parts[2])) {
+            return new ObjectId(parts[2]);
+        }
+        throw new InvalidCursorException(cursor);
+    }
+}
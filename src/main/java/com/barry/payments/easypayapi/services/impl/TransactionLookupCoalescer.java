@@ -0,0 +1,54 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.models.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Single-flight : les lectures simultanées d'une même transaction partagent une seule requête MongoDB.
+ * L'entrée est retirée dès que la lecture se termine, seules les requêtes en vol sont partagées.
+ */
+@Component
+public class TransactionLookupCoalescer {
+
+    private final Map<String, Mono<Transaction>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedLookups;
+
+    public TransactionLookupCoalescer(MeterRegistry meterRegistry) {
+        this.coalescedLookups = Counter.builder("transactions.lookups.coalesced")
+                .description("Lookups served by an in-flight read of the same transaction")
+                .register(meterRegistry);
+    }
+
+    public Mono<Transaction> coalesce(String id, Function<String, Mono<Transaction>> loader) {
+        return Mono.defer(() -> {
+            Mono<Transaction> flight = inFlight.get(id);
+            if (flight != null) {
+                coalescedLookups.increment();
+                return flight;
+            }
+            return inFlight.computeIfAbsent(id, key -> newFlight(key, loader));
+        });
+    }
+
+    private Mono<Transaction> newFlight(String id, Function<String, Mono<Transaction>> loader) {
+        AtomicReference<Mono<Transaction>> self = new AtomicReference<>();
+        // cache() : les abonnés arrivés juste après la fin de la lecture reçoivent le même résultat
+        Mono<Transaction> flight = loader.apply(id)
+                .doFinally(signal -> inFlight.remove(id, self.get()))
+                .cache();
+        self.set(flight);
+        return flight;
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+}
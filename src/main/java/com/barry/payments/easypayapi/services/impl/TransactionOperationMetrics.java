@@ -0,0 +1,90 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.exceptions.CannotModifyCapturedTransactionException;
+import com.barry.payments.easypayapi.exceptions.CapturedNotAllowException;
+import com.barry.payments.easypayapi.exceptions.IdempotencyKeyReusedException;
+import com.barry.payments.easypayapi.exceptions.IdempotentRequestInProgressException;
+import com.barry.payments.easypayapi.exceptions.InvalidCursorException;
+import com.barry.payments.easypayapi.exceptions.InvalidIdsException;
+import com.barry.payments.easypayapi.exceptions.InvalidPaginationParameterException;
+import com.barry.payments.easypayapi.exceptions.TooManyIdsException;
+import com.barry.payments.easypayapi.exceptions.TransactionNotFoundException;
+import com.barry.payments.easypayapi.exceptions.TransactionVersionMismatchException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Timer "transactions.service" par opération du service, tagué par issue (success, not-found, conflict,
+ * invalid, error, cancelled). La mesure couvre l'abonnement jusqu'au signal terminal : cache, MongoDB et
+ * retries compris, sérialisation HTTP exclue (voir http.server.requests).
+ */
+@Component
+public class TransactionOperationMetrics {
+
+    static final String TIMER_NAME = "transactions.service";
+
+    static final String SUCCESS = "success";
+    static final String NOT_FOUND = "not-found";
+    static final String CONFLICT = "conflict";
+    static final String INVALID = "invalid";
+    static final String ERROR = "error";
+    static final String CANCELLED = "cancelled";
+
+    private final MeterRegistry meterRegistry;
+
+    public TransactionOperationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> timed(String operation, Mono<T> mono) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return mono
+                    .doOnSuccess(value -> stop(sample, operation, SUCCESS))
+                    .doOnError(e -> stop(sample, operation, outcomeOf(e)))
+                    .doOnCancel(() -> stop(sample, operation, CANCELLED));
+        });
+    }
+
+    public <T> Flux<T> timed(String operation, Flux<T> flux) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return flux
+                    .doOnComplete(() -> stop(sample, operation, SUCCESS))
+                    .doOnError(e -> stop(sample, operation, outcomeOf(e)))
+                    .doOnCancel(() -> stop(sample, operation, CANCELLED));
+        });
+    }
+
+    // même classement que GlobalExceptionHandler : une issue par famille de statut HTTP
+    static String outcomeOf(Throwable e) {
+        if (e instanceof TransactionNotFoundException) {
+            return NOT_FOUND;
+        }
+        if (e instanceof CannotModifyCapturedTransactionException || e instanceof CapturedNotAllowException
+                || e instanceof TransactionVersionMismatchException || e instanceof OptimisticLockingFailureException
+                || e instanceof DuplicateKeyException || e instanceof IdempotentRequestInProgressException) {
+            return CONFLICT;
+        }
+        if (e instanceof InvalidPaginationParameterException || e instanceof InvalidCursorException
+                || e instanceof IdempotencyKeyReusedException || e instanceof TooManyIdsException
+                || e instanceof InvalidIdsException) {
+            return INVALID;
+        }
+        return ERROR;
+    }
+
+    private void stop(Timer.Sample sample, String operation, String outcome) {
+        sample.stop(Timer.builder(TIMER_NAME)
+                .description("Transaction service operations, from subscription to terminal signal")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -1,20 +1,54 @@
 package com.barry.payments.easypayapi.services.impl;
 
-import com.barry.payments.easypayapi.exceptions.CannotModifyCapturedTransactionException;
-import com.barry.payments.easypayapi.exceptions.CapturedNotAllowException;
+import com.barry.payments.easypayapi.config.BatchIngestionProperties;
+import com.barry.payments.easypayapi.config.EventLoggingProperties;
+import com.barry.payments.easypayapi.config.LookupProperties;
+import com.barry.payments.easypayapi.config.OrderLinesProperties;
+import com.barry.payments.easypayapi.config.PaginationProperties;
+import com.barry.payments.easypayapi.config.StreamingProperties;
+import com.barry.payments.easypayapi.config.SuccessEventLogger;
+import com.barry.payments.easypayapi.config.SummaryWriteProperties;
+import com.barry.payments.easypayapi.config.UpdateRetryProperties;
+import com.barry.payments.easypayapi.exceptions.InvalidIdsException;
+import com.barry.payments.easypayapi.exceptions.InvalidPaginationBoundsException;
 import com.barry.payments.easypayapi.exceptions.InvalidPaginationParameterException;
+import com.barry.payments.easypayapi.exceptions.TooManyIdsException;
 import com.barry.payments.easypayapi.exceptions.TransactionNotFoundException;
+import com.barry.payments.easypayapi.exceptions.TransactionVersionMismatchException;
+import com.barry.payments.easypayapi.models.BatchItemResult;
+import com.barry.payments.easypayapi.models.OrderFingerprint;
+import com.barry.payments.easypayapi.models.OrderLine;
+import com.barry.payments.easypayapi.models.SummaryTracking;
 import com.barry.payments.easypayapi.models.Transaction;
-import com.barry.payments.easypayapi.models.enums.Status;
+import com.barry.payments.easypayapi.models.TransactionFields;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionLookupResult;
+import com.barry.payments.easypayapi.models.TransactionPage;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.models.TransactionSummaryDelta;
 import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import com.barry.payments.easypayapi.reporitories.TransactionSummaryRepository;
 import com.barry.payments.easypayapi.services.TransactionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
+import org.bson.types.ObjectId;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-import static com.barry.payments.easypayapi.models.enums.Status.AUTHORIZED;
-import static com.barry.payments.easypayapi.models.enums.Status.CAPTURED;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @Service
@@ -22,93 +56,461 @@ import static com.barry.payments.easypayapi.models.enums.Status.CAPTURED;
 public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionRepository transactionRepository;
+    private final TransactionSummaryRepository transactionSummaryRepository;
+    private final StreamingProperties streamingProperties;
+    private final BatchIngestionProperties batchIngestionProperties;
+    private final UpdateRetryProperties updateRetryProperties;
+    private final LookupProperties lookupProperties;
+    private final OrderLinesProperties orderLinesProperties;
+    private final PaginationProperties paginationProperties;
+    private final SummaryWriteProperties summaryWriteProperties;
+    private final TransactionCache transactionCache;
+    private final TransactionLookupCoalescer transactionLookupCoalescer;
+    private final TransactionOperationMetrics operationMetrics;
+    private final IdempotencyStore idempotencyStore;
+    private final SuccessEventLogger successLog;
+    private final Counter updateAttempts;
+    private final Counter concurrentConflicts;
+    private final Counter preconditionConflicts;
+    private final Counter exhaustedRetries;
+    private final AtomicInteger pendingSummaryWrites = new AtomicInteger();
 
-    public TransactionServiceImpl(TransactionRepository transactionRepository) {
+    public TransactionServiceImpl(TransactionRepository transactionRepository,
+                                  TransactionSummaryRepository transactionSummaryRepository,
+                                  StreamingProperties streamingProperties,
+                                  BatchIngestionProperties batchIngestionProperties,
+                                  UpdateRetryProperties updateRetryProperties,
+                                  LookupProperties lookupProperties,
+                                  OrderLinesProperties orderLinesProperties,
+                                  PaginationProperties paginationProperties,
+                                  SummaryWriteProperties summaryWriteProperties,
+                                  TransactionCache transactionCache,
+                                  TransactionLookupCoalescer transactionLookupCoalescer,
+                                  TransactionOperationMetrics operationMetrics,
+                                  IdempotencyStore idempotencyStore,
+                                  EventLoggingProperties eventLoggingProperties,
+                                  MeterRegistry meterRegistry) {
         this.transactionRepository = transactionRepository;
+        this.transactionSummaryRepository = transactionSummaryRepository;
+        this.streamingProperties = streamingProperties;
+        this.batchIngestionProperties = batchIngestionProperties;
+        this.updateRetryProperties = updateRetryProperties;
+        this.lookupProperties = lookupProperties;
+        this.orderLinesProperties = orderLinesProperties;
+        this.paginationProperties = paginationProperties;
+        this.summaryWriteProperties = summaryWriteProperties;
+        this.transactionCache = transactionCache;
+        this.transactionLookupCoalescer = transactionLookupCoalescer;
+        this.operationMetrics = operationMetrics;
+        this.idempotencyStore = idempotencyStore;
+        this.successLog = new SuccessEventLogger(TransactionServiceImpl.class, eventLoggingProperties);
+        // taux de conflit = transactions.update.conflicts / transactions.update.attempts
+        this.updateAttempts = Counter.builder("transactions.update.attempts")
+                .description("Conditional update attempts, retries included")
+                .register(meterRegistry);
+        this.concurrentConflicts = Counter.builder("transactions.update.conflicts")
+                .description("Updates rejected by a version conflict")
+                .tag("reason", "concurrent")
+                .register(meterRegistry);
+        this.preconditionConflicts = Counter.builder("transactions.update.conflicts")
+                .description("Updates rejected by a version conflict")
+                .tag("reason", "if-match")
+                .register(meterRegistry);
+        this.exhaustedRetries = Counter.builder("transactions.update.retries.exhausted")
+                .description("Updates still in conflict after the last retry")
+                .register(meterRegistry);
+        Gauge.builder("transactions.summary.writes.pending", pendingSummaryWrites, AtomicInteger::get)
+                .description("Summary updates still running in the background after their write was answered")
+                .register(meterRegistry);
     }
 
     @Override
-    public Flux<Transaction> getAllTransactions() {
-        return transactionRepository.findAll()
-                .doOnError(e-> log.error("fail retrieve transactions from MongoDB", e))
-                .doOnComplete(() -> log.info("All transactions retrieved successfully"));
+    public Flux<Transaction> getAllTransactions(TransactionFilter filter) {
+        // ⬅️ Les documents sont émis au fil du curseur, la demande vers MongoDB reste bornée par "prefetch"
+        return operationMetrics.timed("getAllTransactions",
+                transactionRepository.streamAll(filter, streamingProperties.getCursorBatchSize())
+                        .limitRate(streamingProperties.getPrefetch())
+                        .doOnError(e-> log.error("fail retrieve transactions from MongoDB", e))
+                        .doOnComplete(() -> successLog.event("getAllTransactions", "transactions streamed")
+                                .addKeyValue("filter", filter)
+                                .log()));
     }
 
     @Override
-    public Flux<Transaction> getAllTransactionsPagination(int page, int size) {
+    public Flux<Transaction> getAllTransactionsPagination(TransactionFilter filter, int page, int size) {
         if (page < 0 || size <= 0) {
-            return Flux.error(new InvalidPaginationParameterException(page, size));
+            return operationMetrics.timed("getAllTransactionsPagination",
+                    Flux.error(new InvalidPaginationParameterException(page, size)));
         }
-        long skip = (long) page * size;
+        if (size > paginationProperties.getMaxSize()) {
+            return operationMetrics.timed("getAllTransactionsPagination",
+                    Flux.error(InvalidPaginationBoundsException.sizeTooLarge(page, size, paginationProperties.getMaxSize())));
+        }
+        // ⬅️ Tri sur _id (dernière clé des index composés) pour des pages stables, skip/limit exécutés côté MongoDB
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "id"));
+
+        return operationMetrics.timed("getAllTransactionsPagination", transactionRepository.findByFilter(filter, pageable)
+                .doOnComplete(() -> successLog.event("getAllTransactionsPagination", "transactions page retrieved")
+                        .addKeyValue("page", page)
+                        .addKeyValue("size", size)
+                        .addKeyValue("filter", filter)
+                        .log())
+                .doOnError(e -> log.error("Error fetching transactions page {}: {}", page, e.getMessage())));
+    }
+
+    @Override
+    public Mono<TransactionPage> getTransactionsByCursor(TransactionFilter filter, String cursor, int size) {
+        if (size <= 0) {
+            return operationMetrics.timed("getTransactionsByCursor",
+                    Mono.error(new InvalidPaginationParameterException(0, size)));
+        }
+        // ⬅️ Borne avant size + 1 : évite le débordement à Integer.MAX_VALUE et une page illimitée dans collectList()
+        if (size > paginationProperties.getMaxSize()) {
+            return operationMetrics.timed("getTransactionsByCursor",
+                    Mono.error(InvalidPaginationBoundsException.sizeTooLarge(0, size, paginationProperties.getMaxSize())));
+        }
+        // ⬅️ On lit un élément de plus pour savoir s'il existe une page suivante
+        Pageable pageable = PageRequest.of(0, size + 1, Sort.by(Sort.Direction.ASC, "id"));
+
+        Flux<Transaction> transactions = cursor == null || cursor.isBlank()
+                ? transactionRepository.findByFilter(filter, pageable)
+                : Mono.fromCallable(() -> TransactionCursors.decode(cursor))
+                        .flatMapMany(lastId -> transactionRepository.findByFilterAfterId(filter, lastId, pageable));
+
+        return operationMetrics.timed("getTransactionsByCursor", transactions
+                .collectList()
+                .map(fetched -> toPage(fetched, size))
+                .doOnSuccess(page -> successLog.event("getTransactionsByCursor", "transactions cursor page retrieved")
+                        .addKeyValue("size", page.getTransactions().size())
+                        .addKeyValue("hasNext", page.getNextCursor() != null)
+                        .log())
+                .doOnError(e -> log.error("Error fetching transactions by cursor {}: {}", cursor, e.getMessage())));
+    }
 
-        return transactionRepository.findAll()
-                .skip(skip) // ⬅️ Ignorer les éléments des pages précédentes
-                .take(size)  // ⬅️ Récupérer "size" éléments
-                .doOnSubscribe(s -> log.info("Fetching transactions page={} size={}", page, size))
-                .doOnComplete(() -> log.info("Transactions page {} retrieved successfully", page))
-                .doOnError(e -> log.error("Error fetching transactions page {}: {}", page, e.getMessage()));
+    private static TransactionPage toPage(List<Transaction> transactions, int size) {
+        if (transactions.size() <= size) {
+            return TransactionPage.builder().transactions(transactions).build();
+        }
+        List<Transaction> content = transactions.subList(0, size);
+        return TransactionPage.builder()
+                .transactions(content)
+                .nextCursor(TransactionCursors.encode(content.get(size - 1).getId()))
+                .build();
+    }
+
+    @Override
+    public Flux<TransactionStats> getTransactionStats(TransactionFilter filter) {
+        // ⬅️ Totaux maintenus à chaque écriture : lecture d'au plus un document par couple (status, paymentType)
+        return operationMetrics.timed("getTransactionStats", transactionSummaryRepository.findByFilter(filter)
+                .filter(summary -> summary.getCount() > 0)
+                .map(TransactionSummaries::toStats)
+                .doOnComplete(() -> successLog.event("getTransactionStats", "transaction stats read from summary")
+                        .addKeyValue("filter", filter)
+                        .log())
+                .doOnError(e -> log.error("Error reading transaction stats: {}", e.getMessage())));
+    }
+
+    @Override
+    public Flux<TransactionStats> computeTransactionStats(TransactionFilter filter) {
+        // ⬅️ Les totaux sont calculés par MongoDB : seules les lignes agrégées transitent sur le réseau
+        return operationMetrics.timed("computeTransactionStats", transactionRepository.aggregateStats(filter)
+                .doOnComplete(() -> successLog.event("computeTransactionStats", "transaction stats computed")
+                        .addKeyValue("filter", filter)
+                        .log())
+                .doOnError(e -> log.error("Error computing transaction stats: {}", e.getMessage())));
     }
 
     @Override
     public Mono<Transaction> getTransactionById(String id) {
-        return transactionRepository.findById(id)
+        // ⬅️ Cache d'abord, puis une seule lecture MongoDB par id pour les requêtes simultanées
+        return operationMetrics.timed("getTransactionById",
+                transactionCache.get(id, key -> transactionLookupCoalescer.coalesce(key, transactionRepository::findById))
+                        .switchIfEmpty(Mono.error(new TransactionNotFoundException(id)))
+                        .doOnSuccess(fetchedTransaction -> successLog.event("getTransactionById", "transaction fetched")
+                                .addKeyValue("id", id)
+                                .log())
+                        .doOnError(ex ->
+                                log.error("Failed to fetch transaction with ID= {} : {}", id, ex.getMessage())));
+    }
+
+    @Override
+    public Mono<Transaction> getTransactionById(String id, TransactionFields fields) {
+        if (fields.isAll()) {
+            return getTransactionById(id);
+        }
+        // ⬅️ Une transaction déjà en cache est renvoyée telle quelle ; sinon lecture projetée, non mise en cache
+        // (le cache ne contient que des transactions complètes)
+        Transaction cached = transactionCache.getAllPresent(List.of(id)).get(id);
+        Mono<Transaction> transaction = cached != null
+                ? Mono.just(cached)
+                : transactionRepository.findProjectionById(id, fields);
+        return operationMetrics.timed("getTransactionById", transaction
                 .switchIfEmpty(Mono.error(new TransactionNotFoundException(id)))
-                .doOnSuccess(fetchedTransaction ->
-                        log.info("Transaction fetched successfully with ID: id= {}", id))
-                .doOnError(ex ->
-                        log.error("❌ Failed to fetch transaction with ID= {} : {}", id, ex.getMessage()));
+                .doOnSuccess(fetchedTransaction -> successLog.event("getTransactionById", "transaction fetched")
+                        .addKeyValue("id", id)
+                        .addKeyValue("fields", fields.values())
+                        .log())
+                .doOnError(ex -> log.error("Failed to fetch transaction with ID= {} : {}", id, ex.getMessage())));
+    }
+
+    @Override
+    public Flux<OrderLine> getOrderLines(String id, int offset, int limit) {
+        if (offset < 0 || limit <= 0 || limit > orderLinesProperties.getMaxLimit()) {
+            return operationMetrics.timed("getOrderLines",
+                    Flux.error(new InvalidPaginationBoundsException(offset, limit, orderLinesProperties.getMaxLimit())));
+        }
+        // ⬅️ Transaction complète en cache : fenêtre découpée en mémoire ; sinon $slice côté MongoDB
+        Transaction cached = transactionCache.getAllPresent(List.of(id)).get(id);
+        Mono<Transaction> transaction = cached != null
+                ? Mono.just(cached)
+                : transactionRepository.findOrderLinesWindow(id, offset, limit);
+        return operationMetrics.timed("getOrderLines", transaction
+                .switchIfEmpty(Mono.error(new TransactionNotFoundException(id)))
+                .flatMapIterable(found -> cached != null
+                        ? window(found.getOrderLines(), offset, limit)
+                        : orderLinesOf(found))
+                .doOnComplete(() -> successLog.event("getOrderLines", "order lines retrieved")
+                        .addKeyValue("id", id)
+                        .addKeyValue("offset", offset)
+                        .addKeyValue("limit", limit)
+                        .log())
+                .doOnError(e -> log.error("Failed to fetch order lines of transaction with ID= {} : {}", id, e.getMessage())));
+    }
+
+    private static List<OrderLine> window(List<OrderLine> orderLines, int offset, int limit) {
+        if (orderLines == null || offset >= orderLines.size()) {
+            return List.of();
+        }
+        return orderLines.subList(offset, Math.min(orderLines.size(), offset + limit));
+    }
+
+    private static List<OrderLine> orderLinesOf(Transaction transaction) {
+        return transaction.getOrderLines() != null ? transaction.getOrderLines() : List.of();
+    }
+
+    @Override
+    public Flux<TransactionLookupResult> getTransactionsByIds(List<String> ids) {
+        if (ids.size() > lookupProperties.getMaxIds()) {
+            return operationMetrics.timed("getTransactionsByIds",
+                    Flux.error(new TooManyIdsException(ids.size(), lookupProperties.getMaxIds())));
+        }
+        // un id null ferait échouer findAllById (IllegalArgumentException, 500)
+        if (ids.stream().anyMatch(id -> id == null || id.isBlank())) {
+            return operationMetrics.timed("getTransactionsByIds", Flux.error(new InvalidIdsException()));
+        }
+        // ⬅️ Cache d'abord, puis une seule requête $in pour les ids absents du cache, lus à la souscription
+        return operationMetrics.timed("getTransactionsByIds", Flux.defer(() -> {
+            Map<String, Transaction> cached = transactionCache.getAllPresent(ids);
+            List<String> misses = new ArrayList<>(new LinkedHashSet<>(ids));
+            misses.removeAll(cached.keySet());
+
+            Flux<Transaction> fetched = misses.isEmpty()
+                    ? Flux.empty()
+                    : transactionRepository.findAllById(misses).doOnNext(transactionCache::put);
+
+            return fetched
+                    .collectMap(Transaction::getId)
+                    .flatMapMany(found -> Flux.fromIterable(ids)
+                            .map(id -> {
+                                Transaction transaction = cached.containsKey(id) ? cached.get(id) : found.get(id);
+                                return TransactionLookupResult.builder()
+                                        .id(id)
+                                        .found(transaction != null)
+                                        .transaction(transaction)
+                                        .build();
+                            }))
+                    .doOnComplete(() -> successLog.event("getTransactionsByIds", "transactions looked up")
+                            .addKeyValue("requested", ids.size())
+                            .addKeyValue("cacheHits", cached.size())
+                            .addKeyValue("fetched", misses.size())
+                            .log());
+        }).doOnError(e -> log.error("Error looking up {} transactions: {}", ids.size(), e.getMessage())));
     }
 
     @Override
     public Mono<Transaction> createTransaction(Transaction transaction) {
-        return transactionRepository.save(transaction)
-                .doOnSuccess(savedTransaction->
-                        log.info("Transaction saved successfully: id={}, amount={}",
-                                savedTransaction.getId(), savedTransaction.getAmount()));
+        return operationMetrics.timed("createTransaction", save(transaction));
     }
 
     @Override
-    public Mono<Transaction> updateTransaction(String id, Transaction transaction) {
-        return getTransactionById(id)
-                .flatMap(existingTransaction-> {
-
-                   //pas possible de modifier le statut d'une transaction "CAPTURED"
-                    if (CAPTURED.equals(existingTransaction.getStatus())) {
-                        log.warn("Attempt to modify CAPTURED transaction with: ID={}", id);
-                        return Mono.error(
-                                new CannotModifyCapturedTransactionException("Cannot modify CAPTURED transaction"));
-                    }
+    public Mono<Transaction> createTransaction(Transaction transaction, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createTransaction(transaction);
+        }
+        // ⬅️ Un rejeu (timeout client) renvoie la réponse enregistrée sans nouvelle écriture
+        return operationMetrics.timed("createTransaction",
+                idempotencyStore.execute(idempotencyKey, transaction, () -> save(transaction)));
+    }
 
-                    //Règle 2 : la commande d'une transaction ne peut pas être modifiée
-                    if (existingTransaction.getOrderLines()!= null &&
-                            !existingTransaction.getOrderLines().equals(transaction.getOrderLines())) {
-                        log.warn("Attempt to modify order of transaction: id={}",id);
-                        return Mono.error(new CannotModifyCapturedTransactionException
-                                        ("The order of transaction cannot be changed"));
+    private Mono<Transaction> save(Transaction transaction) {
+        // ⬅️ marqueur écrit avec la transaction : TransactionSummaryRebuilder laisse ce groupe tant que la variation est en cours
+        return transactionRepository.save(transaction.toBuilder()
+                        .summaryTracking(SummaryTracking.created(transaction, Instant.now()))
+                        .build())
+                .flatMap(savedTransaction -> updateSummaryInBackground(
+                                applySummaryDeltas(TransactionSummaries.created(savedTransaction))
+                                        .then(completeSummaryTracking(savedTransaction.getId())))
+                        .thenReturn(savedTransaction))
+                .doOnNext(transactionCache::put)
+                .doOnSuccess(savedTransaction -> successLog.event("createTransaction", "transaction saved")
+                        .addKeyValue("id", savedTransaction.getId())
+                        .addKeyValue("amount", savedTransaction.getAmount())
+                        .log());
+    }
+
+    @Override
+    public Flux<BatchItemResult> createTransactions(Flux<Transaction> transactions) {
+        int chunkSize = batchIngestionProperties.getChunkSize();
+
+        return operationMetrics.timed("createTransactions", transactions
+                // ⬅️ L'id est attribué avant l'écriture pour pouvoir le renvoyer dans le résultat de chaque élément
+                .map(transaction -> transaction.toBuilder()
+                        .id(transaction.getId() != null ? transaction.getId() : new ObjectId().toHexString())
+                        .summaryTracking(SummaryTracking.created(transaction, Instant.now()))
+                        .build())
+                .buffer(chunkSize)
+                .index()
+                .flatMapSequential(chunk -> transactionRepository.insertUnordered(chunk.getT2())
+                                .collectList()
+                                .flatMapMany(results -> updateSummaryInBackground(
+                                                applySummaryDeltas(TransactionSummaries.created(chunk.getT2(), results))
+                                                        .then(completeSummaryTracking(results.stream()
+                                                                .filter(BatchItemResult::isSuccess)
+                                                                .map(BatchItemResult::getId)
+                                                                .toList())))
+                                        .thenMany(Flux.fromIterable(results)))
+                                .map(result -> result.toBuilder()
+                                        .index(chunk.getT1() * chunkSize + result.getIndex())
+                                        .build()),
+                        batchIngestionProperties.getConcurrency())
+                .doOnNext(result -> {
+                    if (result.isSuccess()) {
+                        transactionCache.invalidate(result.getId());
                     }
+                })
+                .doOnError(e -> log.error("Error during batch ingestion of transactions: {}", e.getMessage())));
+    }
+
+    @Override
+    public Mono<Transaction> updateTransaction(String id, Transaction transaction) {
+        // ⬅️ Règles vérifiées par MongoDB dans le même aller-retour que l'écriture (findAndModify conditionnel)
+        return operationMetrics.timed("updateTransaction", Mono.defer(() -> {
+                    updateAttempts.increment();
+                    return transactionRepository.updateIfTransitionAllowed(id, transaction)
+                            .switchIfEmpty(Mono.defer(() -> rejectUpdate(id, transaction)));
+                })
+                // ⬅️ Conflit de version sans If-Match : on rejoue la mise à jour sur l'état courant
+                .retryWhen(Retry.backoff(updateRetryProperties.getMaxAttempts(), updateRetryProperties.getMinBackoff())
+                        .maxBackoff(updateRetryProperties.getMaxBackoff())
+                        .jitter(updateRetryProperties.getJitter())
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .doBeforeRetry(signal -> log.warn("Retrying update of transaction id={} after conflict (attempt {})",
+                                id, signal.totalRetries() + 1))
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            exhaustedRetries.increment();
+                            return signal.failure();
+                        }))
+                // ⬅️ findAndModify renvoie l'état précédent : ancien et nouveau statut / montant pour les totaux
+                .flatMap(previousTransaction -> {
+                    Transaction updatedTransaction = applyUpdate(previousTransaction, transaction);
+                    return updateSummaryInBackground(
+                                    applySummaryDeltas(TransactionSummaries.updated(previousTransaction, updatedTransaction))
+                                            .then(completeSummaryTracking(id)))
+                            .thenReturn(withOrderLines(updatedTransaction, transaction));
+                })
+                .doOnNext(transactionCache::put)
+                .doOnSuccess(savedTransaction -> successLog.event("updateTransaction", "transaction updated")
+                        .addKeyValue("id", id)
+                        .addKeyValue("status", savedTransaction.getStatus())
+                        .addKeyValue("amount", savedTransaction.getAmount())
+                        .addKeyValue("paymentType", savedTransaction.getPaymentType())
+                        .log()));
+    }
 
-                    // - On ne peut passer à CAPTURED que si l'ancien statut n'est pas AUTHORIZED
-                    Status oldStatus = existingTransaction.getStatus();
-                    Status newStatus = transaction.getStatus() != null ? transaction.getStatus() : oldStatus;
+    // mêmes champs que l'Update de updateIfTransitionAllowed
+    private static Transaction applyUpdate(Transaction previousTransaction, Transaction transaction) {
+        Long previousVersion = previousTransaction.getVersion();
+        return previousTransaction.toBuilder()
+                .amount(transaction.getAmount())
+                .paymentType(transaction.getPaymentType())
+                .status(transaction.getStatus() != null ? transaction.getStatus() : previousTransaction.getStatus())
+                .version(previousVersion != null ? previousVersion + 1 : 1)
+                .build();
+    }
+
+    // findAndModify ne renvoie pas les lignes : l'empreinte ayant été vérifiée (ou posée sur un document écrit
+    // avant elle), ce sont celles de la requête
+    private static Transaction withOrderLines(Transaction updatedTransaction, Transaction transaction) {
+        return updatedTransaction.toBuilder()
+                .orderLines(OrderFingerprint.NO_ORDER_LINES.equals(updatedTransaction.getOrderFingerprint())
+                        ? null : transaction.getOrderLines())
+                .build();
+    }
+
+    // ⬅️ Totaux et marqueur hors du chemin de la requête : la réponse part après la seule écriture de la transaction.
+    // Le marqueur écrit avec elle tient TransactionSummaryRebuilder à l'écart du groupe en attendant ; une mise à jour
+    // perdue (arrêt de l'instance) est rattrapée après in-flight-timeout. Au-delà de max-pending, la requête attend.
+    private Mono<Void> updateSummaryInBackground(Mono<Void> summaryWrite) {
+        return Mono.defer(() -> {
+            if (pendingSummaryWrites.incrementAndGet() > summaryWriteProperties.getMaxPending()) {
+                pendingSummaryWrites.decrementAndGet();
+                return summaryWrite;
+            }
+            // erreurs déjà journalisées et absorbées par applySummaryDeltas / completeSummaryTracking
+            summaryWrite.doFinally(signal -> pendingSummaryWrites.decrementAndGet()).subscribe();
+            return Mono.empty();
+        });
+    }
 
-                    if (newStatus == CAPTURED && oldStatus != AUTHORIZED) {
-                        log.warn("Invalid transition to CAPTURED for transaction id={} (current status={})",
-                                id, oldStatus);
-                        return Mono.error(new CapturedNotAllowException
-                                ("Cannot switch to CAPTURED if the transaction is not AUTHORIZED"));
+    // La transaction est déjà écrite : un échec ici ne fait que décaler les totaux, corrigés par TransactionSummaryRebuilder
+    private Mono<Void> applySummaryDeltas(List<TransactionSummaryDelta> deltas) {
+        return transactionSummaryRepository.applyDeltas(deltas)
+                .onErrorResume(e -> {
+                    log.error("Failed to update transaction summary, drift left to the rebuild job: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    // Même en cas d'échec des totaux : sans marqueur, l'écart est corrigé à la prochaine reconstruction
+    private Mono<Void> completeSummaryTracking(String id) {
+        return transactionRepository.completeSummaryTracking(id)
+                .onErrorResume(e -> {
+                    log.error("Failed to complete summary tracking of transaction id={}: {}", id, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> completeSummaryTracking(List<String> ids) {
+        return transactionRepository.completeSummaryTracking(ids)
+                .onErrorResume(e -> {
+                    log.error("Failed to complete summary tracking of {} transaction(s): {}", ids.size(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    // Chemin d'échec uniquement : relit la transaction pour savoir quelle règle a refusé la mise à jour
+    // (lecture directe dans MongoDB, le cache pouvant contenir une version périmée)
+    private Mono<Transaction> rejectUpdate(String id, Transaction transaction) {
+        return transactionRepository.findById(id)
+                .switchIfEmpty(Mono.error(new TransactionNotFoundException(id)))
+                .doOnNext(transactionCache::put)
+                .flatMap(existingTransaction -> {
+                    RuntimeException violation = TransactionUpdateRules.violation(id, existingTransaction, transaction);
+                    if (violation instanceof TransactionVersionMismatchException) {
+                        preconditionConflicts.increment();
+                    }
+                    if (violation != null) {
+                        log.warn("Update of transaction id={} rejected (current status={}, version={}): {}",
+                                id, existingTransaction.getStatus(), existingTransaction.getVersion(),
+                                violation.getMessage());
+                        return Mono.error(violation);
                     }
 
-                    // 🔹 Mise à jour des champs autorisés
-                    Transaction updatedTransaction= existingTransaction.toBuilder()
-                            .status(newStatus)
-                            .amount(transaction.getAmount())
-                            .paymentType(transaction.getPaymentType())
-                            .build();
-
-                    return transactionRepository.save(updatedTransaction)
-                            .doOnSuccess(savedTransaction ->
-                                    log.info("Saving updated transaction: id= {} with new values: , status= {}, amount= {}, paymentType= {}",
-                                            id, newStatus, savedTransaction.getAmount(), savedTransaction.getPaymentType()));
+                    // aucune règle violée : la transaction a changé entre l'écriture conditionnelle et la relecture
+                    log.warn("Concurrent modification detected on transaction id={}", id);
+                    concurrentConflicts.increment();
+                    return Mono.error(new OptimisticLockingFailureException
+                            ("Transaction was modified concurrently, please retry"));
                 });
     }
 }
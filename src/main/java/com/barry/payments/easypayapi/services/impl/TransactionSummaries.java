@@ -0,0 +1,114 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.models.BatchItemResult;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.models.TransactionSummary;
+import com.barry.payments.easypayapi.models.TransactionSummaryDelta;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Calcul des variations à appliquer aux totaux pré-agrégés (collection transactionSummary).
+ */
+final class TransactionSummaries {
+
+    private TransactionSummaries() {
+    }
+
+    static List<TransactionSummaryDelta> created(Transaction transaction) {
+        return List.of(added(transaction));
+    }
+
+    // une seule variation par couple (status, paymentType) pour tout un lot
+    static List<TransactionSummaryDelta> created(List<Transaction> chunk, List<BatchItemResult> results) {
+        Map<String, TransactionSummaryDelta> deltas = new LinkedHashMap<>();
+        results.stream()
+                .filter(BatchItemResult::isSuccess)
+                .map(result -> added(chunk.get((int) result.getIndex())))
+                .forEach(delta -> deltas.merge(TransactionSummary.idOf(delta.getStatus(), delta.getPaymentType()),
+                        delta, TransactionSummaries::merge));
+        return new ArrayList<>(deltas.values());
+    }
+
+    static List<TransactionSummaryDelta> updated(Transaction previous, Transaction updated) {
+        boolean sameGroup = previous.getStatus() == updated.getStatus()
+                && previous.getPaymentType() == updated.getPaymentType();
+        if (!sameGroup) {
+            return List.of(removed(previous), added(updated));
+        }
+        if (sameAmount(previous.getAmount(), updated.getAmount())) {
+            return List.of();
+        }
+        return List.of(merge(removed(previous), added(updated)));
+    }
+
+    static TransactionStats toStats(TransactionSummary summary) {
+        BigDecimal average = summary.getCount() > 0 && summary.getTotalAmount() != null
+                ? summary.getTotalAmount().divide(BigDecimal.valueOf(summary.getCount()), MathContext.DECIMAL128)
+                : null;
+        return TransactionStats.builder()
+                .status(summary.getStatus())
+                .paymentType(summary.getPaymentType())
+                .count(summary.getCount())
+                .totalAmount(summary.getTotalAmount())
+                .minAmount(summary.getMinAmount())
+                .maxAmount(summary.getMaxAmount())
+                .averageAmount(average)
+                .build();
+    }
+
+    static boolean sameAmount(BigDecimal left, BigDecimal right) {
+        return left == null || right == null ? Objects.equals(left, right) : left.compareTo(right) == 0;
+    }
+
+    private static TransactionSummaryDelta added(Transaction transaction) {
+        return TransactionSummaryDelta.builder()
+                .status(transaction.getStatus())
+                .paymentType(transaction.getPaymentType())
+                .count(1)
+                .amount(transaction.getAmount())
+                .minAmount(transaction.getAmount())
+                .maxAmount(transaction.getAmount())
+                .build();
+    }
+
+    private static TransactionSummaryDelta removed(Transaction transaction) {
+        return TransactionSummaryDelta.builder()
+                .status(transaction.getStatus())
+                .paymentType(transaction.getPaymentType())
+                .count(-1)
+                .amount(transaction.getAmount() != null ? transaction.getAmount().negate() : null)
+                .build();
+    }
+
+    private static TransactionSummaryDelta merge(TransactionSummaryDelta left, TransactionSummaryDelta right) {
+        return left.toBuilder()
+                .count(left.getCount() + right.getCount())
+                .amount(sum(left.getAmount(), right.getAmount()))
+                .minAmount(bound(left.getMinAmount(), right.getMinAmount(), -1))
+                .maxAmount(bound(left.getMaxAmount(), right.getMaxAmount(), 1))
+                .build();
+    }
+
+    private static BigDecimal sum(BigDecimal left, BigDecimal right) {
+        if (left == null || right == null) {
+            return left != null ? left : right;
+        }
+        return left.add(right);
+    }
+
+    // sign = -1 : plus petite valeur, sign = 1 : plus grande valeur
+    private static BigDecimal bound(BigDecimal left, BigDecimal right, int sign) {
+        if (left == null || right == null) {
+            return left != null ? left : right;
+        }
+        return Integer.signum(left.compareTo(right)) == sign ? left : right;
+    }
+}
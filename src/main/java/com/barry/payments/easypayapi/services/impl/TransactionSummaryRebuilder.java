@@ -0,0 +1,158 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.config.TransactionSummaryProperties;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.models.TransactionSummary;
+import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import com.barry.payments.easypayapi.reporitories.TransactionSummaryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Vérifie les totaux pré-agrégés contre un $group sur la collection transaction et corrige les écarts
+ * (écriture de totaux ayant échoué, données modifiées hors de l'API...).
+ * Une correction n'est appliquée que si le total n'a reçu aucune écriture depuis sa lecture (revision)
+ * et qu'aucune écriture marquée en cours (Transaction.summaryTracking) ne touche le groupe : l'agrégation compte déjà
+ * cette transaction, sa variation arrivée après la correction la compterait deux fois.
+ * Sinon la correction est reportée à la vérification suivante.
+ */
+@Component
+@Log4j2
+public class TransactionSummaryRebuilder {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionSummaryRepository transactionSummaryRepository;
+    private final TransactionSummaryProperties transactionSummaryProperties;
+    private final Counter driftCorrections;
+
+    public TransactionSummaryRebuilder(TransactionRepository transactionRepository,
+                                       TransactionSummaryRepository transactionSummaryRepository,
+                                       TransactionSummaryProperties transactionSummaryProperties,
+                                       MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.transactionSummaryRepository = transactionSummaryRepository;
+        this.transactionSummaryProperties = transactionSummaryProperties;
+        this.driftCorrections = Counter.builder("transactions.summary.drift.corrections")
+                .description("Summary documents corrected by the rebuild job")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${easypay.summary.rebuild.initial-delay:PT10S}",
+            fixedDelayString = "${easypay.summary.rebuild.interval:PT10M}")
+    public void scheduledRebuild() {
+        if (!transactionSummaryProperties.isEnabled()) {
+            return;
+        }
+        rebuild()
+                .doOnError(e -> log.error("Transaction summary rebuild failed: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .block(transactionSummaryProperties.getTimeout());
+    }
+
+    // renvoie le nombre de totaux corrigés
+    public Mono<Long> rebuild() {
+        // les totaux sont lus AVANT l'agrégation : une écriture intercalée change leur revision ;
+        // les écritures en cours sont lues APRÈS : toute variation pas encore appliquée y figure encore
+        return resetAbandonedTracking()
+                .then(transactionSummaryRepository.findAll().collectMap(TransactionSummary::getId))
+                .flatMap(current -> transactionRepository.aggregateStats(new TransactionFilter())
+                        .collectMap(stats -> TransactionSummary.idOf(stats.getStatus(), stats.getPaymentType()))
+                        .flatMap(expected -> transactionRepository.findSummaryInFlight()
+                                .collectList()
+                                .flatMap(inFlight -> repair(current, expected, inFlight))))
+                .doOnNext(corrected -> {
+                    driftCorrections.increment(corrected);
+                    if (corrected > 0) {
+                        log.warn("Transaction summary drift corrected on {} group(s)", corrected);
+                    } else {
+                        log.info("Transaction summary verified, no drift");
+                    }
+                });
+    }
+
+    // instance arrêtée entre l'écriture et ses totaux : le marqueur ne sera jamais levé, l'agrégation fait foi
+    private Mono<Void> resetAbandonedTracking() {
+        Instant abandonedBefore = Instant.now().minus(transactionSummaryProperties.getInFlightTimeout());
+        return transactionRepository.findSummaryInFlight()
+                .filter(transaction -> transaction.getSummaryTracking().getSince() == null
+                        || transaction.getSummaryTracking().getSince().isBefore(abandonedBefore))
+                .concatMap(transactionRepository::resetSummaryTracking)
+                .filter(Boolean::booleanValue)
+                .count()
+                .doOnNext(reset -> {
+                    if (reset > 0) {
+                        log.warn("Transaction summary tracking reset on {} abandoned write(s)", reset);
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Long> repair(Map<String, TransactionSummary> current, Map<String, TransactionStats> expected,
+                              List<Transaction> inFlight) {
+        // document écrit avant le marqueur : son ancien groupe est inconnu, toute la vérification est reportée
+        if (inFlight.stream().anyMatch(transaction -> !transaction.getSummaryTracking().isTracked())) {
+            log.info("Transaction summary rebuild postponed, untracked write in flight");
+            return Mono.just(0L);
+        }
+        Set<String> ids = new HashSet<>(current.keySet());
+        ids.addAll(expected.keySet());
+        inFlight.forEach(transaction -> {
+            ids.remove(TransactionSummary.idOf(transaction.getStatus(), transaction.getPaymentType()));
+            ids.removeAll(transaction.getSummaryTracking().getGroups());
+        });
+        return Flux.fromIterable(ids)
+                .concatMap(id -> repair(id, current.get(id), expected.get(id)))
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+
+    private Mono<Boolean> repair(String id, TransactionSummary summary, TransactionStats stats) {
+        if (summary == null) {
+            return transactionSummaryRepository.insert(toSummary(id, stats))
+                    .thenReturn(true)
+                    // créé entre-temps par une écriture : vérifié au prochain passage
+                    .onErrorResume(DuplicateKeyException.class, e -> Mono.just(false));
+        }
+        if (stats == null) {
+            // plus aucune transaction dans ce groupe
+            return transactionSummaryRepository.deleteIfUnchanged(id, summary.getRevision());
+        }
+        if (matches(summary, stats)) {
+            return Mono.just(false);
+        }
+        return transactionSummaryRepository.replaceIfUnchanged(toSummary(id, stats), summary.getRevision());
+    }
+
+    private static boolean matches(TransactionSummary summary, TransactionStats stats) {
+        return summary.getCount() == stats.getCount()
+                && TransactionSummaries.sameAmount(summary.getTotalAmount(), stats.getTotalAmount())
+                && TransactionSummaries.sameAmount(summary.getMinAmount(), stats.getMinAmount())
+                && TransactionSummaries.sameAmount(summary.getMaxAmount(), stats.getMaxAmount());
+    }
+
+    private static TransactionSummary toSummary(String id, TransactionStats stats) {
+        return TransactionSummary.builder()
+                .id(id)
+                .status(stats.getStatus())
+                .paymentType(stats.getPaymentType())
+                .count(stats.getCount())
+                .totalAmount(stats.getTotalAmount())
+                .minAmount(stats.getMinAmount())
+                .maxAmount(stats.getMaxAmount())
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.exceptions.CannotModifyCapturedTransactionException;
+import com.barry.payments.easypayapi.exceptions.CapturedNotAllowException;
+import com.barry.payments.easypayapi.exceptions.TransactionVersionMismatchException;
+import com.barry.payments.easypayapi.models.OrderFingerprint;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.enums.Status;
+
+import static com.barry.payments.easypayapi.models.enums.Status.AUTHORIZED;
+import static com.barry.payments.easypayapi.models.enums.Status.CAPTURED;
+
+/**
+ * Règles d'une mise à jour, évaluées sur la transaction stockée et la modification demandée.
+ * Les mêmes règles sont portées par le filtre du findAndModify conditionnel ; elles ne sont évaluées ici
+ * que pour expliquer un refus.
+ */
+final class TransactionUpdateRules {
+
+    private TransactionUpdateRules() {
+    }
+
+    // null si aucune règle n'est violée
+    static RuntimeException violation(String id, Transaction existingTransaction, Transaction transaction) {
+
+        // If-Match : le client a modifié une version qui n'est plus la version courante
+        if (transaction.getVersion() != null
+                && !transaction.getVersion().equals(existingTransaction.getVersion())) {
+            return new TransactionVersionMismatchException(
+                    id, transaction.getVersion(), existingTransaction.getVersion());
+        }
+
+        //pas possible de modifier le statut d'une transaction "CAPTURED"
+        if (CAPTURED.equals(existingTransaction.getStatus())) {
+            return new CannotModifyCapturedTransactionException("Cannot modify CAPTURED transaction");
+        }
+
+        //Règle 2 : la commande d'une transaction ne peut pas être modifiée (comparaison des empreintes)
+        String existingFingerprint = OrderFingerprint.of(existingTransaction);
+        if (!OrderFingerprint.NO_ORDER_LINES.equals(existingFingerprint) &&
+                !existingFingerprint.equals(OrderFingerprint.of(transaction.getOrderLines()))) {
+            return new CannotModifyCapturedTransactionException("The order of transaction cannot be changed");
+        }
+
+        // - On ne peut passer à CAPTURED que si l'ancien statut n'est pas AUTHORIZED
+        Status oldStatus = existingTransaction.getStatus();
+        Status newStatus = transaction.getStatus() != null ? transaction.getStatus() : oldStatus;
+
+        if (newStatus == CAPTURED && oldStatus != AUTHORIZED) {
+            return new CapturedNotAllowException("Cannot switch to CAPTURED if the transaction is not AUTHORIZED");
+        }
+        return null;
+    }
+}
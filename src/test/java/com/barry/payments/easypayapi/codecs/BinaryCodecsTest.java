@@ -0,0 +1,177 @@
+package com.barry.payments.easypayapi.codecs;
+
+import com.barry.payments.easypayapi.dtos.OrderLineDTO;
+import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
+import static com.barry.payments.easypayapi.models.enums.Status.AUTHORIZED;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinaryCodecsTest {
+
+    private static final ResolvableType DTO_TYPE = ResolvableType.forClass(TransactionDTO.class);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+    private final StreamingCborEncoder encoder = new StreamingCborEncoder(cborMapper);
+    private final StreamingCborDecoder decoder = new StreamingCborDecoder(cborMapper);
+
+    private final TransactionDTO first = TransactionDTO.builder()
+            .id("AWS")
+            .status(NEW)
+            .amount(new BigDecimal("7687569.50"))
+            .paymentType(PAYPAL)
+            .orderLines(List.of(OrderLineDTO.builder().id("OL-1").productName("Gloves").quantity(2).price(new BigDecimal("50.0")).build()))
+            .build();
+    private final TransactionDTO second = TransactionDTO.builder().id("AXA").status(AUTHORIZED).build();
+
+    @Test
+    void shouldEncodeFluxAsIndefiniteLengthArray() throws Exception {
+        //when
+        byte[] body = encode(Flux.just(first, second), BinaryMediaTypes.APPLICATION_CBOR);
+
+        //then : tableau CBOR lisible par n'importe quel parseur, BigDecimal exact
+        assertThat(body[0]).isEqualTo((byte) 0x9F);
+        assertThat(body[body.length - 1]).isEqualTo((byte) 0xFF);
+        List<TransactionDTO> decoded = cborMapper.readValue(body, new TypeReference<>() {
+        });
+        assertThat(decoded).containsExactly(first, second);
+        assertThat(decoded.get(0).getAmount()).isEqualTo(new BigDecimal("7687569.50"));
+    }
+
+    @Test
+    void shouldEncodeFluxAsConcatenatedDocumentsForCborSeq() throws Exception {
+        //when
+        byte[] body = encode(Flux.just(first, second), BinaryMediaTypes.APPLICATION_CBOR_SEQ);
+
+        //then
+        List<TransactionDTO> decoded = cborMapper.readerFor(TransactionDTO.class)
+                .<TransactionDTO>readValues(body).readAll();
+        assertThat(decoded).containsExactly(first, second);
+    }
+
+    @Test
+    void shouldEncodeEmptyFluxAsEmptyArrayAndMonoAsSingleDocument() throws Exception {
+        //when then
+        assertThat(cborMapper.readValue(encode(Flux.empty(), BinaryMediaTypes.APPLICATION_CBOR), List.class)).isEmpty();
+        assertThat(cborMapper.readValue(encode(Mono.just(first), BinaryMediaTypes.APPLICATION_CBOR), TransactionDTO.class))
+                .isEqualTo(first);
+    }
+
+    @Test
+    void shouldDecodeArrayAndSequenceIntoElements() {
+        //given
+        byte[] array = encode(Flux.just(first, second), BinaryMediaTypes.APPLICATION_CBOR);
+        byte[] sequence = encode(Flux.just(first, second), BinaryMediaTypes.APPLICATION_CBOR_SEQ);
+
+        //when then
+        StepVerifier.create(decoder.decode(body(array), DTO_TYPE, BinaryMediaTypes.APPLICATION_CBOR, Map.of()))
+                .expectNext(first, second)
+                .verifyComplete();
+        StepVerifier.create(decoder.decode(body(sequence), DTO_TYPE, BinaryMediaTypes.APPLICATION_CBOR_SEQ, Map.of()))
+                .expectNext(first, second)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFailWithDecodingExceptionOnTruncatedBody() {
+        //given
+        byte[] body = encode(Flux.just(first), BinaryMediaTypes.APPLICATION_CBOR_SEQ);
+        byte[] truncated = Arrays.copyOf(body, body.length - 3);
+
+        //when then
+        StepVerifier.create(decoder.decode(body(truncated), DTO_TYPE, BinaryMediaTypes.APPLICATION_CBOR_SEQ, Map.of()))
+                .verifyError(DecodingException.class);
+    }
+
+    @Test
+    void shouldWriteSmileFluxAsSingleArrayAndStreamAsDocuments() throws Exception {
+        //given
+        ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+        SmileArrayEncoder smileEncoder = new SmileArrayEncoder(smileMapper);
+
+        //when
+        byte[] array = join(smileEncoder.encode(Flux.just(first, second), DefaultDataBufferFactory.sharedInstance,
+                DTO_TYPE, BinaryMediaTypes.APPLICATION_SMILE, Map.of()));
+        byte[] stream = join(smileEncoder.encode(Flux.just(first, second), DefaultDataBufferFactory.sharedInstance,
+                DTO_TYPE, BinaryMediaTypes.APPLICATION_STREAM_SMILE, Map.of()));
+
+        //then
+        assertThat(smileMapper.<List<TransactionDTO>>readValue(array, new TypeReference<>() {
+        })).containsExactly(first, second);
+        assertThat(smileMapper.readerFor(TransactionDTO.class).<TransactionDTO>readValues(stream).readAll())
+                .containsExactly(first, second);
+    }
+
+    @Test
+    void shouldWriteEachSmileElementBeforeTheFluxCompletes() throws Exception {
+        //given
+        ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+        SmileArrayEncoder smileEncoder = new SmileArrayEncoder(smileMapper);
+        Sinks.Many<TransactionDTO> source = Sinks.many().unicast().onBackpressureBuffer();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        //when then : début du tableau, puis un buffer par élément, sans attendre la fin du flux
+        StepVerifier.create(smileEncoder.encode(source.asFlux(), DefaultDataBufferFactory.sharedInstance,
+                        DTO_TYPE, BinaryMediaTypes.APPLICATION_SMILE, Map.of()).map(BinaryCodecsTest::bytes))
+                .consumeNextWith(body::writeBytes)
+                .then(() -> source.tryEmitNext(first))
+                .consumeNextWith(body::writeBytes)
+                .then(() -> source.tryEmitNext(second))
+                .consumeNextWith(body::writeBytes)
+                .then(source::tryEmitComplete)
+                .consumeNextWith(body::writeBytes)
+                .verifyComplete();
+
+        //then
+        assertThat(smileMapper.readValue(body.toByteArray(), new TypeReference<List<TransactionDTO>>() {
+        })).containsExactly(first, second);
+    }
+
+    private byte[] encode(Publisher<TransactionDTO> input, MimeType mimeType) {
+        return join(encoder.encode(input, DefaultDataBufferFactory.sharedInstance, DTO_TYPE, mimeType, Map.of()));
+    }
+
+    private static byte[] join(Flux<DataBuffer> buffers) {
+        return bytes(DataBufferUtils.join(buffers).block());
+    }
+
+    private static byte[] bytes(DataBuffer buffer) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+
+    private static Flux<DataBuffer> body(byte[] bytes) {
+        // deux buffers : le décodeur ne doit pas supposer un corps en un seul morceau
+        int half = bytes.length / 2;
+        return Flux.just(
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, 0, half)),
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, half, bytes.length)));
+    }
+}
@@ -0,0 +1,97 @@
+package com.barry.payments.easypayapi.codecs;
+
+import com.barry.payments.easypayapi.mappers.TransactionMapper;
+import com.barry.payments.easypayapi.mappers.TransactionMapperImpl;
+import com.barry.payments.easypayapi.models.OrderLine;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
+import static com.barry.payments.easypayapi.models.enums.Status.AUTHORIZED;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionJsonEncoderTest {
+
+    private static final ResolvableType TRANSACTION_TYPE = ResolvableType.forClass(Transaction.class);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final TransactionMapper transactionMapper = new TransactionMapperImpl();
+    private final TransactionJsonEncoder directEncoder = new TransactionJsonEncoder(objectMapper);
+    private final TransactionDtoEncoder dtoEncoder =
+            new TransactionDtoEncoder(transactionMapper, new Jackson2JsonEncoder(objectMapper));
+
+    private final Transaction transaction = Transaction.builder()
+            .id("AWS")
+            .status(NEW)
+            .amount(new BigDecimal("7687569.50"))
+            .paymentType(PAYPAL)
+            .orderLines(List.of(
+                    OrderLine.builder().id("OL-1").productName("Ski \"Pro\" Gloves").quantity(2).price(new BigDecimal("50.0")).build(),
+                    OrderLine.builder().id("OL-2").build()))
+            .version(3L)
+            .orderFingerprint("abc")
+            .build();
+    // projection fields=id,status : les autres champs sont null
+    private final Transaction projected = Transaction.builder().id("AXA").status(AUTHORIZED).orderLines(null).build();
+
+    @Test
+    void shouldWriteSameJsonArrayAsDtoPath() {
+        //when
+        String direct = encode(directEncoder, Flux.just(transaction, projected), MediaType.APPLICATION_JSON);
+        String dto = encode(dtoEncoder, Flux.just(transaction, projected), MediaType.APPLICATION_JSON);
+
+        //then
+        assertThat(direct).isEqualTo(dto);
+        assertThat(direct).doesNotContain("version", "orderFingerprint");
+    }
+
+    @Test
+    void shouldWriteOneLinePerTransactionForNdjson() {
+        //when
+        String direct = encode(directEncoder, Flux.just(transaction, projected), MediaType.APPLICATION_NDJSON);
+        String dto = encode(dtoEncoder, Flux.just(transaction, projected), MediaType.APPLICATION_NDJSON);
+
+        //then
+        assertThat(direct).isEqualTo(dto);
+        assertThat(direct.split("\n")).hasSize(2);
+    }
+
+    @Test
+    void shouldWriteEmptyArrayAndSingleObject() {
+        //when then
+        assertThat(encode(directEncoder, Flux.empty(), MediaType.APPLICATION_JSON)).isEqualTo("[]");
+        assertThat(encode(directEncoder, Mono.just(projected), MediaType.APPLICATION_JSON))
+                .isEqualTo(encode(dtoEncoder, Mono.just(projected), MediaType.APPLICATION_JSON))
+                .isEqualTo("{\"id\":\"AXA\",\"status\":\"AUTHORIZED\"}");
+    }
+
+    private static String encode(Encoder<Transaction> encoder, Publisher<Transaction> transactions, MimeType mimeType) {
+        return Flux.from(encoder.encode(transactions, DefaultDataBufferFactory.sharedInstance, TRANSACTION_TYPE, mimeType, Map.of()))
+                .map(buffer -> {
+                    String chunk = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return chunk;
+                })
+                .collectList()
+                .map(chunks -> String.join("", chunks))
+                .block();
+    }
+}
@@ -0,0 +1,152 @@
+package com.barry.payments.easypayapi.config;
+
+import com.barry.payments.easypayapi.models.OrderLine;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// migration déclenchée à la main, par lots de 3 pour traverser plusieurs bulk writes
+@SpringBootTest(properties = {
+        "easypay.migration.decimal128.enabled=false",
+        "easypay.migration.decimal128.batch-size=3"
+})
+@ActiveProfiles("test")
+class AmountDecimal128MigrationIT {
+
+    private static final String COLLECTION = "transaction";
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AmountDecimal128Migration amountDecimal128Migration;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void cleanDb() {
+        transactionRepository.deleteAll().block();
+    }
+
+    @Test
+    void shouldStoreAmountAndPriceAsDecimal128() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("TX-1")
+                .amount(new BigDecimal("1250.75"))
+                .paymentType(PAYPAL)
+                .orderLines(List.of(OrderLine.builder().id("OL-1").productName("Laptop").quantity(1)
+                        .price(new BigDecimal("1250.75")).build()))
+                .build();
+
+        //when
+        transactionRepository.save(transaction).block();
+        Document stored = rawTransaction("TX-1");
+
+        //then
+        assertThat(stored.get("amount")).isEqualTo(new Decimal128(new BigDecimal("1250.75")));
+        assertThat(stored.getList("orderLines", Document.class).get(0).get("price"))
+                .isEqualTo(new Decimal128(new BigDecimal("1250.75")));
+        assertThat(transactionRepository.findById("TX-1").block().getAmount()).isEqualTo(new BigDecimal("1250.75"));
+    }
+
+    @Test
+    void shouldMigrateStringAmountsToDecimal128ByBatches() {
+        //given : documents écrits avec l'ancienne représentation (chaîne)
+        List<Document> legacy = IntStream.range(0, 7)
+                .mapToObj(i -> new Document("_id", "TX-" + i)
+                        .append("amount", i + ".50")
+                        .append("paymentType", "PAYPAL")
+                        .append("status", "NEW")
+                        .append("orderLines", List.of(new Document("_id", "OL-" + i)
+                                .append("productName", "Product-" + i)
+                                .append("quantity", 1)
+                                .append("price", i + ".50"))))
+                .toList();
+        reactiveMongoTemplate.insert(legacy, COLLECTION).collectList().block();
+        transactionRepository.save(Transaction.builder().id("TX-NEW").amount(BigDecimal.TEN).paymentType(PAYPAL).build()).block();
+
+        //when
+        Long migrated = amountDecimal128Migration.migrate().block();
+
+        //then
+        assertThat(migrated).isEqualTo(7);
+        Document stored = rawTransaction("TX-3");
+        assertThat(stored.get("amount")).isEqualTo(new Decimal128(new BigDecimal("3.50")));
+        assertThat(stored.getList("orderLines", Document.class).get(0).get("price"))
+                .isEqualTo(new Decimal128(new BigDecimal("3.50")));
+        assertThat(stored.getList("orderLines", Document.class).get(0).get("productName")).isEqualTo("Product-3");
+
+        //then : relancer la migration ne trouve plus rien à convertir
+        assertThat(amountDecimal128Migration.migrate().block()).isZero();
+    }
+
+    @Test
+    void shouldIncludeNotYetMigratedStringAmountsInStats() {
+        //given : un montant en chaîne à côté d'un montant Decimal128
+        reactiveMongoTemplate.insert(new Document("_id", "TX-LEGACY")
+                .append("amount", "2.50")
+                .append("paymentType", "PAYPAL")
+                .append("status", "NEW"), COLLECTION).block();
+        transactionRepository.save(Transaction.builder().id("TX-NEW").amount(BigDecimal.TEN).paymentType(PAYPAL)
+                .status(NEW).build()).block();
+
+        //when
+        List<TransactionStats> stats = transactionRepository.aggregateStats(new TransactionFilter()).collectList().block();
+
+        //then
+        assertThat(stats).singleElement().satisfies(group -> {
+            assertThat(group.getCount()).isEqualTo(2);
+            assertThat(group.getTotalAmount()).isEqualByComparingTo("12.50");
+            assertThat(group.getMinAmount()).isEqualByComparingTo("2.50");
+        });
+    }
+
+    @Test
+    void shouldCountTransactionsSkippedByMigration() {
+        //given
+        reactiveMongoTemplate.insert(new Document("_id", "TX-INVALID")
+                .append("amount", "not-a-number")
+                .append("paymentType", "PAYPAL")
+                .append("status", "NEW"), COLLECTION).block();
+        double skippedBefore = meterRegistry.counter("transactions.migration.decimal128.skipped").count();
+
+        //when
+        Long migrated = amountDecimal128Migration.migrate().block();
+
+        //then
+        assertThat(migrated).isZero();
+        assertThat(meterRegistry.counter("transactions.migration.decimal128.skipped").count()).isEqualTo(skippedBefore + 1);
+        assertThat(transactionRepository.aggregateStats(new TransactionFilter()).collectList().block())
+                .singleElement()
+                .satisfies(group -> assertThat(group.getCount()).isEqualTo(1));
+    }
+
+    private Document rawTransaction(String id) {
+        return reactiveMongoTemplate.findOne(Query.query(Criteria.where("_id").is(id)), Document.class, COLLECTION).block();
+    }
+}
@@ -0,0 +1,127 @@
+package com.barry.payments.easypayapi.config;
+
+import com.barry.payments.easypayapi.models.IdempotencyRecord;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MongoIndexInitializerTest {
+
+    @Mock
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Mock
+    private ReactiveIndexOperations transactionIndexOps;
+
+    @Mock
+    private ReactiveIndexOperations idempotencyIndexOps;
+
+    private final IdempotencyProperties idempotencyProperties = new IdempotencyProperties();
+    private MongoIndexInitializer initializer;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyProperties.setTtl(Duration.ofHours(2));
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        initializer = new MongoIndexInitializer(reactiveMongoTemplate, mappingContext, idempotencyProperties);
+        when(reactiveMongoTemplate.indexOps(Transaction.class)).thenReturn(transactionIndexOps);
+        when(reactiveMongoTemplate.indexOps(IdempotencyRecord.class)).thenReturn(idempotencyIndexOps);
+        when(transactionIndexOps.createIndex(any(IndexDefinition.class))).thenReturn(Mono.just("status_id"));
+    }
+
+    @Test
+    void shouldUpdateTtlWithCollModWhenIndexOptionsConflict() {
+        //given
+        when(idempotencyIndexOps.createIndex(any(IndexDefinition.class))).thenReturn(Mono.error(serverError(85)));
+        when(reactiveMongoTemplate.getCollectionName(IdempotencyRecord.class)).thenReturn("idempotencyKeys");
+        when(reactiveMongoTemplate.executeCommand(any(Document.class))).thenReturn(Mono.just(new Document("ok", 1)));
+
+        //when
+        initializer.ensureIndexes();
+
+        //then
+        ArgumentCaptor<Document> command = ArgumentCaptor.forClass(Document.class);
+        verify(reactiveMongoTemplate).executeCommand(command.capture());
+        assertThat(command.getValue().getString("collMod")).isEqualTo("idempotencyKeys");
+        assertThat(command.getValue().get("index", Document.class))
+                .containsEntry("name", "createdAt_ttl")
+                .containsEntry("expireAfterSeconds", 7200L);
+    }
+
+    @Test
+    void shouldCreateTtlIndexWithConfiguredExpiration() {
+        //given
+        when(idempotencyIndexOps.createIndex(any(IndexDefinition.class))).thenReturn(Mono.just("createdAt_ttl"));
+
+        //when
+        initializer.ensureIndexes();
+
+        //verify
+        verify(idempotencyIndexOps).createIndex(argThat((IndexDefinition index) ->
+                Long.valueOf(7200).equals(index.getIndexOptions().get("expireAfterSeconds"))));
+        verify(reactiveMongoTemplate, never()).executeCommand(any(Document.class));
+    }
+
+    @Test
+    void shouldCreatePartialIndexOnInFlightSummaryWriters() {
+        //given
+        when(idempotencyIndexOps.createIndex(any(IndexDefinition.class))).thenReturn(Mono.just("createdAt_ttl"));
+
+        //when
+        initializer.ensureIndexes();
+
+        //verify
+        verify(transactionIndexOps).createIndex(argThat((IndexDefinition index) ->
+                index.getIndexKeys().containsKey("summaryTracking.writers")
+                        && index.getIndexOptions().get("partialFilterExpression", Document.class)
+                        .get("summaryTracking.writers", Document.class).containsKey("$gt")));
+    }
+
+    @Test
+    void shouldPropagateOtherIndexErrors() {
+        //given
+        when(idempotencyIndexOps.createIndex(any(IndexDefinition.class))).thenReturn(Mono.error(serverError(86)));
+
+        //when then
+        assertThatThrownBy(() -> initializer.ensureIndexes())
+                .isInstanceOf(UncategorizedMongoDbException.class);
+
+        //verify
+        verify(reactiveMongoTemplate, never()).executeCommand(any(Document.class));
+    }
+
+    // erreur serveur telle que traduite par ReactiveMongoTemplate
+    private static UncategorizedMongoDbException serverError(int code) {
+        BsonDocument response = BsonDocument.parse("{ok: 0, code: " + code + ", errmsg: 'index conflict'}");
+        return new UncategorizedMongoDbException("index conflict",
+                new MongoCommandException(response, new ServerAddress()));
+    }
+}
@@ -0,0 +1,62 @@
+package com.barry.payments.easypayapi.config;
+
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// les tests Spring Boot désactivent l'export des métriques : @AutoConfigureObservability le réactive
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class PrometheusMetricsIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void shouldExposeServiceTimersAndMongoCommandMetricsOnPrometheusEndpoint() {
+        //given
+        transactionRepository.save(Transaction.builder()
+                .id("TX-METRICS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(100))
+                .paymentType(PAYPAL)
+                .orderLines(List.of())
+                .build()).block();
+        webTestClient.get().uri("/api/v1/transactions/{id}", "TX-METRICS").exchange().expectStatus().isOk();
+        webTestClient.get().uri("/api/v1/transactions/{id}", "TX-UNKNOWN").exchange().expectStatus().isNotFound();
+
+        //when
+        String scrape = webTestClient.get().uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        //then
+        assertThat(scrape)
+                .contains("transactions_service_seconds_bucket{")
+                .contains("operation=\"getTransactionById\",outcome=\"success\"")
+                .contains("operation=\"getTransactionById\",outcome=\"not-found\"")
+                .contains("mongodb_driver_commands_seconds_bucket{")
+                .contains("mongodb_driver_pool_checkedout")
+                .contains("http_server_requests_seconds_bucket{");
+    }
+}
@@ -0,0 +1,112 @@
+package com.barry.payments.easypayapi.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SuccessEventLoggerTest {
+
+    private final EventLoggingProperties properties = new EventLoggingProperties();
+    private final SuccessEventLogger successLog = new SuccessEventLogger(SuccessEventLoggerTest.class, properties);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SuccessEventLoggerTest.class);
+
+    @BeforeEach
+    void attachAppender() {
+        logger.setLevel(ch.qos.logback.classic.Level.INFO);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detachAppender() {
+        logger.detachAppender(appender);
+        logger.setLevel(null);
+    }
+
+    @Test
+    void shouldWriteKeyValueEventAtSuccessLevel() {
+        //when
+        successLog.event("getTransactionById", "transaction fetched").addKeyValue("id", "TX-1").log();
+
+        //then
+        assertThat(appender.list).singleElement().satisfies(event -> {
+            assertThat(event.getLevel()).isEqualTo(ch.qos.logback.classic.Level.INFO);
+            assertThat(event.getFormattedMessage()).isEqualTo("transaction fetched");
+            assertThat(event.getKeyValuePairs())
+                    .extracting(pair -> pair.key, pair -> pair.value)
+                    .containsExactly(tuple("operation", "getTransactionById"), tuple("id", "TX-1"));
+        });
+    }
+
+    @Test
+    void shouldDropSuccessEventsWhenDemotedBelowLoggerLevel() {
+        //given
+        properties.setSuccessLevel(Level.DEBUG);
+
+        //when
+        successLog.event("getTransactionById", "transaction fetched").addKeyValue("id", "TX-1").log();
+
+        //then
+        assertThat(appender.list).isEmpty();
+    }
+
+    @Test
+    void shouldSampleEventsPerOperation() {
+        //given
+        properties.setSampleRates(Map.of("getTransactionById", 0.0, "createTransaction", 0.5));
+
+        //when
+        IntStream.range(0, 1000).forEach(i -> {
+            successLog.event("getTransactionById", "transaction fetched").log();
+            successLog.event("createTransaction", "transaction saved").log();
+            successLog.event("updateTransaction", "transaction updated").log();
+        });
+
+        //then
+        Map<Object, Long> countByOperation = appender.list.stream()
+                .collect(Collectors.groupingBy(SuccessEventLoggerTest::operationOf, Collectors.counting()));
+        assertThat(countByOperation).doesNotContainKey("getTransactionById");
+        assertThat(countByOperation.get("createTransaction")).isBetween(350L, 650L);
+        assertThat(countByOperation.get("updateTransaction")).isEqualTo(1000L);
+    }
+
+    @Test
+    void shouldBindSampleRatesKeyedByOperationName() {
+        //given
+        MapConfigurationPropertySource source = new MapConfigurationPropertySource(Map.of(
+                "easypay.logging.success-level", "DEBUG",
+                "easypay.logging.sample-rates.getTransactionById", "0.01"));
+
+        //when
+        EventLoggingProperties bound = new Binder(source)
+                .bind("easypay.logging", EventLoggingProperties.class).get();
+
+        //then
+        assertThat(bound.getSuccessLevel()).isEqualTo(Level.DEBUG);
+        assertThat(bound.sampleRateOf("getTransactionById")).isEqualTo(0.01);
+        assertThat(bound.sampleRateOf("createTransaction")).isEqualTo(1.0);
+    }
+
+    private static Object operationOf(ILoggingEvent event) {
+        return event.getKeyValuePairs().stream()
+                .filter(pair -> "operation".equals(pair.key))
+                .map(pair -> pair.value)
+                .findFirst()
+                .orElse(null);
+    }
+}
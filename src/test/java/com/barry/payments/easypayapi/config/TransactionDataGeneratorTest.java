@@ -0,0 +1,115 @@
+package com.barry.payments.easypayapi.config;
+
+import com.barry.payments.easypayapi.models.BatchItemResult;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import com.barry.payments.easypayapi.reporitories.TransactionSummaryRepository;
+import com.barry.payments.easypayapi.services.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
+import static com.barry.payments.easypayapi.models.enums.Status.CAPTURED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionDataGeneratorTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionSummaryRepository transactionSummaryRepository;
+
+    @Mock
+    private ConfigurableApplicationContext applicationContext;
+
+    private final DataGeneratorProperties properties = new DataGeneratorProperties();
+    private TransactionDataGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        properties.setCount(200);
+        generator = new TransactionDataGenerator(transactionService, transactionRepository,
+                transactionSummaryRepository, properties, applicationContext);
+    }
+
+    @Test
+    void shouldGenerateSameDatasetForSameSeed() {
+        //when
+        List<Transaction> first = generator.transactions().collectList().block();
+        List<Transaction> second = generator.transactions().collectList().block();
+        properties.setSeed(properties.getSeed() + 1);
+        List<Transaction> otherSeed = generator.transactions().collectList().block();
+
+        //then
+        assertThat(first).hasSize(200).isEqualTo(second).isNotEqualTo(otherSeed);
+        assertThat(first).extracting(Transaction::getId).startsWith("GEN-0", "GEN-1").doesNotHaveDuplicates();
+    }
+
+    @Test
+    void shouldFollowConfiguredDistributions() {
+        //given
+        properties.setOrderLineWeights(Map.of(3, 1, 5, 0));
+        properties.setStatusWeights(Map.of(CAPTURED, 1));
+        properties.setPaymentTypeWeights(Map.of(PAYPAL, 1));
+
+        //when
+        List<Transaction> transactions = generator.transactions().collectList().block();
+
+        //then
+        assertThat(transactions).allSatisfy(transaction -> {
+            assertThat(transaction.getStatus()).isEqualTo(CAPTURED);
+            assertThat(transaction.getPaymentType()).isEqualTo(PAYPAL);
+            assertThat(transaction.getOrderLines()).hasSize(3);
+            assertThat(transaction.getAmount()).isEqualByComparingTo(transaction.getOrderLines().stream()
+                    .map(line -> line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+        });
+    }
+
+    @Test
+    void shouldWriteThroughBatchIngestionAndCountInsertedTransactions() {
+        //given : les 10 premiers ids existent déjà
+        properties.setClean(true);
+        when(transactionRepository.deleteAll()).thenReturn(Mono.empty());
+        when(transactionSummaryRepository.deleteAll()).thenReturn(Mono.empty());
+        when(transactionService.createTransactions(any())).thenAnswer(invocation -> {
+            Flux<Transaction> transactions = invocation.getArgument(0);
+            return transactions.index().map(indexed -> BatchItemResult.builder()
+                    .index(indexed.getT1().intValue())
+                    .id(indexed.getT2().getId())
+                    .success(indexed.getT1() >= 10)
+                    .build());
+        });
+
+        //when
+        Long inserted = generator.generate().block();
+
+        //then
+        assertThat(inserted).isEqualTo(190);
+
+        //verify
+        verify(transactionRepository, times(1)).deleteAll();
+        verify(transactionSummaryRepository, times(1)).deleteAll();
+        verify(applicationContext, never()).close();
+    }
+}
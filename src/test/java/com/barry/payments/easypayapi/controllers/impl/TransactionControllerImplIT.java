@@ -1,30 +1,68 @@
 package com.barry.payments.easypayapi.controllers.impl;
 
 
+import com.barry.payments.easypayapi.codecs.BinaryMediaTypes;
+import com.barry.payments.easypayapi.dtos.BatchItemResultDTO;
 import com.barry.payments.easypayapi.dtos.OrderLineDTO;
 import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.barry.payments.easypayapi.dtos.TransactionLookupResultDTO;
+import com.barry.payments.easypayapi.dtos.TransactionPageDTO;
+import com.barry.payments.easypayapi.dtos.TransactionStatsDTO;
+import com.barry.payments.easypayapi.models.OrderFingerprint;
 import com.barry.payments.easypayapi.models.OrderLine;
 import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFilter;
 import com.barry.payments.easypayapi.models.enums.Status;
+import com.barry.payments.easypayapi.reporitories.IdempotencyRecordRepository;
 import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import com.barry.payments.easypayapi.reporitories.TransactionSummaryRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
 
 import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
 import static com.barry.payments.easypayapi.models.enums.PaymentType.GIFT_CARD;
 import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
 import static com.barry.payments.easypayapi.models.enums.Status.*;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWebTestClient
@@ -38,9 +76,35 @@ class TransactionControllerImplIT {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private TransactionSummaryRepository transactionSummaryRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FindCommandRecorder findCommands;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private ObjectMapper cborMapper;
+    private ObjectMapper smileMapper;
+
     @BeforeEach
     void cleanDb() {
         transactionRepository.deleteAll().block();
+        transactionSummaryRepository.deleteAll().block();
+        idempotencyRecordRepository.deleteAll().block();
+    }
+
+    @BeforeEach
+    void setUpBinaryMappers() {
+        cborMapper = objectMapper.copyWith(new CBORFactory());
+        smileMapper = objectMapper.copyWith(new SmileFactory());
     }
 
     @Test
@@ -87,6 +151,114 @@ class TransactionControllerImplIT {
     }
 
 
+    @Test
+    void shouldStreamAllTransactionsAsNdjson() {
+        //given
+        List<Transaction> transactions = IntStream.rangeClosed(1, 25)
+                .mapToObj(i -> Transaction.builder()
+                        .id(String.format("TX-%02d", i))
+                        .status(NEW)
+                        .amount(BigDecimal.valueOf(i * 10L))
+                        .paymentType(GIFT_CARD)
+                        .build())
+                .toList();
+
+        transactionRepository.saveAll(transactions).collectList().block();
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/withoutPagination")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(TransactionDTO.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextCount(25)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNegotiateCborAndSmileOnListEndpointWithSmallerPayloads() throws IOException {
+        //given
+        List<Transaction> transactions = IntStream.rangeClosed(1, 20)
+                .mapToObj(i -> Transaction.builder()
+                        .id(String.format("TX-%02d", i))
+                        .status(AUTHORIZED)
+                        .amount(new BigDecimal("1999.90").add(BigDecimal.valueOf(i)))
+                        .paymentType(CREDIT_CARD)
+                        .orderLines(List.of(OrderLine.builder()
+                                .id("OL-" + i)
+                                .productName("Samsung X190")
+                                .quantity(i)
+                                .price(new BigDecimal("1999.90"))
+                                .build()))
+                        .build())
+                .toList();
+        transactionRepository.saveAll(transactions).collectList().block();
+
+        byte[] json = listWithoutPagination(MediaType.APPLICATION_JSON);
+        List<TransactionDTO> expected = objectMapper.readValue(json, new TypeReference<>() {
+        });
+
+        //when
+        byte[] cbor = listWithoutPagination(BinaryMediaTypes.APPLICATION_CBOR);
+        byte[] cborSeq = listWithoutPagination(BinaryMediaTypes.APPLICATION_CBOR_SEQ);
+        byte[] smile = listWithoutPagination(BinaryMediaTypes.APPLICATION_SMILE);
+        byte[] smileStream = listWithoutPagination(BinaryMediaTypes.APPLICATION_STREAM_SMILE);
+
+        //then : mêmes transactions, BigDecimal compris, dans un corps plus petit
+        assertThat(expected).hasSize(20);
+        assertThat(cborMapper.<List<TransactionDTO>>readValue(cbor, new TypeReference<>() {
+        })).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(cborMapper.readerFor(TransactionDTO.class).<TransactionDTO>readValues(cborSeq).readAll())
+                .containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(smileMapper.<List<TransactionDTO>>readValue(smile, new TypeReference<>() {
+        })).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(smileMapper.readerFor(TransactionDTO.class).<TransactionDTO>readValues(smileStream).readAll())
+                .containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(cbor.length).isLessThan(json.length);
+        assertThat(smile.length).isLessThan(json.length);
+    }
+
+    @Test
+    void shouldCreateInCborAndReadBackInSmile() throws IOException {
+        //given
+        TransactionDTO dto = TransactionDTO.builder()
+                .id("TX-7")
+                .status(NEW)
+                .amount(new BigDecimal("12.50"))
+                .paymentType(PAYPAL)
+                .orderLines(List.of(OrderLineDTO.builder().id("OL-7").productName("Cable").quantity(5).price(new BigDecimal("2.50")).build()))
+                .build();
+
+        //when
+        byte[] created = webTestClient.post()
+                .uri("/api/v1/transactions")
+                .contentType(BinaryMediaTypes.APPLICATION_CBOR)
+                .accept(BinaryMediaTypes.APPLICATION_CBOR)
+                .bodyValue(cborMapper.writeValueAsBytes(dto))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(BinaryMediaTypes.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        byte[] read = webTestClient.get()
+                .uri("/api/v1/transactions/{id}", "TX-7")
+                .accept(BinaryMediaTypes.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(BinaryMediaTypes.APPLICATION_SMILE)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        //then
+        assertThat(cborMapper.readValue(created, TransactionDTO.class)).isEqualTo(dto);
+        assertThat(smileMapper.readValue(read, TransactionDTO.class)).isEqualTo(dto);
+    }
+
     @Test
     void shouldReturnOKWhenFindAllTransactionsWithPagination() {
         //given
@@ -151,6 +323,265 @@ class TransactionControllerImplIT {
                         .containsExactlyInAnyOrder("TX-1","TX-2"));
     }
 
+    @Test
+    void shouldFetchOnlyRequestedPageFromMongoWhenPaginating() {
+        //given
+        int page = 2;
+        int size = 3;
+
+        List<Transaction> transactions = IntStream.rangeClosed(1, 10)
+                .mapToObj(i -> Transaction.builder()
+                        .id(String.format("TX-%02d", i))
+                        .status(NEW)
+                        .amount(BigDecimal.valueOf(i * 100L))
+                        .paymentType(PAYPAL)
+                        .build())
+                .toList();
+
+        transactionRepository.saveAll(transactions).collectList().block();
+
+        //when
+        List<Transaction> fetched = transactionRepository
+                .findByFilter(new TransactionFilter(), PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "id")))
+                .collectList().block();
+
+        //then : seuls "size" documents sont remontés par MongoDB
+        assertThat(fetched).hasSize(size)
+                .extracting("id")
+                .containsExactly("TX-07", "TX-08", "TX-09");
+
+        findCommands.clear();
+        webTestClient.get()
+                .uri(uriBuilder ->  uriBuilder
+                        .path("/api/v1/transactions")
+                        .queryParam("page", page)
+                        .queryParam("size", size)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionDTO.class)
+                .hasSize(size)
+                .value(page2 -> assertThat(page2).extracting("id")
+                        .containsExactly("TX-07", "TX-08", "TX-09"));
+
+        // skip et limit partent dans la commande find envoyée à MongoDB
+        assertThat(findCommands.on("transaction"))
+                .singleElement()
+                .satisfies(find -> {
+                    assertThat(find.getNumber("skip").intValue()).isEqualTo(page * size);
+                    assertThat(find.getNumber("limit").intValue()).isEqualTo(size);
+                });
+    }
+
+    @Test
+    void shouldWalkAllTransactionsWhenFollowingContinuationCursor() {
+        //given
+        int size = 4;
+        List<Transaction> transactions = IntStream.rangeClosed(1, 10)
+                .mapToObj(i -> Transaction.builder()
+                        .id(String.format("TX-%02d", i))
+                        .status(NEW)
+                        .amount(BigDecimal.valueOf(i * 100L))
+                        .paymentType(CREDIT_CARD)
+                        .build())
+                .toList();
+
+        transactionRepository.saveAll(transactions).collectList().block();
+
+        //when
+        List<String> walkedIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String currentCursor = cursor;
+            TransactionPageDTO page = webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/api/v1/transactions/cursor")
+                            .queryParamIfPresent("cursor", Optional.ofNullable(currentCursor))
+                            .queryParam("size", size)
+                            .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(TransactionPageDTO.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assertThat(page).isNotNull();
+            page.getTransactions().forEach(tx -> walkedIds.add(tx.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        //then
+        assertThat(pages).isEqualTo(3);
+        assertThat(walkedIds).containsExactlyElementsOf(transactions.stream().map(Transaction::getId).toList());
+    }
+
+    @Test
+    void shouldWalkStringAndObjectIdTransactionsWhenFollowingContinuationCursor() {
+        //given : ids chaînes (seed, générateur) et ObjectId attribués à la création par l'API
+        List<Transaction> transactions = new ArrayList<>();
+        List.of("GEN-1", "GEN-2", "TX-01").forEach(id -> transactions.add(Transaction.builder().id(id).status(NEW)
+                .amount(BigDecimal.valueOf(100)).paymentType(CREDIT_CARD).build()));
+        IntStream.range(0, 3).forEach(i -> transactions.add(Transaction.builder().status(NEW)
+                .amount(BigDecimal.valueOf(100)).paymentType(CREDIT_CARD).build()));
+        List<String> savedIds = transactionRepository.saveAll(transactions).map(Transaction::getId).collectList().block();
+
+        //when : pages de 2, la deuxième finit sur un id chaîne
+        List<String> walkedIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            String currentCursor = cursor;
+            TransactionPageDTO page = webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/api/v1/transactions/cursor")
+                            .queryParamIfPresent("cursor", Optional.ofNullable(currentCursor))
+                            .queryParam("size", 2)
+                            .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(TransactionPageDTO.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assertThat(page).isNotNull();
+            page.getTransactions().forEach(tx -> walkedIds.add(tx.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        //then : chaînes puis ObjectId, dans l'ordre de tri de MongoDB
+        assertThat(walkedIds).hasSize(6).containsExactlyInAnyOrderElementsOf(savedIds);
+        assertThat(walkedIds.subList(0, 3)).containsExactly("GEN-1", "GEN-2", "TX-01");
+    }
+
+    @Test
+    void shouldReturnOnlyMatchingTransactionsWhenFilteringByStatusAndPaymentType() {
+        //given
+        transactionRepository.saveAll(List.of(
+                Transaction.builder().id("TX-1").status(AUTHORIZED).amount(BigDecimal.ONE).paymentType(PAYPAL).build(),
+                Transaction.builder().id("TX-2").status(AUTHORIZED).amount(BigDecimal.ONE).paymentType(CREDIT_CARD).build(),
+                Transaction.builder().id("TX-3").status(NEW).amount(BigDecimal.ONE).paymentType(PAYPAL).build(),
+                Transaction.builder().id("TX-4").status(AUTHORIZED).amount(BigDecimal.ONE).paymentType(PAYPAL).build()
+        )).collectList().block();
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions?page=0&size=10&status=AUTHORIZED&paymentType=PAYPAL")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionDTO.class)
+                .value(transactions -> assertThat(transactions).extracting("id")
+                        .containsExactly("TX-1", "TX-4"));
+
+        webTestClient.get()
+                .uri("/api/v1/transactions/withoutPagination?paymentType=PAYPAL")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionDTO.class)
+                .value(transactions -> assertThat(transactions).extracting("id")
+                        .containsExactlyInAnyOrder("TX-1", "TX-3", "TX-4"));
+    }
+
+    @Test
+    void shouldAggregateAmountsByStatusAndPaymentType() {
+        //given
+        transactionRepository.saveAll(List.of(
+                Transaction.builder().id("TX-1").status(AUTHORIZED).amount(BigDecimal.valueOf(100)).paymentType(PAYPAL).build(),
+                Transaction.builder().id("TX-2").status(AUTHORIZED).amount(new BigDecimal("50.50")).paymentType(PAYPAL).build(),
+                Transaction.builder().id("TX-3").status(AUTHORIZED).amount(BigDecimal.valueOf(20)).paymentType(CREDIT_CARD).build(),
+                Transaction.builder().id("TX-4").status(NEW).amount(BigDecimal.valueOf(10)).paymentType(PAYPAL).build()
+        )).collectList().block();
+
+        //when then : transactions écrites sans passer par l'API, seul le calcul exact les voit
+        webTestClient.get()
+                .uri("/api/v1/transactions/stats?exact=true")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionStatsDTO.class)
+                .value(stats -> {
+                    assertThat(stats).hasSize(3);
+                    TransactionStatsDTO authorizedPaypal = stats.stream()
+                            .filter(s -> s.getStatus() == AUTHORIZED && s.getPaymentType() == PAYPAL)
+                            .findFirst()
+                            .orElseThrow();
+                    assertThat(authorizedPaypal.getCount()).isEqualTo(2);
+                    assertThat(authorizedPaypal.getTotalAmount()).isEqualByComparingTo("150.50");
+                    assertThat(authorizedPaypal.getMinAmount()).isEqualByComparingTo("50.50");
+                    assertThat(authorizedPaypal.getMaxAmount()).isEqualByComparingTo("100");
+                    assertThat(authorizedPaypal.getAverageAmount()).isEqualByComparingTo("75.25");
+                });
+
+        webTestClient.get()
+                .uri("/api/v1/transactions/stats?status=NEW&exact=true")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionStatsDTO.class)
+                .value(stats -> assertThat(stats).singleElement()
+                        .satisfies(s -> assertThat(s.getTotalAmount()).isEqualByComparingTo("10")));
+    }
+
+    @Test
+    void shouldMaintainSummaryStatsOnCreateAndUpdate() {
+        //given
+        TransactionDTO first = TransactionDTO.builder().id("TX-1").status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(100)).paymentType(PAYPAL).orderLines(List.of()).build();
+        TransactionDTO second = TransactionDTO.builder().id("TX-2").status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(40)).paymentType(PAYPAL).orderLines(List.of()).build();
+        List.of(first, second).forEach(dto -> webTestClient.post()
+                .uri("/api/v1/transactions")
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isOk());
+
+        //when : TX-2 capturée avec un nouveau montant
+        webTestClient.put()
+                .uri("/api/v1/transactions/TX-2")
+                .bodyValue(TransactionDTO.builder().status(CAPTURED)
+                        .amount(BigDecimal.valueOf(45)).paymentType(PAYPAL).orderLines(List.of()).build())
+                .exchange()
+                .expectStatus().isOk();
+
+        //then : les totaux sont mis à jour après la réponse
+        awaitAsserted(() -> webTestClient.get()
+                .uri("/api/v1/transactions/stats")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionStatsDTO.class)
+                .value(stats -> {
+                    assertThat(stats).extracting("status", "paymentType", "count")
+                            .containsExactlyInAnyOrder(
+                                    tuple(AUTHORIZED, PAYPAL, 1L),
+                                    tuple(CAPTURED, PAYPAL, 1L));
+                    assertThat(stats).filteredOn(s -> s.getStatus() == AUTHORIZED).singleElement()
+                            .satisfies(s -> assertThat(s.getTotalAmount()).isEqualByComparingTo("100"));
+                    assertThat(stats).filteredOn(s -> s.getStatus() == CAPTURED).singleElement()
+                            .satisfies(s -> assertThat(s.getAverageAmount()).isEqualByComparingTo("45"));
+                }));
+    }
+
+    private static void awaitAsserted(Runnable assertion) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                LockSupport.parkNanos(Duration.ofMillis(50).toNanos());
+            }
+        }
+    }
+
     @Test
     void shouldReturnOKWhenGettingTransactionById() {
         //given
@@ -187,6 +618,91 @@ class TransactionControllerImplIT {
                 });
     }
 
+    @Test
+    void shouldReturnOnlyRequestedFieldsWhenListingAndGettingWithFields() {
+        //given
+        OrderLine orderLine = OrderLine.builder()
+                .id("OL-1")
+                .productName("Macbook Pro")
+                .quantity(1)
+                .price(BigDecimal.valueOf(1500))
+                .build();
+
+        transactionRepository.save(Transaction.builder()
+                .id("TX-4")
+                .status(Status.NEW)
+                .amount(BigDecimal.valueOf(1500))
+                .paymentType(CREDIT_CARD)
+                .orderLines(List.of(orderLine))
+                .build()).block();
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions?fields=id,status")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("TX-4")
+                .jsonPath("$[0].status").isEqualTo("NEW")
+                .jsonPath("$[0].amount").doesNotExist()
+                .jsonPath("$[0].orderLines").doesNotExist();
+
+        webTestClient.get()
+                .uri("/api/v1/transactions/{id}?fields=amount", "TX-4")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.amount").isEqualTo(1500)
+                .jsonPath("$.id").doesNotExist()
+                .jsonPath("$.orderLines").doesNotExist();
+    }
+
+    @Test
+    void shouldReturnOnlyRequestedWindowOfOrderLines() {
+        //given
+        List<OrderLine> orderLines = IntStream.range(0, 50)
+                .mapToObj(i -> OrderLine.builder()
+                        .id("OL-" + i)
+                        .productName("Product-" + i)
+                        .quantity(1)
+                        .price(BigDecimal.TEN)
+                        .build())
+                .toList();
+        transactionRepository.save(Transaction.builder()
+                .id("TX-16")
+                .status(Status.NEW)
+                .amount(BigDecimal.valueOf(500))
+                .paymentType(CREDIT_CARD)
+                .orderLines(orderLines)
+                .build()).block();
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/{id}/orderLines?offset=10&limit=3", "TX-16")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(OrderLineDTO.class)
+                .value(window -> assertThat(window).extracting(OrderLineDTO::getId)
+                        .containsExactly("OL-10", "OL-11", "OL-12"));
+
+        webTestClient.get()
+                .uri("/api/v1/transactions/{id}/orderLines?offset=48&limit=10", "TX-16")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(OrderLineDTO.class)
+                .hasSize(2);
+
+        webTestClient.get()
+                .uri("/api/v1/transactions/{id}/orderLines", "UNKNOWN")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
     @Test
     void shouldReturnOKWhenCreatingTransaction() {
         //given615
@@ -224,6 +740,162 @@ class TransactionControllerImplIT {
     }
 
 
+    @Test
+    void shouldLookUpTransactionsInRequestOrderAndReportMissingIds() {
+        //given
+        transactionRepository.saveAll(List.of(
+                Transaction.builder().id("TX-1").status(NEW).amount(BigDecimal.valueOf(10)).paymentType(PAYPAL).orderLines(List.of()).build(),
+                Transaction.builder().id("TX-2").status(AUTHORIZED).amount(BigDecimal.valueOf(20)).paymentType(CREDIT_CARD).orderLines(List.of()).build()))
+                .blockLast();
+
+        //when then
+        webTestClient.post()
+                .uri("/api/v1/transactions/lookup")
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of("TX-2", "TX-404", "TX-1"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionLookupResultDTO.class)
+                .value(results -> assertThat(results)
+                        .extracting(TransactionLookupResultDTO::getId, TransactionLookupResultDTO::isFound,
+                                result -> result.getTransaction() == null ? null : result.getTransaction().getStatus())
+                        .containsExactly(
+                                tuple("TX-2", true, AUTHORIZED),
+                                tuple("TX-404", false, null),
+                                tuple("TX-1", true, NEW)));
+    }
+
+    @Test
+    void shouldCreateOnceAndReplayResponseWhenIdempotencyKeyIsRepeated() {
+        //given : id attribué par MongoDB, un rejeu sans clé créerait un doublon
+        TransactionDTO dto = TransactionDTO.builder()
+                .status(Status.NEW)
+                .amount(BigDecimal.valueOf(120))
+                .paymentType(PAYPAL)
+                .orderLines(List.of())
+                .build();
+
+        //when : une requête, puis cinq rejeux simultanés
+        TransactionDTO first = postWithIdempotencyKey("retry-1", dto)
+                .expectStatus().isOk()
+                .expectBody(TransactionDTO.class)
+                .returnResult().getResponseBody();
+        List<String> replayedIds = Flux.range(0, 5)
+                .flatMap(i -> Flux.just(postWithIdempotencyKey("retry-1", dto)
+                        .expectStatus().isOk()
+                        .expectBody(TransactionDTO.class)
+                        .returnResult().getResponseBody().getId()))
+                .collectList()
+                .block();
+
+        //then
+        assertThat(first.getId()).isNotBlank();
+        assertThat(replayedIds).hasSize(5).containsOnly(first.getId());
+        assertThat(transactionRepository.count().block()).isEqualTo(1);
+        assertThat(idempotencyRecordRepository.findById("retry-1").block().isCompleted()).isTrue();
+    }
+
+    @Test
+    void shouldReturnUnprocessableEntityWhenIdempotencyKeyIsReusedWithAnotherBody() {
+        //given
+        TransactionDTO dto = TransactionDTO.builder()
+                .status(Status.NEW)
+                .amount(BigDecimal.valueOf(120))
+                .paymentType(PAYPAL)
+                .orderLines(List.of())
+                .build();
+        postWithIdempotencyKey("retry-2", dto).expectStatus().isOk();
+
+        //when then
+        postWithIdempotencyKey("retry-2", TransactionDTO.builder()
+                        .status(Status.NEW)
+                        .amount(BigDecimal.valueOf(999))
+                        .paymentType(PAYPAL)
+                        .orderLines(List.of())
+                        .build())
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(transactionRepository.count().block()).isEqualTo(1);
+    }
+
+    private WebTestClient.ResponseSpec postWithIdempotencyKey(String idempotencyKey, TransactionDTO dto) {
+        return webTestClient.post()
+                .uri("/api/v1/transactions")
+                .header("Idempotency-Key", idempotencyKey)
+                .bodyValue(dto)
+                .exchange();
+    }
+
+    @Test
+    void shouldInsertTransactionsInBatchAndReportDuplicates() {
+        //given
+        transactionRepository.save(Transaction.builder()
+                .id("TX-02")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(1))
+                .paymentType(PAYPAL)
+                .build()).block();
+
+        List<TransactionDTO> dtos = IntStream.rangeClosed(1, 5)
+                .mapToObj(i -> TransactionDTO.builder()
+                        .id(String.format("TX-%02d", i))
+                        .status(NEW)
+                        .amount(BigDecimal.valueOf(i * 100L))
+                        .paymentType(CREDIT_CARD)
+                        .build())
+                .toList();
+
+        //when then
+        webTestClient.post()
+                .uri("/api/v1/transactions/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(dtos)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BatchItemResultDTO.class)
+                .hasSize(5)
+                .value(results -> {
+                    assertThat(results).extracting("index").containsExactly(0L, 1L, 2L, 3L, 4L);
+                    assertThat(results).filteredOn(result -> !result.isSuccess())
+                            .extracting("id").containsExactly("TX-02");
+                });
+
+        // l'écriture non ordonnée poursuit après le doublon
+        assertThat(transactionRepository.count().block()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldInsertTransactionsInBatchFromCborSequence() throws IOException {
+        //given : une transaction par document CBOR, concaténés (application/cbor-seq)
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 1; i <= 3; i++) {
+            body.write(cborMapper.writeValueAsBytes(TransactionDTO.builder()
+                    .id(String.format("TX-%02d", i))
+                    .status(NEW)
+                    .amount(BigDecimal.valueOf(i * 100L))
+                    .paymentType(CREDIT_CARD)
+                    .build()));
+        }
+
+        //when
+        byte[] results = webTestClient.post()
+                .uri("/api/v1/transactions/batch")
+                .contentType(BinaryMediaTypes.APPLICATION_CBOR_SEQ)
+                .accept(BinaryMediaTypes.APPLICATION_CBOR_SEQ)
+                .bodyValue(body.toByteArray())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(BinaryMediaTypes.APPLICATION_CBOR_SEQ)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        //then
+        assertThat(cborMapper.readerFor(BatchItemResultDTO.class).<BatchItemResultDTO>readValues(results).readAll())
+                .extracting("index", "success")
+                .containsExactly(tuple(0L, true), tuple(1L, true), tuple(2L, true));
+        assertThat(transactionRepository.count().block()).isEqualTo(3);
+    }
+
     @Test
     void shouldReturnOKWhenUpdatingTransaction() {
         // given
@@ -268,4 +940,357 @@ class TransactionControllerImplIT {
                     assertThat(updated.getStatus()).isEqualTo(AUTHORIZED);
                 });
     }
+
+    @Test
+    void shouldBackfillFingerprintWhenUpdatingLegacyTransaction() {
+        // given : transactions écrites avant l'empreinte, avec et sans lignes de commande
+        OrderLine orderLine = OrderLine.builder()
+                .id("OL-16")
+                .productName("Gift Card")
+                .quantity(1)
+                .price(BigDecimal.valueOf(50))
+                .build();
+        transactionRepository.save(Transaction.builder().id("TX-16").amount(BigDecimal.valueOf(50))
+                .paymentType(GIFT_CARD).orderLines(List.of(orderLine)).build()).block();
+        transactionRepository.save(Transaction.builder().id("TX-17").amount(BigDecimal.valueOf(50))
+                .paymentType(GIFT_CARD).orderLines(null).build()).block();
+        reactiveMongoTemplate.updateMulti(new Query(), new Update().unset("orderFingerprint"), "transaction").block();
+
+        List<OrderLineDTO> orderLines = List.of(OrderLineDTO.builder()
+                .id("OL-16")
+                .productName("Gift Card")
+                .quantity(1)
+                .price(BigDecimal.valueOf(50))
+                .build());
+
+        // when & then
+        List.of("TX-16", "TX-17").forEach(id -> webTestClient.put()
+                .uri("/api/v1/transactions/{id}", id)
+                .bodyValue(TransactionDTO.builder().status(AUTHORIZED).amount(BigDecimal.valueOf(60))
+                        .paymentType(GIFT_CARD).orderLines(orderLines).build())
+                .exchange()
+                .expectStatus().isOk());
+
+        assertThat(transactionRepository.findById("TX-16").block().getOrderFingerprint())
+                .isEqualTo(OrderFingerprint.of(List.of(orderLine)));
+        assertThat(transactionRepository.findById("TX-17").block().getOrderFingerprint())
+                .isEqualTo(OrderFingerprint.NO_ORDER_LINES);
+    }
+
+    @Test
+    void shouldUpdateLegacyTransactionWhosePricesAreStillStrings() {
+        // given : transaction écrite avant l'empreinte et avant Decimal128 (prix en chaîne, non migré)
+        reactiveMongoTemplate.insert(new Document("_id", "TX-18")
+                .append("amount", "50.00")
+                .append("paymentType", "GIFT_CARD")
+                .append("status", "NEW")
+                .append("orderLines", List.of(new Document("_id", "OL-18")
+                        .append("productName", "Gift Card")
+                        .append("quantity", 1)
+                        .append("price", "50.00"))), "transaction").block();
+        OrderLine orderLine = OrderLine.builder()
+                .id("OL-18")
+                .productName("Gift Card")
+                .quantity(1)
+                .price(BigDecimal.valueOf(50))
+                .build();
+
+        // when & then : même commande, prix à une autre échelle
+        webTestClient.put()
+                .uri("/api/v1/transactions/{id}", "TX-18")
+                .bodyValue(TransactionDTO.builder().status(AUTHORIZED).amount(BigDecimal.valueOf(60))
+                        .paymentType(GIFT_CARD).orderLines(List.of(OrderLineDTO.builder()
+                                .id("OL-18")
+                                .productName("Gift Card")
+                                .quantity(1)
+                                .price(BigDecimal.valueOf(50))
+                                .build())).build())
+                .exchange()
+                .expectStatus().isOk();
+
+        Transaction updated = transactionRepository.findById("TX-18").block();
+        assertThat(updated.getStatus()).isEqualTo(AUTHORIZED);
+        assertThat(updated.getOrderFingerprint()).isEqualTo(OrderFingerprint.of(List.of(orderLine)));
+    }
+
+    @Test
+    void shouldRejectOtherOrderOnLegacyTransactionWhosePricesAreStillStrings() {
+        // given
+        reactiveMongoTemplate.insert(new Document("_id", "TX-19")
+                .append("amount", "50.00")
+                .append("paymentType", "GIFT_CARD")
+                .append("status", "NEW")
+                .append("orderLines", List.of(new Document("_id", "OL-19")
+                        .append("productName", "Gift Card")
+                        .append("quantity", 1)
+                        .append("price", "50.00"))), "transaction").block();
+
+        // when & then : autre prix, la commande ne peut pas changer
+        webTestClient.put()
+                .uri("/api/v1/transactions/{id}", "TX-19")
+                .bodyValue(TransactionDTO.builder().status(AUTHORIZED).amount(BigDecimal.valueOf(60))
+                        .paymentType(GIFT_CARD).orderLines(List.of(OrderLineDTO.builder()
+                                .id("OL-19")
+                                .productName("Gift Card")
+                                .quantity(1)
+                                .price(BigDecimal.valueOf(45))
+                                .build())).build())
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(String.class)
+                .isEqualTo("The order of transaction cannot be changed");
+
+        assertThat(transactionRepository.findById("TX-19").block().getStatus()).isEqualTo(NEW);
+    }
+
+    @Test
+    void shouldAcceptSameOrderWrittenWithAnotherPriceScale() {
+        // given
+        transactionRepository.save(Transaction.builder()
+                .id("TX-15")
+                .amount(new BigDecimal("50.0"))
+                .paymentType(GIFT_CARD)
+                .orderLines(List.of(OrderLine.builder()
+                        .id("OL-15")
+                        .productName("Gift Card")
+                        .quantity(1)
+                        .price(new BigDecimal("50.0"))
+                        .build()))
+                .build()).block();
+
+        TransactionDTO updateDto = TransactionDTO.builder()
+                .id("TX-15")
+                .status(AUTHORIZED)
+                .amount(new BigDecimal("50.00"))
+                .paymentType(GIFT_CARD)
+                .orderLines(List.of(OrderLineDTO.builder()
+                        .id("OL-15")
+                        .productName("Gift Card")
+                        .quantity(1)
+                        .price(new BigDecimal("50.00"))
+                        .build()))
+                .build();
+
+        // when & then : même commande, seule l'échelle du prix diffère
+        webTestClient.put()
+                .uri("/api/v1/transactions/{id}", "TX-15")
+                .bodyValue(updateDto)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionDTO.class)
+                .value(updated -> {
+                    assertThat(updated.getStatus()).isEqualTo(AUTHORIZED);
+                    assertThat(updated.getOrderLines()).hasSize(1);
+                });
+    }
+
+    @Test
+    void shouldReturnConflictWhenCapturingTransactionThatIsNotAuthorized() {
+        // given
+        OrderLine orderLine = OrderLine.builder()
+                .id("OL-6")
+                .productName("Gift Card")
+                .quantity(1)
+                .price(BigDecimal.valueOf(50))
+                .build();
+
+        transactionRepository.save(Transaction.builder()
+                .id("TX-6")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(50))
+                .paymentType(GIFT_CARD)
+                .orderLines(List.of(orderLine))
+                .build()).block();
+
+        TransactionDTO updateDto = TransactionDTO.builder()
+                .id("TX-6")
+                .status(CAPTURED)
+                .amount(BigDecimal.valueOf(50))
+                .paymentType(GIFT_CARD)
+                .orderLines(List.of(OrderLineDTO.builder()
+                        .id("OL-6")
+                        .productName("Gift Card")
+                        .quantity(1)
+                        .price(BigDecimal.valueOf(50))
+                        .build()))
+                .build();
+
+        // when & then
+        webTestClient.put()
+                .uri("/api/v1/transactions/{id}", "TX-6")
+                .bodyValue(updateDto)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(String.class)
+                .isEqualTo("Cannot switch to CAPTURED if the transaction is not AUTHORIZED");
+
+        assertThat(transactionRepository.findById("TX-6").block().getStatus()).isEqualTo(NEW);
+    }
+
+    @Test
+    void shouldReturnConflictWhenChangingOrderOfTransaction() {
+        // given
+        transactionRepository.save(Transaction.builder()
+                .id("TX-7")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(50))
+                .paymentType(GIFT_CARD)
+                .orderLines(List.of(OrderLine.builder()
+                        .id("OL-7")
+                        .productName("Gift Card")
+                        .quantity(1)
+                        .price(BigDecimal.valueOf(50))
+                        .build()))
+                .build()).block();
+
+        TransactionDTO updateDto = TransactionDTO.builder()
+                .id("TX-7")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(100))
+                .paymentType(GIFT_CARD)
+                .orderLines(List.of(OrderLineDTO.builder()
+                        .id("OL-7")
+                        .productName("Gift Card")
+                        .quantity(2)
+                        .price(BigDecimal.valueOf(50))
+                        .build()))
+                .build();
+
+        // when & then
+        webTestClient.put()
+                .uri("/api/v1/transactions/{id}", "TX-7")
+                .bodyValue(updateDto)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(String.class)
+                .isEqualTo("The order of transaction cannot be changed");
+    }
+
+    @Test
+    void shouldCaptureOnlyOnceWhenConcurrentCapturesRace() {
+        // given
+        transactionRepository.save(Transaction.builder()
+                .id("TX-8")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(80))
+                .paymentType(CREDIT_CARD)
+                .orderLines(List.of())
+                .build()).block();
+
+        Transaction capture = Transaction.builder()
+                .status(CAPTURED)
+                .amount(BigDecimal.valueOf(80))
+                .paymentType(CREDIT_CARD)
+                .orderLines(List.of())
+                .build();
+
+        // when : deux captures simultanées de la même transaction
+        List<Boolean> outcomes = Flux.range(0, 2)
+                .flatMap(i -> transactionRepository.updateIfTransitionAllowed("TX-8", capture)
+                        .map(updated -> true)
+                        .defaultIfEmpty(false))
+                .collectList()
+                .block();
+
+        // then : une seule écriture conditionnelle aboutit
+        assertThat(outcomes).containsExactlyInAnyOrder(true, false);
+        assertThat(transactionRepository.findById("TX-8").block().getStatus()).isEqualTo(CAPTURED);
+    }
+
+    @Test
+    void shouldRejectStaleIfMatchAndAcceptCurrentETag() {
+        // given
+        TransactionDTO dto = TransactionDTO.builder()
+                .id("TX-9")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(70))
+                .paymentType(PAYPAL)
+                .orderLines(List.of())
+                .build();
+
+        String createdETag = webTestClient.post()
+                .uri("/api/v1/transactions")
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(TransactionDTO.class)
+                .getResponseHeaders().getETag();
+
+        TransactionDTO updateDto = TransactionDTO.builder()
+                .id("TX-9")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(75))
+                .paymentType(PAYPAL)
+                .orderLines(List.of())
+                .build();
+
+        String updatedETag = webTestClient.put()
+                .uri("/api/v1/transactions/{id}", "TX-9")
+                .header(HttpHeaders.IF_MATCH, createdETag)
+                .bodyValue(updateDto)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(TransactionDTO.class)
+                .getResponseHeaders().getETag();
+
+        assertThat(updatedETag).isNotEqualTo(createdETag);
+
+        // when & then : l'ancienne version est refusée
+        webTestClient.put()
+                .uri("/api/v1/transactions/{id}", "TX-9")
+                .header(HttpHeaders.IF_MATCH, createdETag)
+                .bodyValue(updateDto)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        assertThat(transactionRepository.findById("TX-9").block().getVersion()).isEqualTo(1L);
+    }
+
+    private byte[] listWithoutPagination(MediaType mediaType) {
+        return webTestClient.get()
+                .uri("/api/v1/transactions/withoutPagination")
+                .accept(mediaType)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(mediaType)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+    }
+
+    @TestConfiguration
+    static class MongoCommandRecording {
+
+        @Bean
+        FindCommandRecorder findCommandRecorder() {
+            return new FindCommandRecorder();
+        }
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer recordFindCommands(FindCommandRecorder findCommandRecorder) {
+            return builder -> builder.addCommandListener(findCommandRecorder);
+        }
+    }
+
+    // commandes find envoyées par le driver, telles qu'elles partent vers MongoDB
+    static class FindCommandRecorder implements CommandListener {
+
+        private final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            if ("find".equals(event.getCommandName())) {
+                commands.add(event.getCommand().clone());
+            }
+        }
+
+        List<BsonDocument> on(String collection) {
+            return commands.stream()
+                    .filter(command -> collection.equals(command.getString("find").getValue()))
+                    .toList();
+        }
+
+        void clear() {
+            commands.clear();
+        }
+    }
 }
@@ -1,46 +1,89 @@
 package com.barry.payments.easypayapi.controllers.impl;
 
 
+import com.barry.payments.easypayapi.codecs.BinaryMediaTypes;
+import com.barry.payments.easypayapi.config.EventLoggingProperties;
+import com.barry.payments.easypayapi.config.JsonEncodingProperties;
+import com.barry.payments.easypayapi.dtos.BatchItemResultDTO;
 import com.barry.payments.easypayapi.dtos.OrderLineDTO;
 import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.barry.payments.easypayapi.dtos.TransactionLookupResultDTO;
+import com.barry.payments.easypayapi.dtos.TransactionPageDTO;
+import com.barry.payments.easypayapi.dtos.TransactionStatsDTO;
+import com.barry.payments.easypayapi.exceptions.IdempotencyKeyReusedException;
+import com.barry.payments.easypayapi.exceptions.InvalidCursorException;
+import com.barry.payments.easypayapi.exceptions.InvalidPaginationBoundsException;
+import com.barry.payments.easypayapi.exceptions.TransactionVersionMismatchException;
+import com.barry.payments.easypayapi.filters.ConcurrencyLimitWebFilter;
+import com.barry.payments.easypayapi.mappers.OrderLineMapper;
 import com.barry.payments.easypayapi.mappers.TransactionMapper;
+import com.barry.payments.easypayapi.models.BatchItemResult;
 import com.barry.payments.easypayapi.models.OrderLine;
 import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFields;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionLookupResult;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.models.TransactionPage;
+import com.barry.payments.easypayapi.models.enums.TransactionField;
 import com.barry.payments.easypayapi.services.TransactionService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
 
 import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
 import static com.barry.payments.easypayapi.models.enums.Status.AUTHORIZED;
 import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-@WebFluxTest(controllers = TransactionControllerImpl.class)
+// limite de concurrence testée à part (ConcurrencyLimitWebFilterTest)
+@WebFluxTest(controllers = TransactionControllerImpl.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ConcurrencyLimitWebFilter.class))
+@EnableConfigurationProperties({EventLoggingProperties.class, JsonEncodingProperties.class})
 class TransactionControllerImplTest {
 
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @MockitoBean
     private TransactionService transactionService;
 
     @MockitoBean
     private TransactionMapper transactionMapper;
 
+    @MockitoBean
+    private OrderLineMapper orderLineMapper;
+
 
     @Test
     void shouldReturnOKWhenWhenFindAllTransactions() {
@@ -73,11 +116,17 @@ class TransactionControllerImplTest {
                 .orderLines(List.of(orderLine2))
                 .build();
 
+        // JSON écrit directement depuis les transactions : même contenu que le DTO
         TransactionDTO transactionDTO = TransactionDTO.builder()
                 .id("AWS")
                 .status(NEW)
                 .amount(BigDecimal.valueOf(7687569))
                 .paymentType(PAYPAL)
+                .orderLines(List.of(OrderLineDTO.builder()
+                        .id("TX-2")
+                        .productName("SAMSUNG X190")
+                        .price(BigDecimal.valueOf(123))
+                        .quantity(1).build()))
                 .build();
 
         TransactionDTO transactionDTO2 = TransactionDTO.builder()
@@ -85,10 +134,13 @@ class TransactionControllerImplTest {
                 .status(AUTHORIZED)
                 .amount(BigDecimal.valueOf(7687569))
                 .paymentType(PAYPAL)
+                .orderLines(List.of(OrderLineDTO.builder()
+                        .id("TX-3")
+                        .productName("APPLE MACBOOK PRO-X190")
+                        .price(BigDecimal.valueOf(123))
+                        .quantity(1).build()))
                 .build();
-        when(transactionService.getAllTransactions()).thenReturn(Flux.just(transaction, transaction2));
-        when(transactionMapper.transactionToTransactionDto(transaction)).thenReturn(transactionDTO);
-        when(transactionMapper.transactionToTransactionDto(transaction2)).thenReturn(transactionDTO2);
+        when(transactionService.getAllTransactions(any(TransactionFilter.class))).thenReturn(Flux.just(transaction, transaction2));
 
 
         //when then
@@ -103,8 +155,113 @@ class TransactionControllerImplTest {
                 .contains(transactionDTO, transactionDTO2);
 
         //verify
-        verify(transactionService, times(1)).getAllTransactions();
-        verify(transactionMapper, times(2)).transactionToTransactionDto(any(Transaction.class));
+        verify(transactionService, times(1)).getAllTransactions(new TransactionFilter());
+        verify(transactionMapper, never()).transactionToTransactionDto(any(Transaction.class));
+    }
+
+    @Test
+    void shouldReturnJsonArrayWhenNoAcceptHeaderIsSent() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(NEW)
+                .build();
+        when(transactionService.getAllTransactions(any(TransactionFilter.class))).thenReturn(Flux.just(transaction));
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/withoutPagination")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("AWS");
+    }
+
+    @Test
+    void shouldStreamTransactionsAsNdjsonWhenRequested() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        Transaction transaction2 = Transaction.builder()
+                .id("AXA")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        TransactionDTO transactionDTO = TransactionDTO.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .orderLines(List.of())
+                .build();
+
+        TransactionDTO transactionDTO2 = TransactionDTO.builder()
+                .id("AXA")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .orderLines(List.of())
+                .build();
+        when(transactionService.getAllTransactions(any(TransactionFilter.class))).thenReturn(Flux.just(transaction, transaction2));
+
+        //when
+        Flux<TransactionDTO> body = webTestClient.get()
+                .uri("/api/v1/transactions/withoutPagination")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(TransactionDTO.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(body)
+                .expectNext(transactionDTO)
+                .expectNext(transactionDTO2)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldStreamTransactionsAsServerSentEventsWhenRequested() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        TransactionDTO transactionDTO = TransactionDTO.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+        when(transactionService.getAllTransactions(any(TransactionFilter.class))).thenReturn(Flux.just(transaction));
+        when(transactionMapper.transactionToTransactionDto(transaction)).thenReturn(transactionDTO);
+
+        //when
+        Flux<TransactionDTO> body = webTestClient.get()
+                .uri("/api/v1/transactions/withoutPagination")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(TransactionDTO.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(body)
+                .expectNext(transactionDTO)
+                .verifyComplete();
     }
 
     @Test
@@ -153,7 +310,7 @@ class TransactionControllerImplTest {
                 .amount(BigDecimal.valueOf(7687569))
                 .paymentType(PAYPAL)
                 .build();
-        when(transactionService.getAllTransactionsPagination(page, size)).thenReturn(Flux.just(transaction));
+        when(transactionService.getAllTransactionsPagination(new TransactionFilter(), page, size)).thenReturn(Flux.just(transaction));
         // page=0, size=1 => only the first page
 
         when(transactionMapper.transactionToTransactionDto(transaction)).thenReturn(transactionDTO);
@@ -176,11 +333,234 @@ class TransactionControllerImplTest {
                 .contains(transactionDTO);
 
         //verify
-        verify(transactionService, times(1)).getAllTransactionsPagination(page, size);
+        verify(transactionService, times(1)).getAllTransactionsPagination(new TransactionFilter(), page, size);
         verify(transactionMapper, times(1)).transactionToTransactionDto(any(Transaction.class));
     }
 
 
+    @Test
+    void shouldEncodePaginatedTransactionsInCborWhenRequestedAndJsonByDefault() throws IOException {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(new BigDecimal("7687569.50"))
+                .paymentType(PAYPAL)
+                .build();
+        TransactionDTO transactionDTO = TransactionDTO.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(new BigDecimal("7687569.50"))
+                .paymentType(PAYPAL)
+                .build();
+        when(transactionService.getAllTransactionsPagination(new TransactionFilter(), 0, 5)).thenReturn(Flux.just(transaction));
+        when(transactionMapper.transactionToTransactionDto(transaction)).thenReturn(transactionDTO);
+
+        //when
+        byte[] cbor = webTestClient.get()
+                .uri("/api/v1/transactions?page=0&size=5")
+                .accept(BinaryMediaTypes.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(BinaryMediaTypes.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        //then
+        assertThat(objectMapper.copyWith(new CBORFactory()).<List<TransactionDTO>>readValue(cbor, new TypeReference<>() {
+        })).containsExactly(transactionDTO);
+
+        // sans Accept, la réponse reste en JSON malgré l'encodeur CBOR
+        webTestClient.get()
+                .uri("/api/v1/transactions?page=0&size=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON);
+    }
+
+
+    @Test
+    void shouldPassStatusAndPaymentTypeFiltersToService() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AXA")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        TransactionDTO transactionDTO = TransactionDTO.builder()
+                .id("AXA")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        TransactionFilter filter = new TransactionFilter(AUTHORIZED, PAYPAL);
+        when(transactionService.getAllTransactionsPagination(filter, 0, 5)).thenReturn(Flux.just(transaction));
+        when(transactionMapper.transactionToTransactionDto(transaction)).thenReturn(transactionDTO);
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions?page=0&size=5&status=AUTHORIZED&paymentType=PAYPAL")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionDTO.class)
+                .contains(transactionDTO);
+
+        //verify
+        verify(transactionService, times(1)).getAllTransactionsPagination(filter, 0, 5);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenStatusFilterIsUnknown() {
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions?status=REFUNDED")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldReturnOKWhenGettingTransactionStats() {
+        //given
+        TransactionStats stats = TransactionStats.builder()
+                .status(AUTHORIZED)
+                .paymentType(PAYPAL)
+                .count(3)
+                .totalAmount(BigDecimal.valueOf(300))
+                .minAmount(BigDecimal.valueOf(50))
+                .maxAmount(BigDecimal.valueOf(150))
+                .averageAmount(BigDecimal.valueOf(100))
+                .build();
+
+        TransactionStatsDTO statsDTO = TransactionStatsDTO.builder()
+                .status(AUTHORIZED)
+                .paymentType(PAYPAL)
+                .count(3)
+                .totalAmount(BigDecimal.valueOf(300))
+                .minAmount(BigDecimal.valueOf(50))
+                .maxAmount(BigDecimal.valueOf(150))
+                .averageAmount(BigDecimal.valueOf(100))
+                .build();
+
+        TransactionFilter filter = new TransactionFilter(AUTHORIZED, null);
+        when(transactionService.getTransactionStats(filter)).thenReturn(Flux.just(stats));
+        when(transactionMapper.transactionStatsToTransactionStatsDto(stats)).thenReturn(statsDTO);
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/stats?status=AUTHORIZED")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionStatsDTO.class)
+                .contains(statsDTO)
+                .hasSize(1);
+
+        //verify
+        verify(transactionService, times(1)).getTransactionStats(filter);
+        verify(transactionService, never()).computeTransactionStats(any(TransactionFilter.class));
+        verify(transactionService, never()).getTransactionById(anyString());
+    }
+
+    @Test
+    void shouldRecomputeStatsWhenExactIsRequested() {
+        //given
+        when(transactionService.computeTransactionStats(new TransactionFilter())).thenReturn(Flux.empty());
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/stats?exact=true")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionStatsDTO.class)
+                .hasSize(0);
+
+        //verify
+        verify(transactionService, times(1)).computeTransactionStats(new TransactionFilter());
+        verify(transactionService, never()).getTransactionStats(any(TransactionFilter.class));
+    }
+
+    @Test
+    void shouldReturnOKWhenFindTransactionsByCursor() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        TransactionDTO transactionDTO = TransactionDTO.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        TransactionPage transactionPage = TransactionPage.builder()
+                .transactions(List.of(transaction))
+                .nextCursor("X2lkOkFXUw")
+                .build();
+
+        TransactionPageDTO transactionPageDTO = TransactionPageDTO.builder()
+                .transactions(List.of(transactionDTO))
+                .nextCursor("X2lkOkFXUw")
+                .build();
+
+        when(transactionService.getTransactionsByCursor(new TransactionFilter(), "X2lkOkFXQQ", 1)).thenReturn(Mono.just(transactionPage));
+        when(transactionMapper.transactionPageToTransactionPageDto(transactionPage)).thenReturn(transactionPageDTO);
+
+        //when then
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/api/v1/transactions/cursor")
+                        .queryParam("cursor", "X2lkOkFXQQ")
+                        .queryParam("size", 1)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionPageDTO.class)
+                .isEqualTo(transactionPageDTO);
+
+        //verify
+        verify(transactionService, times(1)).getTransactionsByCursor(new TransactionFilter(), "X2lkOkFXQQ", 1);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenCursorIsNotValid() {
+        //given
+        when(transactionService.getTransactionsByCursor(new TransactionFilter(), "bad", 10))
+                .thenReturn(Mono.error(new InvalidCursorException("bad")));
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/cursor?cursor=bad")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+
+    @Test
+    void shouldReturnBadRequestWhenCursorPageSizeIsAboveMaximum() {
+        //given
+        when(transactionService.getTransactionsByCursor(new TransactionFilter(), null, 5000))
+                .thenReturn(Mono.error(InvalidPaginationBoundsException.sizeTooLarge(0, 5000, 1000)));
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/cursor?size=5000")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void shouldReturnOKWhenWhenGettingTransactionById() {
         //given
@@ -232,6 +612,94 @@ class TransactionControllerImplTest {
     }
 
 
+    @Test
+    void shouldReturnOnlyRequestedFieldsWhenFieldsParameterIsGiven() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(NEW)
+                .build();
+        TransactionFields fields = TransactionFields.of(TransactionField.ID, TransactionField.STATUS);
+
+        when(transactionService.getTransactionById("AWS", fields)).thenReturn(Mono.just(transaction));
+        when(transactionMapper.transactionToTransactionDto(transaction, fields)).thenCallRealMethod();
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/AWS?fields=id,status")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("AWS")
+                .jsonPath("$.status").isEqualTo("NEW")
+                .jsonPath("$.amount").doesNotExist()
+                .jsonPath("$.orderLines").doesNotExist();
+
+        //verify
+        verify(transactionService, never()).getTransactionById(anyString());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenFieldsParameterIsUnknown() {
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions?fields=id,cardNumber")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        //verify
+        verify(transactionService, never()).getAllTransactionsPagination(any(TransactionFilter.class), anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldReturnRequestedWindowOfOrderLines() {
+        //given
+        OrderLine orderLine = OrderLine.builder()
+                .id("OL-20")
+                .productName("SAMSUNG X190")
+                .price(BigDecimal.valueOf(123))
+                .quantity(1).build();
+        OrderLineDTO orderLineDTO = OrderLineDTO.builder()
+                .id("OL-20")
+                .productName("SAMSUNG X190")
+                .price(BigDecimal.valueOf(123))
+                .quantity(1).build();
+
+        when(transactionService.getOrderLines("AWS", 20, 1)).thenReturn(Flux.just(orderLine));
+        when(orderLineMapper.orderLineToOrderLineDto(orderLine)).thenReturn(orderLineDTO);
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/AWS/orderLines?offset=20&limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(OrderLineDTO.class)
+                .contains(orderLineDTO)
+                .hasSize(1);
+
+        //verify
+        verify(transactionService, times(1)).getOrderLines("AWS", 20, 1);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenOrderLinesWindowIsOutOfBounds() {
+        //given
+        when(transactionService.getOrderLines("AWS", -1, 1))
+                .thenReturn(Flux.error(new InvalidPaginationBoundsException(-1, 1, 500)));
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/AWS/orderLines?offset=-1&limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class)
+                .value(message -> assertThat(message).contains("offset= -1"));
+    }
+
     @Test
     void shouldReturnOKWhenCreatingNewTransaction() {
         //given
@@ -285,6 +753,133 @@ class TransactionControllerImplTest {
         verify(transactionMapper, times(1)).transactionToTransactionDto(any(Transaction.class));
     }
 
+    @Test
+    void shouldReturnOneResultPerRequestedIdWhenLookingUpTransactions() {
+        //given
+        Transaction transaction = Transaction.builder().id("TX-1").status(NEW).paymentType(PAYPAL).build();
+        TransactionDTO transactionDTO = TransactionDTO.builder().id("TX-1").status(NEW).paymentType(PAYPAL).build();
+        TransactionLookupResult found = TransactionLookupResult.builder().id("TX-1").found(true).transaction(transaction).build();
+        TransactionLookupResult missing = TransactionLookupResult.builder().id("TX-404").found(false).build();
+        TransactionLookupResultDTO foundDTO = TransactionLookupResultDTO.builder().id("TX-1").found(true).transaction(transactionDTO).build();
+        TransactionLookupResultDTO missingDTO = TransactionLookupResultDTO.builder().id("TX-404").found(false).build();
+
+        when(transactionService.getTransactionsByIds(List.of("TX-1", "TX-404"))).thenReturn(Flux.just(found, missing));
+        when(transactionMapper.transactionLookupResultToTransactionLookupResultDto(found)).thenReturn(foundDTO);
+        when(transactionMapper.transactionLookupResultToTransactionLookupResultDto(missing)).thenReturn(missingDTO);
+
+        //when then
+        webTestClient.post()
+                .uri("/api/v1/transactions/lookup")
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of("TX-1", "TX-404"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionLookupResultDTO.class)
+                .isEqualTo(List.of(foundDTO, missingDTO));
+
+        //verify
+        verify(transactionService, times(1)).getTransactionsByIds(List.of("TX-1", "TX-404"));
+    }
+
+    @Test
+    void shouldPassIdempotencyKeyToServiceWhenCreatingTransaction() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        TransactionDTO transactionDTO = TransactionDTO.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        when(transactionMapper.transactionDtoToTransaction(transactionDTO)).thenReturn(transaction);
+        when(transactionService.createTransaction(transaction, "key-1")).thenReturn(Mono.just(transaction));
+        when(transactionMapper.transactionToTransactionDto(transaction)).thenReturn(transactionDTO);
+
+        //when then
+        webTestClient.post()
+                .uri("/api/v1/transactions")
+                .header("Idempotency-Key", "key-1")
+                .bodyValue(transactionDTO)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionDTO.class)
+                .isEqualTo(transactionDTO);
+
+        //verify
+        verify(transactionService, times(1)).createTransaction(transaction, "key-1");
+        verify(transactionService, never()).createTransaction(any(Transaction.class));
+    }
+
+    @Test
+    void shouldReturnUnprocessableEntityWhenIdempotencyKeyIsReused() {
+        //given
+        Transaction transaction = Transaction.builder().id("AWS").status(NEW).paymentType(PAYPAL).build();
+        TransactionDTO transactionDTO = TransactionDTO.builder().id("AWS").status(NEW).paymentType(PAYPAL).build();
+
+        when(transactionMapper.transactionDtoToTransaction(transactionDTO)).thenReturn(transaction);
+        when(transactionService.createTransaction(transaction, "key-1"))
+                .thenReturn(Mono.error(new IdempotencyKeyReusedException("key-1")));
+
+        //when then
+        webTestClient.post()
+                .uri("/api/v1/transactions")
+                .header("Idempotency-Key", "key-1")
+                .bodyValue(transactionDTO)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void shouldReturnResultPerItemWhenCreatingTransactionsInBatch() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        TransactionDTO transactionDTO = TransactionDTO.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        BatchItemResult batchItemResult = BatchItemResult.builder().index(0).id("AWS").success(true).build();
+        BatchItemResultDTO batchItemResultDTO = BatchItemResultDTO.builder().index(0).id("AWS").success(true).build();
+
+        when(transactionMapper.transactionDtoToTransaction(transactionDTO)).thenReturn(transaction);
+        when(transactionService.createTransactions(any())).thenAnswer(invocation -> {
+            Flux<Transaction> transactions = invocation.getArgument(0);
+            return transactions.map(tx -> batchItemResult);
+        });
+        when(transactionMapper.batchItemResultToBatchItemResultDto(batchItemResult)).thenReturn(batchItemResultDTO);
+
+        //when then
+        webTestClient.post()
+                .uri("/api/v1/transactions/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"id\":\"AWS\",\"status\":\"NEW\",\"amount\":7687569,\"paymentType\":\"PAYPAL\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BatchItemResultDTO.class)
+                .hasSize(1)
+                .contains(batchItemResultDTO);
+
+        //verify
+        verify(transactionMapper, times(1)).transactionDtoToTransaction(any(TransactionDTO.class));
+        verify(transactionService, never()).createTransaction(any(Transaction.class));
+    }
+
     @Test
     void shouldReturnOKWhenUpdatingNewTransaction() {
         //given
@@ -338,4 +933,70 @@ class TransactionControllerImplTest {
         verify(transactionMapper, times(1)).transactionToTransactionDto(any(Transaction.class));
     }
 
+
+    @Test
+    void shouldReturnETagWhenGettingVersionedTransaction() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .version(3L)
+                .build();
+
+        TransactionDTO transactionDTO = TransactionDTO.builder()
+                .id("AWS")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        when(transactionService.getTransactionById("AWS")).thenReturn(Mono.just(transaction));
+        when(transactionMapper.transactionToTransactionDto(transaction)).thenReturn(transactionDTO);
+
+        //when then
+        webTestClient.get()
+                .uri("/api/v1/transactions/AWS")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody(TransactionDTO.class)
+                .isEqualTo(transactionDTO);
+    }
+
+    @Test
+    void shouldPassIfMatchVersionToServiceWhenUpdatingTransaction() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AWS")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        TransactionDTO transactionDTO = TransactionDTO.builder()
+                .id("AWS")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(7687569))
+                .paymentType(PAYPAL)
+                .build();
+
+        when(transactionMapper.transactionDtoToTransaction(transactionDTO)).thenReturn(transaction);
+        when(transactionService.updateTransaction(eq("AWS"), any(Transaction.class)))
+                .thenReturn(Mono.error(new TransactionVersionMismatchException("AWS", 3L, 4L)));
+
+        //when then
+        webTestClient.put()
+                .uri("/api/v1/transactions/AWS")
+                .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                .bodyValue(transactionDTO)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        //verify
+        verify(transactionService, times(1))
+                .updateTransaction(eq("AWS"), argThat(tx -> Long.valueOf(3L).equals(tx.getVersion())));
+    }
 }
@@ -0,0 +1,117 @@
+package com.barry.payments.easypayapi.filters;
+
+import com.barry.payments.easypayapi.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdConcurrencyLimitTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldCutLimitWhenResponsesAreSlowOrFailingDownToMinimum() {
+        //given
+        AimdConcurrencyLimit limit = limit(100, 10, 200);
+
+        //when then
+        acquireAndRelease(limit, SLOW, false);
+        assertThat(limit.getLimit()).isEqualTo(90);
+        acquireAndRelease(limit, FAST, true);
+        assertThat(limit.getLimit()).isEqualTo(81);
+
+        for (int i = 0; i < 100; i++) {
+            acquireAndRelease(limit, SLOW, false);
+        }
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldCutLimitOnlyOnceForRequestsSlowedDownTogether() {
+        //given : 50 requêtes admises ensemble
+        AimdConcurrencyLimit limit = limit(100, 10, 200);
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+
+        //when : elles se terminent toutes lentement
+        for (int i = 0; i < 50; i++) {
+            limit.release(start, SLOW, i % 2 == 0);
+        }
+
+        //then : une seule baisse pour la vague
+        assertThat(limit.getLimit()).isEqualTo(90);
+        assertThat(limit.getInFlight()).isZero();
+
+        //when : une requête admise après la baisse est lente à son tour
+        acquireAndRelease(limit, SLOW, false);
+
+        //then
+        assertThat(limit.getLimit()).isEqualTo(81);
+    }
+
+    @Test
+    void shouldRaiseLimitOnlyWhenAtLeastHalfOfItIsUsed() {
+        //given
+        AimdConcurrencyLimit limit = limit(4, 1, 5);
+
+        //when : une seule requête à la fois, limite peu utilisée
+        acquireAndRelease(limit, FAST, false);
+
+        //then
+        assertThat(limit.getLimit()).isEqualTo(4);
+
+        //when : deux requêtes simultanées sur 4, puis trois sur 5
+        limit.tryAcquire();
+        acquireAndRelease(limit, FAST, false);
+        assertThat(limit.getLimit()).isEqualTo(5);
+        limit.tryAcquire();
+        acquireAndRelease(limit, FAST, false);
+
+        //then : plafonnée à maxLimit
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldRejectOverLimitAndExposeState() {
+        //given
+        AimdConcurrencyLimit limit = limit(2, 1, 10);
+
+        //when
+        boolean first = limit.tryAcquire();
+        boolean second = limit.tryAcquire();
+        boolean third = limit.tryAcquire();
+        limit.release();
+
+        //then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(meterRegistry.get(AimdConcurrencyLimit.REJECTED_COUNTER).tag("type", "read").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(AimdConcurrencyLimit.IN_FLIGHT_GAUGE).tag("type", "read").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get(AimdConcurrencyLimit.LIMIT_GAUGE).tag("type", "read").gauge().value()).isEqualTo(2);
+    }
+
+    private AimdConcurrencyLimit limit(int initial, int min, int max) {
+        ConcurrencyLimitProperties.Limit settings = new ConcurrencyLimitProperties.Limit();
+        settings.setInitialLimit(initial);
+        settings.setMinLimit(min);
+        settings.setMaxLimit(max);
+        settings.setLatencyThreshold(Duration.ofMillis(100));
+        return new AimdConcurrencyLimit("read", settings, meterRegistry);
+    }
+
+    private static void acquireAndRelease(AimdConcurrencyLimit limit, long latencyNanos, boolean overloaded) {
+        long start = System.nanoTime();
+        assertThat(limit.tryAcquire()).isTrue();
+        limit.release(start, latencyNanos, overloaded);
+    }
+}
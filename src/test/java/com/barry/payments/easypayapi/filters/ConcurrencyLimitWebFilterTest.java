@@ -0,0 +1,141 @@
+package com.barry.payments.easypayapi.filters;
+
+import com.barry.payments.easypayapi.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitWebFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+    private final Sinks.Empty<Void> mongo = Sinks.empty();
+    // requête en cours tant que "mongo" n'a pas répondu
+    private final WebFilterChain pendingChain = exchange -> mongo.asMono();
+    private ConcurrencyLimitWebFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties.getRead().setInitialLimit(2);
+        properties.getRead().setMinLimit(1);
+        properties.getWrite().setInitialLimit(1);
+        properties.getWrite().setMinLimit(1);
+        filter = new ConcurrencyLimitWebFilter(properties, meterRegistry);
+    }
+
+    @Test
+    void shouldRejectReadsOverLimitWith503AndRetryAfterWhileWritesStillPass() {
+        //given : deux lectures en cours, la limite de lecture est atteinte
+        filter.filter(get("/api/v1/transactions/TX-1"), pendingChain).subscribe();
+        filter.filter(get("/api/v1/transactions/TX-2"), pendingChain).subscribe();
+
+        //when
+        MockServerWebExchange rejected = get("/api/v1/transactions/TX-3");
+        MockServerWebExchange write = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/transactions"));
+        StepVerifier.create(filter.filter(rejected, pendingChain)).verifyComplete();
+        filter.filter(write, pendingChain).subscribe();
+
+        //then
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(write.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(inFlight("read")).isEqualTo(2);
+        assertThat(inFlight("write")).isEqualTo(1);
+
+        //when : MongoDB répond, les places sont rendues
+        mongo.tryEmitEmpty();
+
+        //then
+        assertThat(inFlight("read")).isZero();
+        assertThat(inFlight("write")).isZero();
+    }
+
+    @Test
+    void shouldReleaseSlotWhenClientCancels() {
+        //given
+        Disposable request = filter.filter(get("/api/v1/transactions/TX-1"), pendingChain).subscribe();
+        assertThat(inFlight("read")).isEqualTo(1);
+
+        //when
+        request.dispose();
+
+        //then
+        assertThat(inFlight("read")).isZero();
+        assertThat(meterRegistry.get(AimdConcurrencyLimit.LIMIT_GAUGE).tag("type", "read").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCountLookupAsReadAndLeaveNonApiPathsUnlimited() {
+        //given
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/transactions/lookup")), pendingChain).subscribe();
+
+        //when
+        MockServerWebExchange actuator = get("/actuator/health");
+        filter.filter(actuator, exchange -> Mono.empty()).block();
+
+        //then
+        assertThat(inFlight("read")).isEqualTo(1);
+        assertThat(inFlight("write")).isZero();
+        assertThat(actuator.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void shouldLowerLimitWhenRequestEndsWithMongoTimeout() {
+        //given
+        MeterRegistry registry = new SimpleMeterRegistry();
+        properties.getRead().setInitialLimit(20);
+        filter = new ConcurrencyLimitWebFilter(properties, registry);
+        MockServerWebExchange exchange = get("/api/v1/transactions/TX-1");
+
+        //when
+        filter.filter(exchange, e -> Mono.error(new DataAccessResourceFailureException("mongo timeout")))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+
+        //then : 20 x 0.9
+        assertThat(registry.get(AimdConcurrencyLimit.LIMIT_GAUGE).tag("type", "read").gauge().value()).isEqualTo(18);
+    }
+
+    @Test
+    void shouldKeepLimitWhenRequestEndsWithApplicationError() {
+        //given
+        MeterRegistry registry = new SimpleMeterRegistry();
+        properties.getRead().setInitialLimit(20);
+        filter = new ConcurrencyLimitWebFilter(properties, registry);
+        MockServerWebExchange failed = get("/api/v1/transactions/TX-1");
+        MockServerWebExchange internalError = get("/api/v1/transactions/TX-2");
+
+        //when : un bug applicatif, puis une réponse 500
+        filter.filter(failed, e -> Mono.error(new IllegalStateException("bug")))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+        filter.filter(internalError, e -> {
+            e.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+            return Mono.empty();
+        }).block();
+
+        //then
+        assertThat(registry.get(AimdConcurrencyLimit.LIMIT_GAUGE).tag("type", "read").gauge().value()).isEqualTo(20);
+    }
+
+    private double inFlight(String type) {
+        return meterRegistry.get(AimdConcurrencyLimit.IN_FLIGHT_GAUGE).tag("type", type).gauge().value();
+    }
+
+    private static MockServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+}
@@ -0,0 +1,74 @@
+package com.barry.payments.easypayapi.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latences (µs, 3 chiffres significatifs, jusqu'à 1 min) et codes de réponse d'une route.
+ */
+class EndpointRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final LoadTestEndpoint endpoint;
+    private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+
+    EndpointRecorder(LoadTestEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    // statusCode = -1 : erreur réseau / timeout, comptée comme erreur serveur
+    void record(long latencyNanos, int statusCode) {
+        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        if (statusCode >= 400 && statusCode < 500) {
+            clientErrors.increment();
+        } else if (statusCode < 0 || statusCode >= 500) {
+            serverErrors.increment();
+        }
+    }
+
+    void reset() {
+        histogram.reset();
+        clientErrors.reset();
+        serverErrors.reset();
+    }
+
+    long count() {
+        return histogram.getTotalCount();
+    }
+
+    long serverErrors() {
+        return serverErrors.sum();
+    }
+
+    String summary(Duration measured) {
+        double seconds = Math.max(1, measured.toMillis()) / 1000.0;
+        return String.format("%-38s count=%7d  thrpt=%8.1f req/s  p50=%8.2f ms  p99=%8.2f ms  p99.9=%8.2f ms  "
+                        + "max=%8.2f ms  4xx=%d  5xx/io=%d",
+                endpoint.getLabel(), count(), count() / seconds,
+                millis(50), millis(99), millis(99.9), histogram.getMaxValue() / 1000.0,
+                clientErrors.sum(), serverErrors.sum());
+    }
+
+    // distribution complète au format .hgrm (https://hdrhistogram.github.io/HdrHistogram/plotFiles.html)
+    void writeDistribution(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(endpoint.getKey() + ".hgrm")))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private double millis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
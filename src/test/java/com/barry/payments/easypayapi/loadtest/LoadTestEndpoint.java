@@ -0,0 +1,34 @@
+package com.barry.payments.easypayapi.loadtest;
+
+import java.util.Arrays;
+
+enum LoadTestEndpoint {
+
+    GET_BY_ID("get", "GET /api/v1/transactions/{id}"),
+    LIST("list", "GET /api/v1/transactions?page&size"),
+    CREATE("post", "POST /api/v1/transactions"),
+    UPDATE("put", "PUT /api/v1/transactions/{id}");
+
+    private final String key;
+    private final String label;
+
+    LoadTestEndpoint(String key, String label) {
+        this.key = key;
+        this.label = label;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    static LoadTestEndpoint fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(endpoint -> endpoint.key.equalsIgnoreCase(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown load test endpoint: " + key));
+    }
+}
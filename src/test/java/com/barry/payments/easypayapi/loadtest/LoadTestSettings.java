@@ -0,0 +1,57 @@
+package com.barry.payments.easypayapi.loadtest;
+
+import lombok.Value;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Paramètres du tir de charge, lus dans les propriétés système :
+ * -Dloadtest.rate=500 -Dloadtest.duration=60s -Dloadtest.mix=get=60,list=20,post=10,put=10 ...
+ */
+@Value
+class LoadTestSettings {
+
+    // requêtes par seconde, toutes routes confondues (modèle ouvert : le rythme ne dépend pas des réponses)
+    int rate;
+    Duration warmup;
+    Duration duration;
+    // requêtes en vol au maximum ; au-delà elles attendent, et cette attente est comptée dans la latence
+    int maxInFlight;
+    // transactions créées avant le tir, cibles des GET / PUT
+    int seedTransactions;
+    Map<LoadTestEndpoint, Integer> mix;
+    // MongoDB existant (ex. staging) ; vide = MongoDB embarqué flapdoodle
+    String mongoUri;
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.rate", 200),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "5s")),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "30s")),
+                Integer.getInteger("loadtest.max-in-flight", 256),
+                Integer.getInteger("loadtest.seed-transactions", 1000),
+                parseMix(System.getProperty("loadtest.mix", "get=60,list=20,post=10,put=10")),
+                System.getProperty("loadtest.mongodb.uri", ""));
+    }
+
+    static Map<LoadTestEndpoint, Integer> parseMix(String mix) {
+        Map<LoadTestEndpoint, Integer> weights = new EnumMap<>(LoadTestEndpoint.class);
+        for (String entry : mix.split(",")) {
+            String[] keyValue = entry.trim().split("=");
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Invalid loadtest.mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(keyValue[1].trim());
+            if (weight > 0) {
+                weights.put(LoadTestEndpoint.fromKey(keyValue[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix must give a positive weight to at least one endpoint");
+        }
+        return weights;
+    }
+}
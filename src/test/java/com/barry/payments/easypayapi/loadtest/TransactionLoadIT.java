@@ -0,0 +1,234 @@
+package com.barry.payments.easypayapi.loadtest;
+
+import com.barry.payments.easypayapi.dtos.OrderLineDTO;
+import com.barry.payments.easypayapi.dtos.TransactionDTO;
+import com.barry.payments.easypayapi.models.OrderLine;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import com.barry.payments.easypayapi.services.TransactionService;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tir de charge de bout en bout : l'application démarre sur un MongoDB embarqué (flapdoodle), un WebClient
+ * envoie un mélange configurable de GET par id, listes paginées, POST et PUT à débit fixe, et les latences
+ * de chaque route sont enregistrées dans un histogramme HDR (p50 / p99 / p99.9, fichiers .hgrm dans
+ * target/loadtest).
+ * <p>
+ * La latence est mesurée depuis l'instant où la requête AURAIT dû partir : une application saturée
+ * ne fait pas baisser le débit offert et son retard apparaît dans les percentiles (pas d'omission coordonnée).
+ * <p>
+ * Lancement : mvn test -Dtest=TransactionLoadIT -Dloadtest.enabled=true [-Dloadtest.rate=500 ...],
+ * paramètres dans LoadTestSettings. Client et serveur partagent la même JVM : pour dimensionner une instance,
+ * comparer des tirs à débit croissant plutôt que lire un chiffre absolu.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        // une ligne de log INFO par requête fausserait la mesure
+        "logging.level.com.barry.payments.easypayapi.controllers=WARN",
+        "logging.level.com.barry.payments.easypayapi.services=WARN"
+})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "loadtest.enabled", matches = "true")
+@Log4j2
+class TransactionLoadIT {
+
+    private static final LoadTestSettings SETTINGS = LoadTestSettings.fromSystemProperties();
+    private static final Duration TICK = Duration.ofMillis(1);
+    private static final int PAGE_SIZE = 20;
+    private static final Path REPORT_DIRECTORY = Path.of("target", "loadtest");
+    private static final List<OrderLineDTO> ORDER_LINES = List.of(
+            OrderLineDTO.builder().id("OL-1").productName("Ski Gloves").quantity(2).price(BigDecimal.valueOf(50)).build(),
+            OrderLineDTO.builder().id("OL-2").productName("Beanie").quantity(1).price(BigDecimal.valueOf(50)).build());
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> embeddedMongo;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private final AtomicLong createdIds = new AtomicLong();
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        if (!SETTINGS.getMongoUri().isBlank()) {
+            registry.add("spring.data.mongodb.uri", SETTINGS::getMongoUri);
+            return;
+        }
+        embeddedMongo = Mongod.instance().start(Version.Main.V7_0);
+        ServerAddress address = embeddedMongo.current().getServerAddress();
+        registry.add("spring.data.mongodb.uri",
+                () -> "mongodb://" + address.getHost() + ":" + address.getPort() + "/loadtest");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (embeddedMongo != null) {
+            embeddedMongo.close();
+        }
+    }
+
+    @Test
+    void shouldSustainTargetRateAndReportLatencyPerEndpoint() throws Exception {
+        //given
+        seed();
+        ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(SETTINGS.getMaxInFlight())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+        Map<LoadTestEndpoint, EndpointRecorder> recorders = new EnumMap<>(LoadTestEndpoint.class);
+        SETTINGS.getMix().keySet().forEach(endpoint -> recorders.put(endpoint, new EndpointRecorder(endpoint)));
+
+        //when
+        log.warn("Load test: warmup {} at {} req/s, mix={}", SETTINGS.getWarmup(), SETTINGS.getRate(), SETTINGS.getMix());
+        run(webClient, recorders, SETTINGS.getWarmup());
+        recorders.values().forEach(EndpointRecorder::reset);
+
+        log.warn("Load test: measuring {} at {} req/s", SETTINGS.getDuration(), SETTINGS.getRate());
+        long start = System.nanoTime();
+        run(webClient, recorders, SETTINGS.getDuration());
+        Duration measured = Duration.ofNanos(System.nanoTime() - start);
+        connections.disposeLater().block();
+
+        //then
+        long total = recorders.values().stream().mapToLong(EndpointRecorder::count).sum();
+        StringBuilder report = new StringBuilder(String.format("%nLoad test report: target=%d req/s, achieved=%.1f req/s over %s%n",
+                SETTINGS.getRate(), total * 1000.0 / Math.max(1, measured.toMillis()), measured));
+        for (EndpointRecorder recorder : recorders.values()) {
+            report.append(recorder.summary(measured)).append(System.lineSeparator());
+            recorder.writeDistribution(REPORT_DIRECTORY);
+        }
+        log.warn(report);
+
+        assertThat(recorders.values()).allSatisfy(recorder -> {
+            assertThat(recorder.count()).isPositive();
+            assertThat(recorder.serverErrors()).isZero();
+        });
+    }
+
+    // modèle ouvert : à chaque tick, on émet toutes les requêtes dues depuis le début du tir
+    private void run(WebClient webClient, Map<LoadTestEndpoint, EndpointRecorder> recorders, Duration duration) {
+        long intervalNanos = 1_000_000_000L / SETTINGS.getRate();
+        long totalRequests = duration.toNanos() / intervalNanos;
+        List<LoadTestEndpoint> wheel = weightedWheel(SETTINGS.getMix());
+        long start = System.nanoTime();
+        AtomicLong scheduled = new AtomicLong();
+
+        Flux.interval(TICK)
+                .onBackpressureDrop()
+                .takeUntil(tick -> scheduled.get() >= totalRequests)
+                .concatMapIterable(tick -> {
+                    long due = Math.min(totalRequests, (System.nanoTime() - start) / intervalNanos + 1);
+                    List<Long> intendedStarts = new ArrayList<>();
+                    for (long i = scheduled.get(); i < due; i++) {
+                        intendedStarts.add(start + i * intervalNanos);
+                    }
+                    scheduled.set(Math.max(scheduled.get(), due));
+                    return intendedStarts;
+                })
+                .flatMap(intendedStart -> {
+                    LoadTestEndpoint endpoint = wheel.get(ThreadLocalRandom.current().nextInt(wheel.size()));
+                    return call(webClient, endpoint)
+                            .doOnNext(status -> recorders.get(endpoint).record(System.nanoTime() - intendedStart, status));
+                }, SETTINGS.getMaxInFlight())
+                .then()
+                .block(duration.plusMinutes(1));
+    }
+
+    private Mono<Integer> call(WebClient webClient, LoadTestEndpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String seededId = seededId(random.nextInt(SETTINGS.getSeedTransactions()));
+        WebClient.RequestHeadersSpec<?> request = switch (endpoint) {
+            case GET_BY_ID -> webClient.get().uri("/api/v1/transactions/{id}", seededId);
+            case LIST -> webClient.get().uri("/api/v1/transactions?page={page}&size={size}",
+                    random.nextInt(Math.max(1, SETTINGS.getSeedTransactions() / PAGE_SIZE)), PAGE_SIZE);
+            case CREATE -> webClient.post().uri("/api/v1/transactions")
+                    .bodyValue(transactionDto("LOAD-NEW-" + createdIds.incrementAndGet(), BigDecimal.valueOf(150)));
+            // même commande que la transaction créée, statut inchangé : seule la concurrence peut refuser la mise à jour
+            case UPDATE -> webClient.put().uri("/api/v1/transactions/{id}", seededId)
+                    .bodyValue(transactionDto(null, BigDecimal.valueOf(random.nextInt(10, 1000))));
+        };
+        return request.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .onErrorResume(e -> Mono.just(-1));
+    }
+
+    private void seed() {
+        transactionRepository.deleteAll().block();
+        transactionService.createTransactions(Flux.range(0, SETTINGS.getSeedTransactions())
+                        .map(i -> Transaction.builder()
+                                .id(seededId(i))
+                                .status(NEW)
+                                .amount(BigDecimal.valueOf(150))
+                                .paymentType(CREDIT_CARD)
+                                .orderLines(ORDER_LINES.stream()
+                                        .map(line -> OrderLine.builder().id(line.getId()).productName(line.getProductName())
+                                                .quantity(line.getQuantity()).price(line.getPrice()).build())
+                                        .toList())
+                                .build()))
+                .then()
+                .block();
+    }
+
+    // une entrée par point de poids : un tirage uniforme respecte le mélange demandé
+    private static List<LoadTestEndpoint> weightedWheel(Map<LoadTestEndpoint, Integer> mix) {
+        List<LoadTestEndpoint> wheel = new ArrayList<>();
+        mix.forEach((endpoint, weight) -> IntStream.range(0, weight).forEach(i -> wheel.add(endpoint)));
+        return wheel;
+    }
+
+    private static TransactionDTO transactionDto(String id, BigDecimal amount) {
+        return TransactionDTO.builder()
+                .id(id)
+                .status(NEW)
+                .amount(amount)
+                .paymentType(CREDIT_CARD)
+                .orderLines(ORDER_LINES)
+                .build();
+    }
+
+    private static String seededId(int index) {
+        return "LOAD-" + index;
+    }
+}
@@ -0,0 +1,49 @@
+package com.barry.payments.easypayapi.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderFingerprintTest {
+
+    @Test
+    void shouldIgnorePriceScale() {
+        //given
+        OrderLine line = line("OL-1", "Beanie", 1, new BigDecimal("50.0"));
+        OrderLine sameLineOtherScale = line("OL-1", "Beanie", 1, new BigDecimal("50.00"));
+
+        //when then
+        assertThat(line).isNotEqualTo(sameLineOtherScale);
+        assertThat(OrderFingerprint.of(List.of(line))).isEqualTo(OrderFingerprint.of(List.of(sameLineOtherScale)));
+    }
+
+    @Test
+    void shouldChangeWhenAnyLineChanges() {
+        //given
+        OrderLine first = line("OL-1", "Beanie", 1, BigDecimal.TEN);
+        OrderLine second = line("OL-2", "Gloves", 2, BigDecimal.ONE);
+        String fingerprint = OrderFingerprint.of(List.of(first, second));
+
+        //when then
+        assertThat(OrderFingerprint.of(List.of(first, line("OL-2", "Gloves", 3, BigDecimal.ONE)))).isNotEqualTo(fingerprint);
+        assertThat(OrderFingerprint.of(List.of(second, first))).isNotEqualTo(fingerprint);
+        assertThat(OrderFingerprint.of(List.of(first))).isNotEqualTo(fingerprint);
+        // "ab" + "c" et "a" + "bc" ne se confondent pas
+        assertThat(OrderFingerprint.of(List.of(line("ab", "c", 1, BigDecimal.TEN))))
+                .isNotEqualTo(OrderFingerprint.of(List.of(line("a", "bc", 1, BigDecimal.TEN))));
+    }
+
+    @Test
+    void shouldDistinguishMissingAndEmptyOrder() {
+        //when then
+        assertThat(OrderFingerprint.of((List<OrderLine>) null)).isEqualTo(OrderFingerprint.NO_ORDER_LINES);
+        assertThat(OrderFingerprint.of(List.<OrderLine>of())).isNotEqualTo(OrderFingerprint.NO_ORDER_LINES);
+    }
+
+    private static OrderLine line(String id, String productName, int quantity, BigDecimal price) {
+        return OrderLine.builder().id(id).productName(productName).quantity(quantity).price(price).build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.barry.payments.easypayapi.reporitories;
+
+import com.barry.payments.easypayapi.config.MongoIndexInitializer;
+import com.barry.payments.easypayapi.models.Transaction;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
+import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
+import static com.barry.payments.easypayapi.models.enums.Status.AUTHORIZED;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionRepositoryIndexIT {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll().block();
+        mongoIndexInitializer.ensureIndexes();
+    }
+
+    @Test
+    void shouldCreateCompoundIndexesForFilteredQueries() {
+        //when
+        List<IndexInfo> indexes = reactiveMongoTemplate.indexOps(Transaction.class)
+                .getIndexInfo()
+                .collectList()
+                .block();
+
+        //then
+        assertThat(indexes).extracting(IndexInfo::getName)
+                .contains("status_id", "paymentType_id", "status_paymentType_id");
+    }
+
+    @Test
+    void shouldUseIndexScanWhenFilteringByStatusSortedById() {
+        //given
+        transactionRepository.saveAll(IntStream.range(0, 50)
+                .mapToObj(i -> Transaction.builder()
+                        .id("TX-" + i)
+                        .status(i % 2 == 0 ? AUTHORIZED : NEW)
+                        .paymentType(i % 3 == 0 ? PAYPAL : CREDIT_CARD)
+                        .amount(BigDecimal.ONE)
+                        .build())
+                .toList()).collectList().block();
+
+        //when
+        Document explain = reactiveMongoTemplate.getCollection("transaction")
+                .flatMap(collection -> Mono.from(collection
+                        .find(new Document("status", AUTHORIZED.name()))
+                        .sort(new Document("_id", 1))
+                        .explain(Document.class)))
+                .block();
+
+        //then
+        assertThat(explain).isNotNull();
+        String winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+        assertThat(winningPlan).contains("IXSCAN").doesNotContain("COLLSCAN");
+    }
+}
@@ -0,0 +1,306 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.config.IdempotencyProperties;
+import com.barry.payments.easypayapi.exceptions.IdempotencyKeyReusedException;
+import com.barry.payments.easypayapi.exceptions.IdempotentRequestInProgressException;
+import com.barry.payments.easypayapi.models.IdempotencyRecord;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.reporitories.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    private static final String KEY = "key-1";
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final IdempotencyProperties properties = new IdempotencyProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger creations = new AtomicInteger();
+    private IdempotencyStore idempotencyStore;
+
+    private final Transaction request = Transaction.builder()
+            .status(NEW)
+            .amount(BigDecimal.valueOf(43))
+            .paymentType(CREDIT_CARD).build();
+    private final Transaction created = request.toBuilder().id("TX-1").version(0L).build();
+
+    @BeforeEach
+    void setUp() {
+        properties.setPollInterval(Duration.ofMillis(5));
+        properties.setPendingTimeout(Duration.ofMillis(200));
+        idempotencyStore = new IdempotencyStore(idempotencyRecordRepository, properties, meterRegistry);
+        lenient().when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        lenient().when(idempotencyRecordRepository.complete(anyString(), anyString(), any(Transaction.class)))
+                .thenReturn(Mono.just(true));
+    }
+
+    @Test
+    void shouldReplayStoredResponseWithoutCreatingTwice() {
+        //when
+        Transaction first = idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+        Transaction replay = idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+
+        //then
+        assertThat(first).isEqualTo(created);
+        assertThat(replay).isEqualTo(created);
+        assertThat(creations).hasValue(1);
+        assertThat(meterRegistry.get("transactions.idempotency.replays").counter().count()).isEqualTo(1);
+
+        //verify
+        verify(idempotencyRecordRepository, times(1)).insert(any(IdempotencyRecord.class));
+        verify(idempotencyRecordRepository, times(1)).complete(eq(KEY), anyString(), eq(created));
+    }
+
+    @Test
+    void shouldMakeConcurrentDuplicatesWaitForTheFirstRequest() {
+        //given
+        Sinks.One<Transaction> mongoWrite = Sinks.one();
+
+        //when : 5 requêtes avec la même clé pendant que la première écrit
+        Mono<List<Transaction>> results = Flux.range(0, 5)
+                .flatMap(i -> idempotencyStore.execute(KEY, request, creation(mongoWrite.asMono())))
+                .collectList();
+
+        //then
+        StepVerifier.create(results)
+                .then(() -> mongoWrite.tryEmitValue(created))
+                .assertNext(transactions -> assertThat(transactions).hasSize(5).containsOnly(created))
+                .verifyComplete();
+        assertThat(creations).hasValue(1);
+    }
+
+    @Test
+    void shouldRejectSameKeyWithDifferentRequest() {
+        //given
+        idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+        Transaction otherRequest = request.toBuilder().amount(BigDecimal.valueOf(99)).build();
+
+        //when then
+        StepVerifier.create(idempotencyStore.execute(KEY, otherRequest, creation(Mono.just(created))))
+                .verifyError(IdempotencyKeyReusedException.class);
+        assertThat(creations).hasValue(1);
+    }
+
+    @Test
+    void shouldReleaseKeyWhenCreationFails() {
+        //given
+        when(idempotencyRecordRepository.releaseReservation(eq(KEY), anyString())).thenReturn(Mono.empty());
+
+        //when
+        StepVerifier.create(idempotencyStore.execute(KEY, request, creation(Mono.error(new IllegalStateException("mongo down")))))
+                .verifyError(IllegalStateException.class);
+        Transaction retried = idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+
+        //then
+        assertThat(retried).isEqualTo(created);
+        assertThat(creations).hasValue(2);
+
+        //verify
+        verify(idempotencyRecordRepository, times(1)).releaseReservation(eq(KEY), anyString());
+        verify(idempotencyRecordRepository, never()).deleteById(anyString());
+    }
+
+    @Test
+    void shouldWaitForResponseWrittenByAnotherInstance() {
+        //given : la clé est déjà réservée, la réponse arrive au deuxième relu
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate key")));
+        IdempotencyRecord pending = IdempotencyRecord.builder().id(KEY).requestHash(IdempotencyStore.hash(request)).build();
+        when(idempotencyRecordRepository.findById(KEY))
+                .thenReturn(Mono.just(pending), Mono.just(pending.toBuilder().transaction(created).build()));
+
+        //when
+        Transaction replay = idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+
+        //then
+        assertThat(replay).isEqualTo(created);
+        assertThat(creations).hasValue(0);
+        assertThat(meterRegistry.get("transactions.idempotency.replays").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFailWithConflictWhenOtherInstanceNeverCompletes() {
+        //given : l'autre instance est vivante, elle prolonge sa réservation
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate key")));
+        IdempotencyRecord pending = IdempotencyRecord.builder().id(KEY).requestHash(IdempotencyStore.hash(request))
+                .reservedBy("other-instance").reservedUntil(Instant.now().plusSeconds(60)).build();
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Mono.just(pending));
+
+        //when then
+        StepVerifier.create(idempotencyStore.execute(KEY, request, creation(Mono.just(created))))
+                .verifyError(IdempotentRequestInProgressException.class);
+        assertThat(creations).hasValue(0);
+
+        //verify
+        verify(idempotencyRecordRepository, never()).complete(anyString(), anyString(), any(Transaction.class));
+        verify(idempotencyRecordRepository, never()).takeOverReservation(any(IdempotencyRecord.class), anyString(), any(Instant.class));
+    }
+
+    @Test
+    void shouldTakeOverExpiredReservation() {
+        //given : l'autre instance s'est arrêtée pendant la création, sa réservation a expiré
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate key")));
+        IdempotencyRecord expired = IdempotencyRecord.builder().id(KEY).requestHash(IdempotencyStore.hash(request))
+                .reservedBy("dead-instance").reservedUntil(Instant.now().minusSeconds(1)).build();
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Mono.just(expired));
+        when(idempotencyRecordRepository.takeOverReservation(eq(expired), anyString(), any(Instant.class)))
+                .thenAnswer(invocation -> Mono.just(expired.toBuilder()
+                        .reservedBy(invocation.getArgument(1))
+                        .reservedUntil(invocation.getArgument(2)).build()));
+
+        //when
+        Transaction result = idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+
+        //then
+        assertThat(result).isEqualTo(created);
+        assertThat(creations).hasValue(1);
+
+        //verify : la réponse est écrite sous la nouvelle réservation
+        verify(idempotencyRecordRepository).complete(eq(KEY), argThat(owner -> !"dead-instance".equals(owner)), eq(created));
+    }
+
+    @Test
+    void shouldKeepWaitingWhenExpiredReservationIsTakenOverByAnotherRequest() {
+        //given : un autre doublon reprend la réservation juste avant nous, puis la complète
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate key")));
+        IdempotencyRecord expired = IdempotencyRecord.builder().id(KEY).requestHash(IdempotencyStore.hash(request))
+                .reservedBy("dead-instance").reservedUntil(Instant.now().minusSeconds(1)).build();
+        when(idempotencyRecordRepository.findById(KEY))
+                .thenReturn(Mono.just(expired), Mono.just(expired.toBuilder().transaction(created).build()));
+        when(idempotencyRecordRepository.takeOverReservation(eq(expired), anyString(), any(Instant.class)))
+                .thenReturn(Mono.empty());
+
+        //when
+        Transaction replay = idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+
+        //then
+        assertThat(replay).isEqualTo(created);
+        assertThat(creations).hasValue(0);
+    }
+
+    @Test
+    void shouldRetryStoringResponseAfterTransientFailures() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+        when(idempotencyRecordRepository.complete(eq(KEY), anyString(), eq(created)))
+                .thenReturn(Mono.defer(() -> attempts.incrementAndGet() < 3
+                        ? Mono.error(new IllegalStateException("mongo down"))
+                        : Mono.just(true)));
+
+        //when
+        Transaction result = idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+
+        //then
+        assertThat(result).isEqualTo(created);
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void shouldReplaySameRequestWrittenWithAnotherScale() {
+        //given
+        idempotencyStore.execute(KEY, request.toBuilder().amount(new BigDecimal("50.0")).build(), creation(Mono.just(created))).block();
+
+        //when
+        Transaction replay = idempotencyStore.execute(KEY, request.toBuilder().amount(new BigDecimal("50.00")).build(),
+                creation(Mono.just(created))).block();
+
+        //then
+        assertThat(replay).isEqualTo(created);
+        assertThat(creations).hasValue(1);
+    }
+
+    @Test
+    void shouldRejectDifferentRequestWithoutWaitingWhileKeyIsPending() {
+        //given : la clé est réservée par une autre requête, encore en cours
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate key")));
+        IdempotencyRecord pending = IdempotencyRecord.builder().id(KEY).requestHash(IdempotencyStore.hash(request))
+                .reservedBy("other-instance").reservedUntil(Instant.now().plusSeconds(60)).build();
+        when(idempotencyRecordRepository.findById(KEY))
+                .thenReturn(Mono.just(pending), Mono.just(pending.toBuilder().transaction(created).build()));
+        Transaction otherRequest = request.toBuilder().amount(BigDecimal.valueOf(99)).build();
+
+        //when then : 422 au premier relu, pas 409 après pending-timeout
+        StepVerifier.create(idempotencyStore.execute(KEY, otherRequest, creation(Mono.just(created))))
+                .verifyError(IdempotencyKeyReusedException.class);
+
+        //when : la requête d'origine est rejouée sur cette instance une fois complétée
+        Transaction replay = idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+
+        //then : l'enregistrement en cours n'est pas resté dans le cache
+        assertThat(replay).isEqualTo(created);
+        assertThat(creations).hasValue(0);
+
+        //verify
+        verify(idempotencyRecordRepository, times(2)).findById(KEY);
+    }
+
+    @Test
+    void shouldTakeOverExpiredReservationAfterRejectingDifferentRequest() {
+        //given : réservation expirée, d'abord relue par une autre requête sur la même clé
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate key")));
+        IdempotencyRecord expired = IdempotencyRecord.builder().id(KEY).requestHash(IdempotencyStore.hash(request))
+                .reservedBy("dead-instance").reservedUntil(Instant.now().minusSeconds(1)).build();
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Mono.just(expired));
+        when(idempotencyRecordRepository.takeOverReservation(eq(expired), anyString(), any(Instant.class)))
+                .thenAnswer(invocation -> Mono.just(expired.toBuilder()
+                        .reservedBy(invocation.getArgument(1))
+                        .reservedUntil(invocation.getArgument(2)).build()));
+        Transaction otherRequest = request.toBuilder().amount(BigDecimal.valueOf(99)).build();
+
+        //when
+        StepVerifier.create(idempotencyStore.execute(KEY, otherRequest, creation(Mono.just(created))))
+                .verifyError(IdempotencyKeyReusedException.class);
+        Transaction result = idempotencyStore.execute(KEY, request, creation(Mono.just(created))).block();
+
+        //then
+        assertThat(result).isEqualTo(created);
+        assertThat(creations).hasValue(1);
+    }
+
+    private Supplier<Mono<Transaction>> creation(Mono<Transaction> result) {
+        return () -> {
+            creations.incrementAndGet();
+            return result;
+        };
+    }
+}
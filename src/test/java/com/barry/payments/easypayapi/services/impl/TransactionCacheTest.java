@@ -0,0 +1,132 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.config.TransactionCacheProperties;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.enums.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
+import static com.barry.payments.easypayapi.models.enums.Status.CAPTURED;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldLoadOnceAndServeFromCacheUntilTtlExpires() {
+        //given
+        TransactionCache transactionCache = cache(true);
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Mono<Transaction>> loader = countingLoader(loads, transaction("TX-1", NEW));
+
+        //when
+        transactionCache.get("TX-1", loader).block();
+        transactionCache.get("TX-1", loader).block();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        transactionCache.get("TX-1", loader).block();
+
+        //then
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "transactions").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepCapturedTransactionsWithoutTtl() {
+        //given
+        TransactionCache transactionCache = cache(true);
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Mono<Transaction>> loader = countingLoader(loads, transaction("TX-2", CAPTURED));
+
+        //when
+        transactionCache.get("TX-2", loader).block();
+        now.addAndGet(TimeUnit.DAYS.toNanos(1));
+        transactionCache.get("TX-2", loader).block();
+
+        //then
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldNotCacheMissingTransactions() {
+        //given
+        TransactionCache transactionCache = cache(true);
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Mono<Transaction>> loader = id -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        //when then
+        StepVerifier.create(transactionCache.get("TX-3", loader)).verifyComplete();
+        StepVerifier.create(transactionCache.get("TX-3", loader)).verifyComplete();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldServeRefreshedValueAfterPut() {
+        //given
+        TransactionCache transactionCache = cache(true);
+        AtomicInteger loads = new AtomicInteger();
+        transactionCache.get("TX-4", countingLoader(loads, transaction("TX-4", NEW))).block();
+
+        //when
+        transactionCache.put(transaction("TX-4", CAPTURED));
+
+        //then
+        assertThat(transactionCache.get("TX-4", countingLoader(loads, null)).block().getStatus()).isEqualTo(CAPTURED);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldAlwaysCallLoaderWhenDisabled() {
+        //given
+        TransactionCache transactionCache = cache(false);
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Mono<Transaction>> loader = countingLoader(loads, transaction("TX-5", CAPTURED));
+
+        //when
+        transactionCache.get("TX-5", loader).block();
+        transactionCache.get("TX-5", loader).block();
+
+        //then
+        assertThat(loads).hasValue(2);
+    }
+
+    private TransactionCache cache(boolean enabled) {
+        TransactionCacheProperties properties = new TransactionCacheProperties();
+        properties.setEnabled(enabled);
+        properties.setTtl(Duration.ofSeconds(5));
+        return new TransactionCache(properties, meterRegistry, now::get);
+    }
+
+    private static Function<String, Mono<Transaction>> countingLoader(AtomicInteger loads, Transaction transaction) {
+        return id -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return transaction;
+        });
+    }
+
+    private static Transaction transaction(String id, Status status) {
+        return Transaction.builder()
+                .id(id)
+                .status(status)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD)
+                .build();
+    }
+}
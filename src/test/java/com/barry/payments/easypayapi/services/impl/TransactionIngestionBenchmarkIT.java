@@ -0,0 +1,96 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.models.BatchItemResult;
+import com.barry.payments.easypayapi.models.OrderLine;
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import com.barry.payments.easypayapi.services.TransactionService;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compare le débit d'ingestion du chemin unitaire (un save par transaction)
+ * et du chemin par lots (bulk writes non ordonnés).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Log4j2
+class TransactionIngestionBenchmarkIT {
+
+    private static final int TRANSACTIONS = 5_000;
+    // même parallélisme qu'un client HTTP qui enverrait ses transactions une par une
+    private static final int SINGLE_PATH_CONCURRENCY = 16;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void cleanDb() {
+        transactionRepository.deleteAll().block();
+    }
+
+    @Test
+    void shouldIngestFasterWithBatchThanWithSingleDocumentPath() {
+        //given
+        List<Transaction> singlePath = transactions("SINGLE");
+        List<Transaction> batchPath = transactions("BATCH");
+
+        //when
+        long singleStart = System.nanoTime();
+        Flux.fromIterable(singlePath)
+                .flatMap(transactionService::createTransaction, SINGLE_PATH_CONCURRENCY)
+                .then().block();
+        Duration singleDuration = Duration.ofNanos(System.nanoTime() - singleStart);
+
+        long batchStart = System.nanoTime();
+        List<BatchItemResult> results = transactionService.createTransactions(Flux.fromIterable(batchPath))
+                .collectList().block();
+        Duration batchDuration = Duration.ofNanos(System.nanoTime() - batchStart);
+
+        //then
+        double singleThroughput = TRANSACTIONS * 1000.0 / Math.max(1, singleDuration.toMillis());
+        double batchThroughput = TRANSACTIONS * 1000.0 / Math.max(1, batchDuration.toMillis());
+        log.info("Ingestion of {} transactions: single={} tx/s ({} ms), batch={} tx/s ({} ms), speedup=x{}",
+                TRANSACTIONS,
+                String.format("%.0f", singleThroughput), singleDuration.toMillis(),
+                String.format("%.0f", batchThroughput), batchDuration.toMillis(),
+                String.format("%.1f", batchThroughput / singleThroughput));
+
+        assertThat(results).hasSize(TRANSACTIONS).allMatch(BatchItemResult::isSuccess);
+        assertThat(transactionRepository.count().block()).isEqualTo(2L * TRANSACTIONS);
+        assertThat(batchThroughput).isGreaterThan(singleThroughput);
+    }
+
+    private static List<Transaction> transactions(String prefix) {
+        return IntStream.range(0, TRANSACTIONS)
+                .mapToObj(i -> Transaction.builder()
+                        .id(prefix + "-" + i)
+                        .status(NEW)
+                        .amount(BigDecimal.valueOf(150))
+                        .paymentType(CREDIT_CARD)
+                        .orderLines(List.of(
+                                OrderLine.builder().id("OL-" + i + "-1").productName("Ski Gloves")
+                                        .quantity(2).price(BigDecimal.valueOf(50)).build(),
+                                OrderLine.builder().id("OL-" + i + "-2").productName("Beanie")
+                                        .quantity(1).price(BigDecimal.valueOf(50)).build()))
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,89 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.models.Transaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionLookupCoalescerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionLookupCoalescer coalescer = new TransactionLookupCoalescer(meterRegistry);
+
+    @Test
+    void shouldShareOneInFlightReadBetweenConcurrentSubscribers() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("TX-1")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD).build();
+        Sinks.One<Transaction> mongoRead = Sinks.one();
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Mono<Transaction>> loader = id -> {
+            loads.incrementAndGet();
+            return mongoRead.asMono();
+        };
+
+        //when : 10 lectures simultanées tant que la requête MongoDB est en cours
+        Mono<List<Transaction>> results = Flux.range(0, 10)
+                .flatMap(i -> coalescer.coalesce("TX-1", loader))
+                .collectList();
+
+        //then
+        StepVerifier.create(results)
+                .then(() -> {
+                    assertThat(coalescer.inFlightCount()).isEqualTo(1);
+                    mongoRead.tryEmitValue(transaction);
+                })
+                .assertNext(transactions -> assertThat(transactions).hasSize(10).containsOnly(transaction))
+                .verifyComplete();
+
+        assertThat(loads).hasValue(1);
+        assertThat(coalescer.inFlightCount()).isZero();
+        assertThat(meterRegistry.get("transactions.lookups.coalesced").counter().count()).isEqualTo(9);
+    }
+
+    @Test
+    void shouldStartNewReadOnceThePreviousOneCompleted() {
+        //given
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Mono<Transaction>> loader = id -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return Transaction.builder().id(id).status(NEW).build();
+        });
+
+        //when
+        coalescer.coalesce("TX-2", loader).block();
+        coalescer.coalesce("TX-2", loader).block();
+
+        //then
+        assertThat(loads).hasValue(2);
+        assertThat(coalescer.inFlightCount()).isZero();
+    }
+
+    @Test
+    void shouldReleaseInFlightEntryWhenReadFails() {
+        //given
+        Function<String, Mono<Transaction>> loader = id -> Mono.error(new IllegalStateException("mongo down"));
+
+        //when then
+        StepVerifier.create(coalescer.coalesce("TX-3", loader))
+                .expectErrorMessage("mongo down")
+                .verify();
+        assertThat(coalescer.inFlightCount()).isZero();
+    }
+}
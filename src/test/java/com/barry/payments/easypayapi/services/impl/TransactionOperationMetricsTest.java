@@ -0,0 +1,85 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.exceptions.CapturedNotAllowException;
+import com.barry.payments.easypayapi.exceptions.InvalidPaginationParameterException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionOperationMetricsTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionOperationMetrics metrics = new TransactionOperationMetrics(meterRegistry);
+
+    @Test
+    void shouldTagEachOperationWithItsOutcome() {
+        //when
+        StepVerifier.create(metrics.timed("getTransactionById", Mono.just("TX-1"))).expectNext("TX-1").verifyComplete();
+        StepVerifier.create(metrics.timed("updateTransaction", Mono.error(new CapturedNotAllowException("captured"))))
+                .verifyError(CapturedNotAllowException.class);
+        StepVerifier.create(metrics.timed("updateTransaction",
+                        Mono.error(new OptimisticLockingFailureException("conflict"))))
+                .verifyError(OptimisticLockingFailureException.class);
+        StepVerifier.create(metrics.timed("getAllTransactionsPagination",
+                        Flux.error(new InvalidPaginationParameterException(-1, 0))))
+                .verifyError(InvalidPaginationParameterException.class);
+        StepVerifier.create(metrics.timed("getAllTransactions", Flux.error(new IllegalStateException("mongo down"))))
+                .verifyError(IllegalStateException.class);
+
+        //then
+        assertThat(timer("getTransactionById", "success").count()).isEqualTo(1);
+        assertThat(timer("updateTransaction", "conflict").count()).isEqualTo(2);
+        assertThat(timer("getAllTransactionsPagination", "invalid").count()).isEqualTo(1);
+        assertThat(timer("getAllTransactions", "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldStartTimingAtSubscriptionAndRecordCancelledStreams() {
+        //given
+        Sinks.Many<Integer> cursor = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<Integer> timed = metrics.timed("getAllTransactions", cursor.asFlux());
+
+        //then : rien n'est mesuré tant que personne ne s'abonne
+        assertThat(meterRegistry.find("transactions.service").timers()).isEmpty();
+
+        //when
+        StepVerifier.create(timed)
+                .then(() -> cursor.tryEmitNext(1))
+                .expectNext(1)
+                .thenCancel()
+                .verify();
+
+        //then
+        assertThat(timer("getAllTransactions", "cancelled").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPublishPercentileHistogramToPrometheus() {
+        //given
+        PrometheusMeterRegistry prometheusRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        TransactionOperationMetrics prometheusMetrics = new TransactionOperationMetrics(prometheusRegistry);
+
+        //when
+        prometheusMetrics.timed("getTransactionById", Mono.just("TX-1")).block();
+
+        //then
+        assertThat(prometheusRegistry.scrape())
+                .contains("transactions_service_seconds_bucket{")
+                .contains("operation=\"getTransactionById\"")
+                .contains("outcome=\"success\"");
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return meterRegistry.get("transactions.service").tag("operation", operation).tag("outcome", outcome).timer();
+    }
+}
@@ -1,24 +1,63 @@
 package com.barry.payments.easypayapi.services.impl;
 
+import com.barry.payments.easypayapi.config.BatchIngestionProperties;
+import com.barry.payments.easypayapi.config.EventLoggingProperties;
+import com.barry.payments.easypayapi.config.LookupProperties;
+import com.barry.payments.easypayapi.config.OrderLinesProperties;
+import com.barry.payments.easypayapi.config.PaginationProperties;
+import com.barry.payments.easypayapi.config.StreamingProperties;
+import com.barry.payments.easypayapi.config.SummaryWriteProperties;
+import com.barry.payments.easypayapi.config.TransactionCacheProperties;
+import com.barry.payments.easypayapi.config.UpdateRetryProperties;
 import com.barry.payments.easypayapi.exceptions.CannotModifyCapturedTransactionException;
 import com.barry.payments.easypayapi.exceptions.CapturedNotAllowException;
+import com.barry.payments.easypayapi.exceptions.InvalidCursorException;
+import com.barry.payments.easypayapi.exceptions.InvalidIdsException;
 import com.barry.payments.easypayapi.exceptions.InvalidPaginationParameterException;
+import com.barry.payments.easypayapi.exceptions.TooManyIdsException;
 import com.barry.payments.easypayapi.exceptions.TransactionNotFoundException;
+import com.barry.payments.easypayapi.exceptions.TransactionVersionMismatchException;
+import com.barry.payments.easypayapi.models.BatchItemResult;
+import com.barry.payments.easypayapi.models.OrderFingerprint;
 import com.barry.payments.easypayapi.models.OrderLine;
 import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFields;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionLookupResult;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.models.TransactionSummary;
+import com.barry.payments.easypayapi.models.TransactionSummaryDelta;
+import com.barry.payments.easypayapi.models.TransactionPage;
+import com.barry.payments.easypayapi.models.enums.TransactionField;
 
 import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import com.barry.payments.easypayapi.reporitories.TransactionSummaryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
 import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
@@ -27,8 +66,14 @@ import static com.barry.payments.easypayapi.models.enums.Status.CAPTURED;
 import static com.barry.payments.easypayapi.models.enums.Status.NEW;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -42,16 +87,69 @@ class TransactionServiceImplTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private TransactionSummaryRepository transactionSummaryRepository;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Spy
+    private StreamingProperties streamingProperties = new StreamingProperties();
+
+    @Spy
+    private BatchIngestionProperties batchIngestionProperties = new BatchIngestionProperties();
+
+    @Spy
+    private UpdateRetryProperties updateRetryProperties = new UpdateRetryProperties();
+
+    @Spy
+    private LookupProperties lookupProperties = new LookupProperties();
+
+    @Spy
+    private OrderLinesProperties orderLinesProperties = new OrderLinesProperties();
+
+    @Spy
+    private PaginationProperties paginationProperties = new PaginationProperties();
+
+    @Spy
+    private SummaryWriteProperties summaryWriteProperties = new SummaryWriteProperties();
+
+    @Spy
+    private EventLoggingProperties eventLoggingProperties = new EventLoggingProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private TransactionCache transactionCache =
+            new TransactionCache(new TransactionCacheProperties(), new SimpleMeterRegistry());
+
+    @Spy
+    private TransactionLookupCoalescer transactionLookupCoalescer =
+            new TransactionLookupCoalescer(new SimpleMeterRegistry());
+
+    private final SimpleMeterRegistry operationRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private TransactionOperationMetrics operationMetrics = new TransactionOperationMetrics(operationRegistry);
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionSummaryRepository.applyDeltas(anyList())).thenReturn(Mono.empty());
+        lenient().when(transactionRepository.completeSummaryTracking(anyString())).thenReturn(Mono.empty());
+        lenient().when(transactionRepository.completeSummaryTracking(anyList())).thenReturn(Mono.empty());
+    }
+
     @Test
     void shouldThrowExceptionWhenPageOrSizeValuesIsNotValid() {
         int invalidPage = -1;
         int invalidSize = 10;
 
         // when then
-        assertThatThrownBy(() -> transactionService.getAllTransactionsPagination(invalidPage, invalidSize).blockLast())
+        assertThatThrownBy(() -> transactionService.getAllTransactionsPagination(new TransactionFilter(), invalidPage, invalidSize).blockLast())
                 .isInstanceOf(InvalidPaginationParameterException.class)
                 .hasMessageContaining(
                         "Invalid pagination parameters: page= "+invalidPage+", size= "+invalidSize+
@@ -60,7 +158,7 @@ class TransactionServiceImplTest {
 
 
         // verify
-        verify(transactionRepository, never()).findAll();
+        verify(transactionRepository, never()).findByFilter(any(TransactionFilter.class), any(Pageable.class));
     }
 
 
@@ -69,6 +167,7 @@ class TransactionServiceImplTest {
         //given
         int page = 0;
         int size = 5;
+        TransactionFilter filter = TransactionFilter.builder().status(NEW).paymentType(CREDIT_CARD).build();
         OrderLine orderLine1 = OrderLine.builder()
                 .id("LX-1")
                 .productName("Ski Gloves")
@@ -99,11 +198,11 @@ class TransactionServiceImplTest {
                 .orderLines(List.of(orderLine2))
                 .build();
 
-        when(transactionRepository.findAll()).thenReturn(Flux.just(tx1, tx2));
+        when(transactionRepository.findByFilter(any(TransactionFilter.class), any(Pageable.class))).thenReturn(Flux.just(tx1, tx2));
 
         //when
 
-        Flux<Transaction> result = transactionService.getAllTransactionsPagination(page, size);
+        Flux<Transaction> result = transactionService.getAllTransactionsPagination(filter, page, size);
 
         StepVerifier.create(result)
                 .expectNext(tx1)
@@ -111,7 +210,96 @@ class TransactionServiceImplTest {
                 .verifyComplete();
 
         // verify
-        verify(transactionRepository, times(1)).findAll();
+        verify(transactionRepository, times(1))
+                .findByFilter(filter, PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "id")));
+        verify(transactionRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldReturnFirstPageWithNextCursorWhenMoreTransactionsExist() {
+        //given
+        int size = 2;
+        Transaction tx1 = Transaction.builder().id("TX-1").status(NEW).amount(BigDecimal.valueOf(10)).build();
+        Transaction tx2 = Transaction.builder().id("TX-2").status(NEW).amount(BigDecimal.valueOf(20)).build();
+        Transaction tx3 = Transaction.builder().id("TX-3").status(NEW).amount(BigDecimal.valueOf(30)).build();
+
+        when(transactionRepository.findByFilter(any(TransactionFilter.class), any(Pageable.class))).thenReturn(Flux.just(tx1, tx2, tx3));
+
+        //when
+        Mono<TransactionPage> result = transactionService.getTransactionsByCursor(new TransactionFilter(), null, size);
+
+        //then
+        StepVerifier.create(result)
+                .assertNext(page -> {
+                    assertThat(page.getTransactions()).containsExactly(tx1, tx2);
+                    assertThat(page.getNextCursor()).isNotBlank();
+                    assertThat(TransactionCursors.decode(page.getNextCursor())).isEqualTo("TX-2");
+                }).verifyComplete();
+
+        //verify : size + 1 éléments demandés pour détecter la page suivante
+        verify(transactionRepository, times(1))
+                .findByFilter(new TransactionFilter(), PageRequest.of(0, size + 1, Sort.by(Sort.Direction.ASC, "id")));
+    }
+
+    @Test
+    void shouldRunRangeQueryAfterCursorAndReturnLastPageWithoutNextCursor() {
+        //given
+        int size = 2;
+        String cursor = TransactionCursors.encode("TX-2");
+        Transaction tx3 = Transaction.builder().id("TX-3").status(NEW).amount(BigDecimal.valueOf(30)).build();
+
+        when(transactionRepository.findByFilterAfterId(any(TransactionFilter.class), eq("TX-2"), any(Pageable.class))).thenReturn(Flux.just(tx3));
+
+        //when
+        Mono<TransactionPage> result = transactionService.getTransactionsByCursor(new TransactionFilter(), cursor, size);
+
+        //then
+        StepVerifier.create(result)
+                .assertNext(page -> {
+                    assertThat(page.getTransactions()).containsExactly(tx3);
+                    assertThat(page.getNextCursor()).isNull();
+                }).verifyComplete();
+
+        //verify
+        verify(transactionRepository, never()).findByFilter(any(TransactionFilter.class), any(Pageable.class));
+    }
+
+    @Test
+    void shouldKeepBsonTypeOfLastIdInCursor() {
+        //given
+        String objectId = new ObjectId().toHexString();
+
+        //when then : un ObjectId reste un ObjectId, une chaîne reste une chaîne
+        assertThat(TransactionCursors.decode(TransactionCursors.encode(objectId))).isEqualTo(new ObjectId(objectId));
+        assertThat(TransactionCursors.decode(TransactionCursors.encode("GEN-42"))).isEqualTo("GEN-42");
+    }
+
+    @Test
+    void shouldThrowExceptionWhenCursorIsNotValid() {
+        //when then
+        assertThatThrownBy(() -> transactionService.getTransactionsByCursor(new TransactionFilter(), "not-a-cursor", 5).block())
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessageContaining("Invalid pagination cursor: not-a-cursor");
+
+        //verify
+        verify(transactionRepository, never()).findByFilterAfterId(any(TransactionFilter.class), any(), any(Pageable.class));
+    }
+
+    @Test
+    void shouldRejectCursorPageSizeAboveConfiguredMaximum() {
+        //given
+        paginationProperties.setMaxSize(100);
+
+        //when then
+        assertThatThrownBy(() -> transactionService.getTransactionsByCursor(new TransactionFilter(), null, Integer.MAX_VALUE).block())
+                .isInstanceOf(InvalidPaginationParameterException.class)
+                .hasMessageContaining("Invalid pagination parameters: page= 0, size= " + Integer.MAX_VALUE +
+                        " : { Size must be between 1 and 100 }");
+        assertThatThrownBy(() -> transactionService.getAllTransactionsPagination(new TransactionFilter(), 0, 101).blockLast())
+                .isInstanceOf(InvalidPaginationParameterException.class);
+
+        //verify
+        verify(transactionRepository, never()).findByFilter(any(TransactionFilter.class), any(Pageable.class));
     }
 
     @Test
@@ -144,10 +332,10 @@ class TransactionServiceImplTest {
                 .paymentType(CREDIT_CARD)
                 .orderLines(List.of(orderLine2)).build();
 
-        when(transactionRepository.findAll()).thenReturn(Flux.just(transaction, transaction2));
+        when(transactionRepository.streamAll(any(TransactionFilter.class), anyInt())).thenReturn(Flux.just(transaction, transaction2));
 
         //when
-        Flux<Transaction> result = transactionService.getAllTransactions();
+        Flux<Transaction> result = transactionService.getAllTransactions(new TransactionFilter());
 
         //then
         StepVerifier.create(result)
@@ -157,8 +345,74 @@ class TransactionServiceImplTest {
 
 
 
+        //verify : le curseur est ouvert avec la taille de lot configurée
+        verify(transactionRepository, times(1)).streamAll(new TransactionFilter(), streamingProperties.getCursorBatchSize());
+    }
+
+    @Test
+    void shouldComputeExactStatsWithRepositoryAggregation() {
+        //given
+        TransactionFilter filter = TransactionFilter.builder().paymentType(CREDIT_CARD).build();
+        TransactionStats stats = TransactionStats.builder()
+                .status(AUTHORIZED)
+                .paymentType(CREDIT_CARD)
+                .count(2)
+                .totalAmount(BigDecimal.valueOf(150))
+                .minAmount(BigDecimal.valueOf(50))
+                .maxAmount(BigDecimal.valueOf(100))
+                .averageAmount(BigDecimal.valueOf(75))
+                .build();
+
+        when(transactionRepository.aggregateStats(filter)).thenReturn(Flux.just(stats));
+
+        //when
+        Flux<TransactionStats> result = transactionService.computeTransactionStats(filter);
+
+        //then
+        StepVerifier.create(result)
+                .expectNext(stats)
+                .verifyComplete();
+
+        //verify : aucune transaction n'est chargée côté application
+        verify(transactionRepository, times(1)).aggregateStats(filter);
+        verify(transactionRepository, never()).streamAll(any(TransactionFilter.class), anyInt());
+    }
+
+    @Test
+    void shouldServeStatsFromSummaryWithoutScanningTransactions() {
+        //given
+        TransactionFilter filter = TransactionFilter.builder().status(AUTHORIZED).build();
+        TransactionSummary summary = TransactionSummary.builder()
+                .id("AUTHORIZED:PAYPAL")
+                .status(AUTHORIZED)
+                .paymentType(PAYPAL)
+                .count(4)
+                .totalAmount(BigDecimal.valueOf(100))
+                .minAmount(BigDecimal.valueOf(10))
+                .maxAmount(BigDecimal.valueOf(40))
+                .build();
+        TransactionSummary emptyGroup = summary.toBuilder()
+                .id("AUTHORIZED:GIFT_CARD")
+                .count(0)
+                .totalAmount(BigDecimal.ZERO)
+                .build();
+
+        when(transactionSummaryRepository.findByFilter(filter)).thenReturn(Flux.just(summary, emptyGroup));
+
+        //when
+        Flux<TransactionStats> result = transactionService.getTransactionStats(filter);
+
+        //then : moyenne dérivée de total / count, groupes vides ignorés
+        StepVerifier.create(result)
+                .assertNext(stats -> {
+                    assertThat(stats.getCount()).isEqualTo(4);
+                    assertThat(stats.getTotalAmount()).isEqualByComparingTo("100");
+                    assertThat(stats.getAverageAmount()).isEqualByComparingTo("25");
+                })
+                .verifyComplete();
+
         //verify
-        verify(transactionRepository, times(1)).findAll();
+        verify(transactionRepository, never()).aggregateStats(any(TransactionFilter.class));
     }
 
     @Test
@@ -199,6 +453,84 @@ class TransactionServiceImplTest {
     }
 
 
+    @Test
+    void shouldServeTransactionFromCacheOnSecondRead() {
+        //given
+        String transactionID = "AXA";
+        Transaction transaction = Transaction.builder()
+                .id(transactionID)
+                .status(NEW)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD).build();
+
+        when(transactionRepository.findById(transactionID)).thenReturn(Mono.just(transaction));
+
+        //when
+        transactionService.getTransactionById(transactionID).block();
+        Transaction cached = transactionService.getTransactionById(transactionID).block();
+
+        //then
+        assertThat(cached).isEqualTo(transaction);
+        verify(transactionRepository, times(1)).findById(transactionID);
+    }
+
+    @Test
+    void shouldCoalesceConcurrentReadsWhenCacheIsDisabled() {
+        //given
+        TransactionCacheProperties disabled = new TransactionCacheProperties();
+        disabled.setEnabled(false);
+        TransactionServiceImpl serviceWithoutCache = new TransactionServiceImpl(transactionRepository,
+                transactionSummaryRepository, streamingProperties, batchIngestionProperties, updateRetryProperties, lookupProperties,
+                orderLinesProperties, paginationProperties, summaryWriteProperties, new TransactionCache(disabled, meterRegistry), transactionLookupCoalescer, operationMetrics,
+                idempotencyStore, eventLoggingProperties, meterRegistry);
+
+        String transactionID = "AXA";
+        Transaction transaction = Transaction.builder()
+                .id(transactionID)
+                .status(NEW)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD).build();
+        Sinks.One<Transaction> mongoRead = Sinks.one();
+        when(transactionRepository.findById(transactionID)).thenReturn(mongoRead.asMono());
+
+        //when
+        Mono<List<Transaction>> result = Flux.range(0, 5)
+                .flatMap(i -> serviceWithoutCache.getTransactionById(transactionID))
+                .collectList();
+
+        //then
+        StepVerifier.create(result)
+                .then(() -> mongoRead.tryEmitValue(transaction))
+                .assertNext(transactions -> assertThat(transactions).hasSize(5))
+                .verifyComplete();
+        verify(transactionRepository, times(1)).findById(transactionID);
+    }
+
+    @Test
+    void shouldRefreshCacheWhenTransactionIsUpdated() {
+        //given
+        String transactionID = "AXA";
+        Transaction transaction = Transaction.builder()
+                .id(transactionID)
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD).build();
+        Transaction captured = transaction.toBuilder().status(CAPTURED).build();
+
+        when(transactionRepository.findById(transactionID)).thenReturn(Mono.just(transaction));
+        when(transactionRepository.updateIfTransitionAllowed(transactionID, captured)).thenReturn(Mono.just(transaction.toBuilder()
+                .orderLines(null)
+                .orderFingerprint(OrderFingerprint.of(transaction.getOrderLines())).build()));
+
+        //when
+        transactionService.getTransactionById(transactionID).block();
+        transactionService.updateTransaction(transactionID, captured).block();
+
+        //then
+        assertThat(transactionService.getTransactionById(transactionID).block().getStatus()).isEqualTo(CAPTURED);
+        verify(transactionRepository, times(1)).findById(transactionID);
+    }
+
     @Test
     void shouldThrowExceptionTransactionIdIsNotValid() {
         //given
@@ -213,6 +545,233 @@ class TransactionServiceImplTest {
 
         //verify
         verify(transactionRepository, times(1)).findById(anyString());
+        assertThat(operationRegistry.get("transactions.service")
+                .tag("operation", "getTransactionById").tag("outcome", "not-found").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReadProjectionWithoutCachingItWhenFieldsAreRequested() {
+        //given
+        String transactionID = "AXA";
+        TransactionFields fields = TransactionFields.of(TransactionField.ID, TransactionField.STATUS);
+        Transaction projection = Transaction.builder().id(transactionID).status(NEW).build();
+        Transaction transaction = projection.toBuilder()
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD).build();
+
+        when(transactionRepository.findProjectionById(transactionID, fields)).thenReturn(Mono.just(projection));
+        when(transactionRepository.findById(transactionID)).thenReturn(Mono.just(transaction));
+
+        //when
+        Transaction projected = transactionService.getTransactionById(transactionID, fields).block();
+        Transaction full = transactionService.getTransactionById(transactionID).block();
+
+        //then
+        assertThat(projected).isEqualTo(projection);
+        assertThat(full).isEqualTo(transaction);
+
+        //verify
+        verify(transactionRepository, times(1)).findProjectionById(transactionID, fields);
+        verify(transactionRepository, times(1)).findById(transactionID);
+    }
+
+    @Test
+    void shouldReadOnlyRequestedOrderLinesWindowFromMongo() {
+        //given
+        String transactionID = "AXA";
+        List<OrderLine> window = List.of(
+                OrderLine.builder().id("OL-10").productName("Beanie").quantity(1).price(BigDecimal.TEN).build(),
+                OrderLine.builder().id("OL-11").productName("Gloves").quantity(2).price(BigDecimal.ONE).build());
+
+        when(transactionRepository.findOrderLinesWindow(transactionID, 10, 2))
+                .thenReturn(Mono.just(Transaction.builder().id(transactionID).orderLines(window).build()));
+
+        //when then
+        StepVerifier.create(transactionService.getOrderLines(transactionID, 10, 2))
+                .expectNextSequence(window)
+                .verifyComplete();
+
+        //verify
+        verify(transactionRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void shouldSliceCachedOrderLinesWithoutQueryingMongo() {
+        //given
+        String transactionID = "AXA";
+        List<OrderLine> orderLines = List.of(
+                OrderLine.builder().id("OL-1").productName("Beanie").quantity(1).price(BigDecimal.TEN).build(),
+                OrderLine.builder().id("OL-2").productName("Gloves").quantity(2).price(BigDecimal.ONE).build(),
+                OrderLine.builder().id("OL-3").productName("Scarf").quantity(1).price(BigDecimal.ONE).build());
+        transactionCache.put(Transaction.builder().id(transactionID).status(NEW).orderLines(orderLines).build());
+
+        //when then
+        StepVerifier.create(transactionService.getOrderLines(transactionID, 1, 5))
+                .expectNextSequence(orderLines.subList(1, 3))
+                .verifyComplete();
+        StepVerifier.create(transactionService.getOrderLines(transactionID, 3, 5))
+                .verifyComplete();
+
+        //verify
+        verify(transactionRepository, never()).findOrderLinesWindow(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldRejectOrderLinesWindowLargerThanAllowed() {
+        //given
+        orderLinesProperties.setMaxLimit(10);
+
+        //when then
+        StepVerifier.create(transactionService.getOrderLines("AXA", 0, 11))
+                .verifyError(InvalidPaginationParameterException.class);
+        StepVerifier.create(transactionService.getOrderLines("AXA", -1, 5))
+                .verifyError(InvalidPaginationParameterException.class);
+
+        //verify
+        verify(transactionRepository, never()).findOrderLinesWindow(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldThrowNotFoundWhenReadingOrderLinesOfUnknownTransaction() {
+        //given
+        when(transactionRepository.findOrderLinesWindow("AXA", 0, 100)).thenReturn(Mono.empty());
+
+        //when then
+        StepVerifier.create(transactionService.getOrderLines("AXA", 0, 100))
+                .verifyError(TransactionNotFoundException.class);
+    }
+
+    @Test
+    void shouldLookUpMissesWithOneQueryAndKeepRequestOrder() {
+        //given : TX-2 est en cache, TX-1 et TX-3 sont lues dans MongoDB, TX-404 n'existe pas
+        Transaction tx1 = Transaction.builder().id("TX-1").status(NEW).amount(BigDecimal.valueOf(10)).paymentType(CREDIT_CARD).build();
+        Transaction tx2 = Transaction.builder().id("TX-2").status(NEW).amount(BigDecimal.valueOf(20)).paymentType(CREDIT_CARD).build();
+        Transaction tx3 = Transaction.builder().id("TX-3").status(NEW).amount(BigDecimal.valueOf(30)).paymentType(PAYPAL).build();
+        transactionCache.put(tx2);
+        when(transactionRepository.findAllById(List.of("TX-3", "TX-404", "TX-1"))).thenReturn(Flux.just(tx1, tx3));
+
+        //when
+        List<TransactionLookupResult> results = transactionService
+                .getTransactionsByIds(List.of("TX-3", "TX-2", "TX-404", "TX-1", "TX-3"))
+                .collectList().block();
+
+        //then
+        assertThat(results)
+                .extracting(TransactionLookupResult::getId, TransactionLookupResult::isFound, TransactionLookupResult::getTransaction)
+                .containsExactly(
+                        tuple("TX-3", true, tx3),
+                        tuple("TX-2", true, tx2),
+                        tuple("TX-404", false, null),
+                        tuple("TX-1", true, tx1),
+                        tuple("TX-3", true, tx3));
+
+        //verify : une seule requête $in, ids dédoublonnés, sans l'id trouvé en cache
+        verify(transactionRepository, times(1)).findAllById(List.of("TX-3", "TX-404", "TX-1"));
+        verify(transactionRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void shouldNotQueryMongoWhenAllLookedUpIdsAreCached() {
+        //given
+        Transaction tx1 = Transaction.builder().id("TX-1").status(NEW).amount(BigDecimal.valueOf(10)).paymentType(CREDIT_CARD).build();
+        transactionCache.put(tx1);
+
+        //when
+        List<TransactionLookupResult> results = transactionService.getTransactionsByIds(List.of("TX-1")).collectList().block();
+
+        //then
+        assertThat(results).extracting(TransactionLookupResult::getTransaction).containsExactly(tx1);
+
+        //verify
+        verify(transactionRepository, never()).findAllById(anyList());
+    }
+
+    @Test
+    void shouldRejectLookupWithMoreIdsThanAllowed() {
+        //given
+        lookupProperties.setMaxIds(2);
+
+        //when then
+        StepVerifier.create(transactionService.getTransactionsByIds(List.of("TX-1", "TX-2", "TX-3")))
+                .verifyError(TooManyIdsException.class);
+
+        //verify
+        verify(transactionRepository, never()).findAllById(anyList());
+    }
+
+    @Test
+    void shouldRejectLookupWithNullOrBlankIds() {
+        //when then
+        StepVerifier.create(transactionService.getTransactionsByIds(Arrays.asList("TX-1", null)))
+                .verifyError(InvalidIdsException.class);
+        StepVerifier.create(transactionService.getTransactionsByIds(List.of("TX-1", " ")))
+                .verifyError(InvalidIdsException.class);
+
+        //verify
+        verify(transactionRepository, never()).findAllById(anyList());
+    }
+
+    @Test
+    void shouldReadLookupCacheAtSubscription() {
+        //given : la transaction entre dans le cache après l'assemblage du flux
+        Transaction tx1 = Transaction.builder().id("TX-1").status(NEW).amount(BigDecimal.valueOf(10)).paymentType(CREDIT_CARD).build();
+        Flux<TransactionLookupResult> lookup = transactionService.getTransactionsByIds(List.of("TX-1"));
+        transactionCache.put(tx1);
+
+        //when
+        List<TransactionLookupResult> results = lookup.collectList().block();
+
+        //then
+        assertThat(results).extracting(TransactionLookupResult::getTransaction).containsExactly(tx1);
+
+        //verify
+        verify(transactionRepository, never()).findAllById(anyList());
+    }
+
+    @Test
+    void shouldAnswerCreationBeforeSummaryIsUpdated() {
+        //given : les totaux ne répondent pas
+        Transaction transaction = Transaction.builder().id("TX-1").status(NEW).amount(BigDecimal.valueOf(10))
+                .paymentType(CREDIT_CARD).build();
+        Sinks.Empty<Void> summary = Sinks.empty();
+        AtomicBoolean trackingCompleted = new AtomicBoolean();
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(transactionSummaryRepository.applyDeltas(anyList())).thenReturn(summary.asMono());
+        when(transactionRepository.completeSummaryTracking("TX-1")).thenReturn(Mono.fromRunnable(() -> trackingCompleted.set(true)));
+
+        //when
+        Transaction created = transactionService.createTransaction(transaction).block(Duration.ofSeconds(1));
+
+        //then : réponse envoyée, marqueur encore en place
+        assertThat(created.getId()).isEqualTo("TX-1");
+        assertThat(meterRegistry.get("transactions.summary.writes.pending").gauge().value()).isEqualTo(1);
+        assertThat(trackingCompleted).isFalse();
+
+        //when : les totaux répondent
+        summary.tryEmitEmpty();
+
+        //then
+        assertThat(meterRegistry.get("transactions.summary.writes.pending").gauge().value()).isZero();
+        assertThat(trackingCompleted).isTrue();
+    }
+
+    @Test
+    void shouldWaitForSummaryWhenTooManyUpdatesArePending() {
+        //given : aucune mise à jour en arrière-plan admise
+        summaryWriteProperties.setMaxPending(0);
+        Transaction transaction = Transaction.builder().id("TX-1").status(NEW).amount(BigDecimal.valueOf(10))
+                .paymentType(CREDIT_CARD).build();
+        Sinks.Empty<Void> summary = Sinks.empty();
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(transactionSummaryRepository.applyDeltas(anyList())).thenReturn(summary.asMono());
+
+        //when then
+        StepVerifier.create(transactionService.createTransaction(transaction))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .then(summary::tryEmitEmpty)
+                .expectNextCount(1)
+                .verifyComplete();
     }
 
     @Test
@@ -248,8 +807,107 @@ class TransactionServiceImplTest {
                 }).verifyComplete();
 
 
-        //verify
+        //verify : le total du groupe (NEW, CREDIT_CARD) est incrémenté
         verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(transactionSummaryRepository, times(1)).applyDeltas(List.of(TransactionSummaryDelta.builder()
+                .status(NEW)
+                .paymentType(CREDIT_CARD)
+                .count(1)
+                .amount(BigDecimal.valueOf(43))
+                .minAmount(BigDecimal.valueOf(43))
+                .maxAmount(BigDecimal.valueOf(43))
+                .build()));
+    }
+
+    @Test
+    void shouldCreateThroughIdempotencyStoreWhenKeyIsGiven() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .status(NEW)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD).build();
+        Transaction savedTransaction = transaction.toBuilder().id("AXA").build();
+        when(transactionRepository.save(trackedCopyOf(transaction))).thenReturn(Mono.just(savedTransaction));
+        when(idempotencyStore.execute(eq("key-1"), eq(transaction), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Mono<Transaction>>>getArgument(2).get());
+
+        //when
+        Transaction created = transactionService.createTransaction(transaction, "key-1").block();
+
+        //then
+        assertThat(created).isEqualTo(savedTransaction);
+
+        //verify
+        verify(transactionRepository, times(1)).save(trackedCopyOf(transaction));
+    }
+
+    @Test
+    void shouldBypassIdempotencyStoreWhenKeyIsBlank() {
+        //given
+        Transaction transaction = Transaction.builder()
+                .id("AXA")
+                .status(NEW)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD).build();
+        when(transactionRepository.save(trackedCopyOf(transaction))).thenReturn(Mono.just(transaction));
+
+        //when
+        transactionService.createTransaction(transaction, " ").block();
+
+        //verify
+        verify(idempotencyStore, never()).execute(anyString(), any(Transaction.class), any());
+    }
+
+    @Test
+    void shouldInsertTransactionsByChunksAndReportResultPerItem() {
+        //given
+        batchIngestionProperties.setChunkSize(2);
+        Transaction tx1 = Transaction.builder().id("TX-1").status(NEW).amount(BigDecimal.valueOf(10)).build();
+        Transaction tx2 = Transaction.builder().id("TX-2").status(NEW).amount(BigDecimal.valueOf(20)).build();
+        Transaction tx3 = Transaction.builder().status(NEW).amount(BigDecimal.valueOf(30)).build();
+
+        when(transactionRepository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<Transaction> chunk = invocation.getArgument(0);
+            return Flux.range(0, chunk.size())
+                    .map(i -> BatchItemResult.builder()
+                            .index(i)
+                            .id(chunk.get(i).getId())
+                            .success(!"TX-2".equals(chunk.get(i).getId()))
+                            .error("TX-2".equals(chunk.get(i).getId()) ? "duplicate key" : null)
+                            .build());
+        });
+
+        //when
+        Flux<BatchItemResult> result = transactionService.createTransactions(Flux.just(tx1, tx2, tx3));
+
+        //then
+        StepVerifier.create(result)
+                .assertNext(item -> {
+                    assertThat(item.getIndex()).isZero();
+                    assertThat(item.isSuccess()).isTrue();
+                })
+                .assertNext(item -> {
+                    assertThat(item.getIndex()).isEqualTo(1);
+                    assertThat(item.isSuccess()).isFalse();
+                    assertThat(item.getError()).isEqualTo("duplicate key");
+                })
+                .assertNext(item -> {
+                    assertThat(item.getIndex()).isEqualTo(2);
+                    assertThat(item.isSuccess()).isTrue();
+                    assertThat(item.getId()).isNotBlank();
+                })
+                .verifyComplete();
+
+        //verify : 3 transactions => 2 bulk writes, la transaction en échec n'est pas comptée
+        verify(transactionRepository, times(2)).insertUnordered(anyList());
+        verify(transactionSummaryRepository, times(1)).applyDeltas(List.of(TransactionSummaryDelta.builder()
+                .status(NEW)
+                .count(1)
+                .amount(BigDecimal.valueOf(10))
+                .minAmount(BigDecimal.valueOf(10))
+                .maxAmount(BigDecimal.valueOf(10))
+                .build()));
+        verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
     @Test
@@ -276,6 +934,7 @@ class TransactionServiceImplTest {
                 .paymentType(CREDIT_CARD)
                 .orderLines(List.of(orderLine)).build();
 
+        when(transactionRepository.updateIfTransitionAllowed(anyString(), any(Transaction.class))).thenReturn(Mono.empty());
         when(transactionRepository.findById(anyString())).thenReturn(Mono.just(transaction));
 
         //when then
@@ -318,6 +977,7 @@ class TransactionServiceImplTest {
                 .paymentType(CREDIT_CARD)
                 .orderLines(List.of(orderLine2)).build();
 
+        when(transactionRepository.updateIfTransitionAllowed(anyString(), any(Transaction.class))).thenReturn(Mono.empty());
         when(transactionRepository.findById(anyString())).thenReturn(Mono.just(transaction));
 
         //when then
@@ -355,6 +1015,7 @@ class TransactionServiceImplTest {
                 .paymentType(CREDIT_CARD)
                 .orderLines(List.of(orderLine)).build();
 
+        when(transactionRepository.updateIfTransitionAllowed(anyString(), any(Transaction.class))).thenReturn(Mono.empty());
         when(transactionRepository.findById(anyString())).thenReturn(Mono.just(transaction));
 
         //when then
@@ -401,8 +1062,11 @@ class TransactionServiceImplTest {
                 .orderLines(List.of(orderLine)).build();
 
 
-        when(transactionRepository.findById(anyString())).thenReturn(Mono.just(transaction));
-        when(transactionRepository.save(any())).thenReturn(Mono.just(transactionToUpdate));
+        // findAndModify renvoie l'état avant modification, sans les lignes mais avec leur empreinte
+        when(transactionRepository.updateIfTransitionAllowed(transactionID, transactionToUpdate))
+                .thenReturn(Mono.just(transaction.toBuilder()
+                        .orderLines(null)
+                        .orderFingerprint(OrderFingerprint.of(List.of(orderLine))).build()));
 
         //when
         Mono<Transaction> result = transactionService.updateTransaction(transactionID, transactionToUpdate);
@@ -412,10 +1076,181 @@ class TransactionServiceImplTest {
                     assertThat(updatedTransactionValue.getStatus()).isEqualTo(updatedTransaction.getStatus());
                     assertThat(updatedTransactionValue.getAmount()).isEqualTo(updatedTransaction.getAmount());
                     assertThat(updatedTransactionValue.getPaymentType()).isEqualTo(updatedTransaction.getPaymentType());
+                    assertThat(updatedTransactionValue.getOrderLines()).isEqualTo(updatedTransaction.getOrderLines());
                 }).verifyComplete();
 
+        //verify : un seul aller-retour, sans lecture préalable
+        verify(transactionRepository, times(1)).updateIfTransitionAllowed(transactionID, transactionToUpdate);
+        verify(transactionRepository, never()).findById(anyString());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+
+        //verify : la transaction passe du groupe (AUTHORIZED, CREDIT_CARD) au groupe (CAPTURED, PAYPAL)
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TransactionSummaryDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(transactionSummaryRepository, times(1)).applyDeltas(deltas.capture());
+        assertThat(deltas.getValue()).extracting("status", "paymentType", "count", "amount")
+                .containsExactly(
+                        tuple(AUTHORIZED, CREDIT_CARD, -1L, BigDecimal.valueOf(-16646)),
+                        tuple(CAPTURED, PAYPAL, 1L, BigDecimal.valueOf(43)));
+    }
+
+    @Test
+    void shouldNotReReadOrderLinesWhenFingerprintIsBackfilled() {
+        //given : document écrit avant l'empreinte et sans lignes, findAndModify y a posé NO_ORDER_LINES
+        OrderLine orderLine = OrderLine.builder()
+                .id("LX-1")
+                .productName("Ski Gloves")
+                .quantity(2)
+                .price(BigDecimal.valueOf(12)).build();
+
+        String transactionID = "AXA";
+        Transaction legacy = Transaction.builder()
+                .id(transactionID)
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD)
+                .orderLines(null)
+                .orderFingerprint(OrderFingerprint.NO_ORDER_LINES)
+                .version(0L).build();
+        Transaction transactionToUpdate = legacy.toBuilder().status(CAPTURED).orderLines(List.of(orderLine))
+                .orderFingerprint(null).version(null).build();
+
+        when(transactionRepository.updateIfTransitionAllowed(transactionID, transactionToUpdate)).thenReturn(Mono.just(legacy));
+
+        //when
+        Transaction updated = transactionService.updateTransaction(transactionID, transactionToUpdate).block();
+
+        //then : les lignes stockées (absentes) sont renvoyées, pas celles de la requête
+        assertThat(updated.getStatus()).isEqualTo(CAPTURED);
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        assertThat(updated.getOrderLines()).isNull();
+
         //verify
-        verify(transactionRepository, times(1)).findById(anyString());
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(transactionRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void shouldThrowConflictWhenTransactionChangedConcurrently() {
+        //given
+        OrderLine orderLine = OrderLine.builder()
+                .id("LX-1")
+                .productName("Ski Gloves")
+                .quantity(2)
+                .price(BigDecimal.valueOf(12)).build();
+
+        String transactionID = "AXA";
+        Transaction transaction = Transaction.builder()
+                .id(transactionID)
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD)
+                .orderLines(List.of(orderLine)).build();
+
+        Transaction transactionToUpdate = transaction.toBuilder().status(CAPTURED).build();
+        updateRetryProperties.setMaxAttempts(2);
+        updateRetryProperties.setMinBackoff(Duration.ofMillis(1));
+
+        // la mise à jour conditionnelle a échoué, mais la relecture ne viole aucune règle
+        when(transactionRepository.updateIfTransitionAllowed(anyString(), any(Transaction.class))).thenReturn(Mono.empty());
+        when(transactionRepository.findById(anyString())).thenReturn(Mono.just(transaction));
+
+        //when then
+        assertThatThrownBy(()->transactionService.updateTransaction(transactionID, transactionToUpdate).block())
+                .isInstanceOf(OptimisticLockingFailureException.class)
+                .hasMessageContaining("Transaction was modified concurrently");
+
+        //verify : 1 tentative + 2 relances
+        verify(transactionRepository, times(3)).updateIfTransitionAllowed(transactionID, transactionToUpdate);
+        assertThat(meterRegistry.get("transactions.update.conflicts").tag("reason", "concurrent").counter().count())
+                .isEqualTo(3);
+        assertThat(meterRegistry.get("transactions.update.retries.exhausted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRetryAndSucceedWhenConflictIsTransient() {
+        //given
+        String transactionID = "AXA";
+        Transaction transaction = Transaction.builder()
+                .id(transactionID)
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD)
+                .orderLines(List.of()).build();
+
+        Transaction transactionToUpdate = transaction.toBuilder().status(CAPTURED).build();
+        updateRetryProperties.setMinBackoff(Duration.ofMillis(1));
+
+        when(transactionRepository.updateIfTransitionAllowed(anyString(), any(Transaction.class)))
+                .thenReturn(Mono.empty())
+                .thenReturn(Mono.just(transaction.toBuilder()
+                        .orderLines(null)
+                        .orderFingerprint(OrderFingerprint.of(List.<OrderLine>of()))
+                        .version(1L).build()));
+        when(transactionRepository.findById(anyString())).thenReturn(Mono.just(transaction));
+
+        //when
+        Mono<Transaction> result = transactionService.updateTransaction(transactionID, transactionToUpdate);
+
+        //then
+        StepVerifier.create(result)
+                .assertNext(updated -> assertThat(updated.getVersion()).isEqualTo(2L))
+                .verifyComplete();
+        verify(transactionRepository, times(2)).updateIfTransitionAllowed(transactionID, transactionToUpdate);
+    }
+
+    @Test
+    void shouldThrowVersionMismatchWithoutRetryWhenIfMatchVersionIsStale() {
+        //given
+        String transactionID = "AXA";
+        Transaction transaction = Transaction.builder()
+                .id(transactionID)
+                .status(NEW)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD)
+                .orderLines(List.of())
+                .version(5L).build();
+
+        Transaction transactionToUpdate = transaction.toBuilder().status(AUTHORIZED).version(4L).build();
+
+        when(transactionRepository.updateIfTransitionAllowed(anyString(), any(Transaction.class))).thenReturn(Mono.empty());
+        when(transactionRepository.findById(anyString())).thenReturn(Mono.just(transaction));
+
+        //when then
+        assertThatThrownBy(()->transactionService.updateTransaction(transactionID, transactionToUpdate).block())
+                .isInstanceOf(TransactionVersionMismatchException.class)
+                .hasMessageContaining("has version 5, expected 4");
+
+        //verify
+        verify(transactionRepository, times(1)).updateIfTransitionAllowed(anyString(), any(Transaction.class));
+        assertThat(meterRegistry.get("transactions.update.conflicts").tag("reason", "if-match").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldThrowNotFoundWhenUpdatingUnknownTransaction() {
+        //given
+        Transaction transactionToUpdate = Transaction.builder()
+                .id("AXA")
+                .status(AUTHORIZED)
+                .amount(BigDecimal.valueOf(43))
+                .paymentType(CREDIT_CARD).build();
+
+        when(transactionRepository.updateIfTransitionAllowed(anyString(), any(Transaction.class))).thenReturn(Mono.empty());
+        when(transactionRepository.findById(anyString())).thenReturn(Mono.empty());
+
+        //when then
+        assertThatThrownBy(()->transactionService.updateTransaction("AXA", transactionToUpdate).block())
+                .isInstanceOf(TransactionNotFoundException.class);
+
+        //verify
+        assertThat(operationRegistry.get("transactions.service")
+                .tag("operation", "updateTransaction").tag("outcome", "not-found").timer().count()).isEqualTo(1);
+    }
+
+    // transaction enregistrée avec son marqueur de totaux en cours (SummaryTracking)
+    private static Transaction trackedCopyOf(Transaction transaction) {
+        return argThat(saved -> saved.getSummaryTracking() != null
+                && saved.getSummaryTracking().getWriters() == 1
+                && saved.toBuilder().summaryTracking(null).build().equals(transaction));
     }
 }
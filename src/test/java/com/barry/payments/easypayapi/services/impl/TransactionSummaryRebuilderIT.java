@@ -0,0 +1,192 @@
+package com.barry.payments.easypayapi.services.impl;
+
+import com.barry.payments.easypayapi.models.Transaction;
+import com.barry.payments.easypayapi.models.TransactionFilter;
+import com.barry.payments.easypayapi.models.TransactionStats;
+import com.barry.payments.easypayapi.models.TransactionSummary;
+import com.barry.payments.easypayapi.models.enums.PaymentType;
+import com.barry.payments.easypayapi.models.enums.Status;
+import com.barry.payments.easypayapi.reporitories.TransactionRepository;
+import com.barry.payments.easypayapi.reporitories.TransactionSummaryRepository;
+import com.barry.payments.easypayapi.services.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.barry.payments.easypayapi.models.enums.PaymentType.CREDIT_CARD;
+import static com.barry.payments.easypayapi.models.enums.PaymentType.PAYPAL;
+import static com.barry.payments.easypayapi.models.enums.Status.AUTHORIZED;
+import static com.barry.payments.easypayapi.models.enums.Status.NEW;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionSummaryRebuilderIT {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @MockitoSpyBean
+    private TransactionSummaryRepository transactionSummaryRepository;
+
+    @Autowired
+    private TransactionSummaryRebuilder transactionSummaryRebuilder;
+
+    private final CountDownLatch deltasReached = new CountDownLatch(1);
+
+    @BeforeEach
+    void cleanDb() {
+        transactionRepository.deleteAll().block();
+        transactionSummaryRepository.deleteAll().block();
+    }
+
+    @Test
+    void shouldFindNoDriftWhenAllWritesGoThroughService() {
+        //given
+        transactionService.createTransaction(transaction("TX-1", NEW, PAYPAL, "10")).block();
+        transactionService.createTransaction(transaction("TX-2", NEW, PAYPAL, "30")).block();
+        transactionService.createTransaction(transaction("TX-3", AUTHORIZED, CREDIT_CARD, "5")).block();
+
+        //when
+        Long corrected = transactionSummaryRebuilder.rebuild().block();
+
+        //then
+        assertThat(corrected).isZero();
+        assertThat(transactionService.getTransactionStats(new TransactionFilter()).collectList().block())
+                .usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .ignoringCollectionOrder()
+                .isEqualTo(transactionService.computeTransactionStats(new TransactionFilter()).collectList().block());
+    }
+
+    @Test
+    void shouldCorrectDriftAndRemoveEmptyGroups() {
+        //given : écritures hors service (totaux absents) et total obsolète
+        transactionService.createTransaction(transaction("TX-1", NEW, PAYPAL, "10")).block();
+        transactionRepository.saveAll(List.of(
+                transaction("TX-2", NEW, PAYPAL, "30"),
+                transaction("TX-3", AUTHORIZED, CREDIT_CARD, "5"))).collectList().block();
+        transactionSummaryRepository.save(TransactionSummary.builder()
+                .id(TransactionSummary.idOf(AUTHORIZED, PAYPAL))
+                .status(AUTHORIZED)
+                .paymentType(PAYPAL)
+                .count(3)
+                .totalAmount(BigDecimal.valueOf(99))
+                .build()).block();
+
+        //when
+        Long corrected = transactionSummaryRebuilder.rebuild().block();
+
+        //then
+        assertThat(corrected).isEqualTo(3);
+        List<TransactionStats> stats = transactionService.getTransactionStats(new TransactionFilter()).collectList().block();
+        assertThat(stats).extracting("status", "paymentType", "count")
+                .containsExactlyInAnyOrder(
+                        tuple(NEW, PAYPAL, 2L),
+                        tuple(AUTHORIZED, CREDIT_CARD, 1L));
+        assertThat(stats).filteredOn(s -> s.getStatus() == NEW).singleElement()
+                .satisfies(s -> {
+                    assertThat(s.getTotalAmount()).isEqualByComparingTo("40");
+                    assertThat(s.getMinAmount()).isEqualByComparingTo("10");
+                    assertThat(s.getMaxAmount()).isEqualByComparingTo("30");
+                });
+        assertThat(transactionSummaryRebuilder.rebuild().block()).isZero();
+    }
+
+    @Test
+    void shouldNotCountTwiceWhenRebuildRunsBetweenCreateAndItsSummaryUpdate() throws Exception {
+        //given : la transaction est écrite, sa variation de totaux est retenue
+        Sinks.Empty<Void> release = holdSummaryDeltas();
+        CompletableFuture<Transaction> created = transactionService
+                .createTransaction(transaction("TX-1", NEW, PAYPAL, "10")).toFuture();
+        assertThat(deltasReached.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //when : reconstruction intercalée, puis arrivée de la variation
+        Long corrected = transactionSummaryRebuilder.rebuild().block();
+        release.tryEmitEmpty();
+        created.get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(corrected).isZero();
+        awaitSummaryCount(NEW, PAYPAL, 1L);
+        assertThat(transactionSummaryRebuilder.rebuild().block()).isZero();
+    }
+
+    @Test
+    void shouldNotCountTwiceWhenRebuildRunsBetweenUpdateAndItsSummaryUpdate() throws Exception {
+        //given : la transaction change de groupe, ses variations (ancien et nouveau groupe) sont retenues
+        transactionService.createTransaction(transaction("TX-1", NEW, PAYPAL, "10")).block();
+        awaitSummaryCount(NEW, PAYPAL, 1L);
+        Sinks.Empty<Void> release = holdSummaryDeltas();
+        CompletableFuture<Transaction> updated = transactionService
+                .updateTransaction("TX-1", transaction(null, AUTHORIZED, PAYPAL, "10")).toFuture();
+        assertThat(deltasReached.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //when
+        Long corrected = transactionSummaryRebuilder.rebuild().block();
+        release.tryEmitEmpty();
+        updated.get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(corrected).isZero();
+        awaitSummaryCount(NEW, PAYPAL, 0L);
+        awaitSummaryCount(AUTHORIZED, PAYPAL, 1L);
+    }
+
+    // Les totaux sont écrits après la réponse : on les relit jusqu'à la valeur attendue
+    private void awaitSummaryCount(Status status, PaymentType paymentType, long expected) {
+        Mono.defer(() -> transactionSummaryRepository.findById(TransactionSummary.idOf(status, paymentType)))
+                .map(TransactionSummary::getCount)
+                .filter(count -> count == expected)
+                .repeatWhenEmpty(attempts -> attempts.delayElements(Duration.ofMillis(50)))
+                .block(Duration.ofSeconds(5));
+    }
+
+    // applyDeltas attend le signal du test avant d'écrire les totaux
+    // (repository = proxy d'interface : l'appel réel passe par la délégation du spy, pas par callRealMethod)
+    @SuppressWarnings("unchecked")
+    private Sinks.Empty<Void> holdSummaryDeltas() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        Answer<?> delegate = mockingDetails(transactionSummaryRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            deltasReached.countDown();
+            return release.asMono().then(Mono.defer(() -> {
+                try {
+                    return (Mono<Void>) delegate.answer(invocation);
+                } catch (Throwable e) {
+                    return Mono.error(e);
+                }
+            }));
+        }).when(transactionSummaryRepository).applyDeltas(anyList());
+        return release;
+    }
+
+    private static Transaction transaction(String id, Status status, PaymentType paymentType, String amount) {
+        return Transaction.builder()
+                .id(id)
+                .status(status)
+                .paymentType(paymentType)
+                .amount(new BigDecimal(amount))
+                .build();
+    }
+}